@@ -0,0 +1,74 @@
+package com.runtimeverification.rvpredict.instrument;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class BytecodeDigestTest {
+    @Test
+    public void ignoresTheLayoutOfTheClassFile() {
+        /* methods reordered, hence a different constant pool, and no debug information */
+        Assert.assertEquals(
+                BytecodeDigest.of(classFile(true, false, 1)),
+                BytecodeDigest.of(classFile(false, true, 1)));
+    }
+
+    @Test
+    public void coversTheCode() {
+        Assert.assertNotEquals(
+                BytecodeDigest.of(classFile(true, false, 1)),
+                BytecodeDigest.of(classFile(true, false, 2)));
+    }
+
+    private static byte[] classFile(boolean getterFirst, boolean debugInfo, int increment) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "Counter", null, "java/lang/Object", null);
+        cw.visitField(Opcodes.ACC_PRIVATE, "count", "I", null, null).visitEnd();
+        if (getterFirst) {
+            getter(cw, debugInfo);
+            increment(cw, debugInfo, increment);
+        } else {
+            increment(cw, debugInfo, increment);
+            getter(cw, debugInfo);
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void getter(ClassWriter cw, boolean debugInfo) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "get", "()I", null, null);
+        mv.visitCode();
+        if (debugInfo) {
+            Label start = new Label();
+            mv.visitLabel(start);
+            mv.visitLineNumber(10, start);
+        }
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, "Counter", "count", "I");
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void increment(ClassWriter cw, boolean debugInfo, int increment) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "increment", "()V", null, null);
+        mv.visitCode();
+        if (debugInfo) {
+            Label start = new Label();
+            mv.visitLabel(start);
+            mv.visitLineNumber(20, start);
+        }
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitFieldInsn(Opcodes.GETFIELD, "Counter", "count", "I");
+        mv.visitIntInsn(Opcodes.BIPUSH, increment);
+        mv.visitInsn(Opcodes.IADD);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, "Counter", "count", "I");
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+}
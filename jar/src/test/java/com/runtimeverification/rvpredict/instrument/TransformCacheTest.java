@@ -0,0 +1,103 @@
+package com.runtimeverification.rvpredict.instrument;
+
+import com.runtimeverification.rvpredict.config.Configuration;
+import com.runtimeverification.rvpredict.metadata.ClassFile;
+import com.runtimeverification.rvpredict.metadata.Metadata;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TransformCacheTest {
+    private static final byte[] CLASS_A = {1, 2, 3};
+    private static final byte[] CLASS_B = {4, 5, 6, 7, 8};
+    private static final byte[] TRANSFORMED_A = {11, 12, 13, 14};
+    private static final byte[] TRANSFORMED_B = {15, 16};
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock private Metadata mockMetadata;
+
+    private Configuration config;
+
+    @Before
+    public void setUp() {
+        config = Configuration.instance(
+                new String[] { "--transform-cache", folder.getRoot().getPath() });
+        restoreIds(true);
+    }
+
+    @Test
+    public void servesTheClassesOfThePreviousExecutions() throws IOException {
+        TransformCache cache = TransformCache.open(config, mockMetadata);
+        cache.put(cache.keyOf(CLASS_A), TRANSFORMED_A, Collections.emptyMap());
+        cache.save();
+
+        cache = TransformCache.open(config, mockMetadata);
+        Assert.assertArrayEquals(TRANSFORMED_A, cache.get(cache.keyOf(CLASS_A), null));
+        Assert.assertNull(cache.get(cache.keyOf(CLASS_B), null));
+        cache.put(cache.keyOf(CLASS_B), TRANSFORMED_B, Collections.emptyMap());
+        cache.save();
+
+        cache = TransformCache.open(config, mockMetadata);
+        Assert.assertArrayEquals(TRANSFORMED_A, cache.get(cache.keyOf(CLASS_A), null));
+        Assert.assertArrayEquals(TRANSFORMED_B, cache.get(cache.keyOf(CLASS_B), null));
+    }
+
+    @Test
+    public void rebuildsTheCacheWithConflictingIdentifiers() throws IOException {
+        TransformCache cache = TransformCache.open(config, mockMetadata);
+        cache.put(cache.keyOf(CLASS_A), TRANSFORMED_A, Collections.emptyMap());
+        cache.save();
+
+        restoreIds(false);
+        cache = TransformCache.open(config, mockMetadata);
+        Assert.assertNull(cache.get(cache.keyOf(CLASS_A), null));
+        cache.put(cache.keyOf(CLASS_B), TRANSFORMED_B, Collections.emptyMap());
+        cache.save();
+
+        restoreIds(true);
+        cache = TransformCache.open(config, mockMetadata);
+        Assert.assertNull(cache.get(cache.keyOf(CLASS_A), null));
+        Assert.assertArrayEquals(TRANSFORMED_B, cache.get(cache.keyOf(CLASS_B), null));
+    }
+
+    @Test
+    public void transformsAgainWhenADependencyChanged() throws IOException {
+        /* recorded as missing when transformed, but present now */
+        Map<String, ClassFile> stale = Collections.singletonMap("java/lang/Object", null);
+        Map<String, ClassFile> upToDate = Collections.singletonMap("no/such/Class", null);
+        TransformCache cache = TransformCache.open(config, mockMetadata);
+        ByteBuffer keyA = cache.keyOf(CLASS_A);
+        ByteBuffer keyB = cache.keyOf(CLASS_B);
+        cache.put(keyA, TRANSFORMED_A, stale);
+        cache.put(keyB, TRANSFORMED_B, upToDate);
+        Assert.assertNull(cache.get(keyA, null));
+        Assert.assertArrayEquals(TRANSFORMED_B, cache.get(keyB, null));
+        cache.save();
+
+        cache = TransformCache.open(config, mockMetadata);
+        Assert.assertNull(cache.get(keyA, null));
+        Assert.assertArrayEquals(TRANSFORMED_B, cache.get(keyB, null));
+    }
+
+    private void restoreIds(boolean success) {
+        when(mockMetadata.restoreIds(anyMapOf(String.class, Integer.class),
+                anyMapOf(String.class, Integer.class), anyMapOf(String.class, Integer.class),
+                anySetOf(Integer.class))).thenReturn(success);
+    }
+}
@@ -0,0 +1,155 @@
+package com.runtimeverification.rvpredict.instrument.transformer;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class ThreadLocalityAnalysisTest {
+
+    static class Confined {
+        private int initOnly;
+        private int mutable;
+        int shared;
+
+        Confined(int x) {
+            initOnly = x;
+            shared = x;
+            mutable = x;
+        }
+
+        Confined() {
+            this(0);
+            shared++;
+        }
+
+        void set(int x) {
+            mutable = x + initOnly;
+            shared = x;
+        }
+    }
+
+    static class Leaking {
+        static Leaking last;
+        int value;
+
+        Leaking() {
+            value = 1;
+            last = this;
+        }
+    }
+
+    static class Published {
+        private volatile boolean ready;
+
+        Published() {
+            ready = true;
+        }
+
+        boolean isReady() {
+            return ready;
+        }
+    }
+
+    static class Derived extends Confined {
+        int value;
+
+        Derived() {
+            value = 1;
+        }
+    }
+
+    @Test
+    public void skipsThisFieldsInConfinedConstructors() throws IOException {
+        ThreadLocalityAnalysis analysis = analyze(Confined.class);
+        Assert.assertEquals(bits(0, 1, 2), analysis.getSkippedSites("<init>", "(I)V"));
+        /* shared++ reads and writes this.shared */
+        Assert.assertEquals(bits(0, 1), analysis.getSkippedSites("<init>", "()V"));
+    }
+
+    @Test
+    public void skipsPrivateFieldsOnlyWrittenInConstructors() throws IOException {
+        ThreadLocalityAnalysis analysis = analyze(Confined.class);
+        Assert.assertEquals(bits(0), analysis.getSkippedSites("set", "(I)V"));
+        Assert.assertEquals(8, analysis.getNumOfSites());
+        Assert.assertEquals(6, analysis.getNumOfSkippedSites());
+    }
+
+    @Test
+    public void logsVolatileFieldsOnlyWrittenInConstructors() throws IOException {
+        ThreadLocalityAnalysis analysis = analyze(Published.class);
+        Assert.assertEquals(bits(), analysis.getSkippedSites("isReady", "()Z"));
+        Assert.assertEquals(1, analysis.getNumOfSkippedSites());
+    }
+
+    @Test
+    public void logsConstructorsLettingThisEscape() throws IOException {
+        Assert.assertEquals(0, analyze(Leaking.class).getNumOfSkippedSites());
+        /* the superclass constructor is not analyzed */
+        Assert.assertEquals(0, analyze(Derived.class).getNumOfSkippedSites());
+    }
+
+    @Test
+    public void followsThisThroughSwapAndDup() {
+        /* this, null -> null, this */
+        Assert.assertEquals(0, analyzeConstructor(mv -> {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitInsn(Opcodes.ACONST_NULL);
+            mv.visitInsn(Opcodes.SWAP);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, "Escaping", "escape",
+                    "(Ljava/lang/Object;Ljava/lang/Object;)V", false);
+        }).getNumOfSkippedSites());
+        /* this, null -> null, this, null; this is not the copy on top */
+        Assert.assertEquals(0, analyzeConstructor(mv -> {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitInsn(Opcodes.ACONST_NULL);
+            mv.visitInsn(Opcodes.DUP_X1);
+            mv.visitInsn(Opcodes.POP);
+            mv.visitFieldInsn(Opcodes.PUTSTATIC, "Escaping", "last", "Ljava/lang/Object;");
+            mv.visitInsn(Opcodes.POP);
+        }).getNumOfSkippedSites());
+    }
+
+    /**
+     * Builds a class whose constructor writes one of its fields and then runs the given
+     * code, which must leave the operand stack empty.
+     */
+    private static ThreadLocalityAnalysis analyzeConstructor(Consumer<MethodVisitor> body) {
+        org.objectweb.asm.ClassWriter cw =
+                new org.objectweb.asm.ClassWriter(org.objectweb.asm.ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "Escaping", null, "java/lang/Object", null);
+        cw.visitField(0, "value", "I", null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_STATIC, "last", "Ljava/lang/Object;", null, null).visitEnd();
+        MethodVisitor mv = cw.visitMethod(0, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, "Escaping", "value", "I");
+        body.accept(mv);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return ThreadLocalityAnalysis.analyze(new ClassReader(cw.toByteArray()));
+    }
+
+    private static ThreadLocalityAnalysis analyze(Class<?> cls) throws IOException {
+        return ThreadLocalityAnalysis.analyze(new ClassReader(cls.getName()));
+    }
+
+    private static BitSet bits(int... indices) {
+        BitSet bitSet = new BitSet();
+        for (int i : indices) {
+            bitSet.set(i);
+        }
+        return bitSet;
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.runtimeverification.rvpredict.log;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AsyncEventWriterTest {
+    private static final long THREAD_ID = 3L;
+
+    private final RecordingEventWriter out = new RecordingEventWriter();
+
+    private Path spillPath;
+
+    @Before
+    public void setUp() throws IOException {
+        spillPath = Files.createTempFile("rvpredict", "_spill.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(spillPath);
+    }
+
+    @Test
+    public void keepsOrderWhenSpilling() throws IOException {
+        AsyncEventWriter writer = new AsyncEventWriter(out, 4, spillPath);
+        write(writer, 0, 10);
+        Assert.assertEquals(4, writer.drain());
+        assertWritten(0, 4);
+
+        // the spilled events come before the ones logged once the buffer has room again
+        write(writer, 10, 12);
+        writer.drain();
+        assertWritten(0, 12);
+
+        write(writer, 12, 20);
+        writer.close();
+        assertWritten(0, 20);
+        Assert.assertTrue(out.closed);
+        Assert.assertFalse(Files.exists(spillPath));
+    }
+
+    @Test
+    public void writesAllEventsFromWriterThreads() throws IOException {
+        EventWriterThreads threads = new EventWriterThreads(2);
+        AsyncEventWriter writer = new AsyncEventWriter(out, 16, null);
+        threads.register(writer);
+        write(writer, 0, 10000);
+        threads.shutdown();
+        writer.close();
+        assertWritten(0, 10000);
+    }
+
+    private void write(AsyncEventWriter writer, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            writer.write(i, THREAD_ID, i, -i, i * 2L, EventType.WRITE);
+        }
+    }
+
+    private void assertWritten(int from, int to) {
+        Assert.assertEquals(to - from, out.gids.size());
+        for (int i = from; i < to; i++) {
+            Assert.assertEquals(i, (long) out.gids.get(i - from));
+        }
+    }
+
+    private static class RecordingEventWriter implements IEventWriter {
+        private final List<Long> gids = new ArrayList<>();
+        private boolean closed = false;
+
+        @Override
+        public void write(long gid, long tid, int locId, long addr, long value, EventType eventType) {
+            Assert.assertEquals(THREAD_ID, tid);
+            Assert.assertEquals(gid, locId);
+            Assert.assertEquals(-gid, addr);
+            Assert.assertEquals(gid * 2, value);
+            Assert.assertEquals(EventType.WRITE, eventType);
+            gids.add(gid);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.runtimeverification.rvpredict.log;
+
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EventReaderTest {
+    private static final long THREAD_ID = 7L;
+    private static final int EVENT_COUNT = 3 * TraceFormat.BLOCK_CAPACITY + 5;
+
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = Files.createTempFile("rvpredict", "_trace.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void readsBackWrittenEvents() throws IOException {
+        try (EventWriter writer = new EventWriter(path)) {
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                writer.write(gid(i), THREAD_ID, locId(i), address(i), value(i), type(i));
+            }
+        }
+        assertReadsAllEvents();
+    }
+
+    @Test
+    public void closesWhileTheThreadIsWriting() throws Exception {
+        EventWriter writer = new EventWriter(path);
+        AtomicInteger written = new AtomicInteger();
+        Thread thread = new Thread(() -> {
+            try {
+                for (int i = 0; i < 100 * EVENT_COUNT; i++) {
+                    writer.write(gid(i), THREAD_ID, locId(i), address(i), value(i), type(i));
+                    written.incrementAndGet();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        while (written.get() < EVENT_COUNT) {
+            Thread.yield();
+        }
+        writer.close();
+        thread.join();
+        Assert.assertTrue(readEvents() >= EVENT_COUNT);
+    }
+
+    @Test
+    public void readsFixedSizeRecords() throws IOException {
+        try (LZ4BlockOutputStream out = LZ4Utils.createCompressionStream(path)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Event.SIZEOF);
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                buffer.putLong(gid(i))
+                        .putLong(THREAD_ID)
+                        .putInt(locId(i))
+                        .putLong(address(i))
+                        .putLong(value(i))
+                        .put((byte) type(i).ordinal());
+                out.write(buffer.array());
+                buffer.clear();
+            }
+        }
+        assertReadsAllEvents();
+    }
+
+    private void assertReadsAllEvents() throws IOException {
+        Assert.assertEquals(EVENT_COUNT, readEvents());
+    }
+
+    /**
+     * Checks the events of the trace file up to its end.
+     *
+     * @return the number of events
+     */
+    private int readEvents() throws IOException {
+        try (EventReader reader = new EventReader(path)) {
+            ReadonlyEventInterface event = reader.lastReadEvent();
+            int i = 0;
+            for (; event != null; i++) {
+                Assert.assertEquals(gid(i), event.getEventId());
+                Assert.assertEquals(THREAD_ID, event.getOriginalThreadId());
+                Assert.assertEquals(locId(i), event.getLocationId());
+                Assert.assertEquals(type(i), event.getType());
+                Assert.assertEquals(address(i), event.unsafeGetDataInternalIdentifier());
+                Assert.assertEquals(value(i), event.unsafeGetDataValue());
+                try {
+                    event = reader.readEvent();
+                } catch (EOFException e) {
+                    event = null;
+                }
+            }
+            Assert.assertNull(reader.lastReadEvent());
+            return i;
+        }
+    }
+
+    private static long gid(int i) {
+        // method events share the global id of the next event
+        return 1000L + i - i / 3;
+    }
+
+    private static int locId(int i) {
+        return i % 5 == 0 ? -1 : i * 31;
+    }
+
+    private static long address(int i) {
+        return (long) (i * 7919) << 32 | (-i & 0xFFFFFFFFL);
+    }
+
+    private static long value(int i) {
+        return i % 2 == 0 ? Long.MIN_VALUE + i : i;
+    }
+
+    private static EventType type(int i) {
+        switch (i % 3) {
+            case 0:
+                return EventType.READ;
+            case 1:
+                return EventType.WRITE_LOCK;
+            default:
+                return EventType.INVOKE_METHOD;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.runtimeverification.rvpredict.log;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class PrefetchingEventReaderTest {
+    private final ExecutorService decoders = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        decoders.shutdownNow();
+    }
+
+    @Test
+    public void readsAllEventsInOrder() throws IOException {
+        PrefetchingEventReader reader =
+                new PrefetchingEventReader(new CountingEventReader(10000, -1), decoders, 100);
+        Assert.assertEquals(0L, reader.lastReadEvent().getEventId());
+        for (long i = 1; i < 10000; i++) {
+            Assert.assertEquals(i, reader.readEvent().getEventId());
+            Assert.assertEquals(i, reader.lastReadEvent().getEventId());
+        }
+        try {
+            reader.readEvent();
+            Assert.fail();
+        } catch (EOFException ignored) {
+        }
+        Assert.assertNull(reader.lastReadEvent());
+    }
+
+    @Test
+    public void readsOnTheCallingThreadWithSmallDepth() throws IOException {
+        PrefetchingEventReader reader =
+                new PrefetchingEventReader(new CountingEventReader(5, -1), Runnable::run, 1);
+        for (long i = 1; i < 5; i++) {
+            Assert.assertEquals(i, reader.readEvent().getEventId());
+        }
+        try {
+            reader.readEvent();
+            Assert.fail();
+        } catch (EOFException ignored) {
+        }
+    }
+
+    @Test
+    public void propagatesDecodingErrorsAfterPrecedingEvents() throws IOException {
+        PrefetchingEventReader reader =
+                new PrefetchingEventReader(new CountingEventReader(100, 3), decoders, 10);
+        Assert.assertEquals(1L, reader.readEvent().getEventId());
+        Assert.assertEquals(2L, reader.readEvent().getEventId());
+        try {
+            reader.readEvent();
+            Assert.fail();
+        } catch (EOFException e) {
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("broken", e.getMessage());
+        }
+    }
+
+    @Test
+    public void emptySourceHasNoEvents() {
+        PrefetchingEventReader reader =
+                new PrefetchingEventReader(new CountingEventReader(0, -1), decoders, 10);
+        Assert.assertNull(reader.lastReadEvent());
+    }
+
+    private static class CountingEventReader implements IEventReader {
+        private final long count;
+        private final long failAt;
+        private long next;
+        private ReadonlyEventInterface lastReadEvent;
+
+        private CountingEventReader(long count, long failAt) {
+            this.count = count;
+            this.failAt = failAt;
+            lastReadEvent = count > 0 ? new Event(next++, 1, 0, 0, 0, EventType.READ) : null;
+        }
+
+        @Override
+        public ReadonlyEventInterface readEvent() throws IOException {
+            if (next == failAt) {
+                throw new IOException("broken");
+            }
+            if (next >= count) {
+                lastReadEvent = null;
+                throw new EOFException();
+            }
+            lastReadEvent = new Event(next++, 1, 0, 0, 0, EventType.READ);
+            return lastReadEvent;
+        }
+
+        @Override
+        public ReadonlyEventInterface lastReadEvent() {
+            return lastReadEvent;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.runtimeverification.rvpredict.log;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ThreadEventClockTest {
+    private static final long STEP = 1L << ThreadEventClock.PLAIN_ACCESS_BITS;
+
+    @Test
+    public void plainAccessesFollowTheLastSyncEvent() {
+        AtomicLong counter = new AtomicLong(0);
+        ThreadEventClock clock1 = new ThreadEventClock(counter);
+        ThreadEventClock clock2 = new ThreadEventClock(counter);
+
+        Assert.assertEquals(0, clock1.claimPlain());
+        Assert.assertEquals(STEP, clock2.claimSync(3));
+        Assert.assertEquals(1, clock1.claimPlain());
+        Assert.assertEquals(STEP + 3, clock2.peek());
+        Assert.assertEquals(STEP + 3, clock2.claimPlain());
+        Assert.assertEquals(2 * STEP, clock1.claimSync(1));
+        Assert.assertEquals(2 * STEP + 1, clock1.claimPlain());
+        Assert.assertEquals(3, counter.get());
+    }
+
+    @Test
+    public void takesANewNumberWhenPlainAccessesOverflow() {
+        AtomicLong counter = new AtomicLong(0);
+        ThreadEventClock clock = new ThreadEventClock(counter);
+        Assert.assertEquals(0, clock.claimSync(1));
+        for (long i = 1; i < STEP; i++) {
+            Assert.assertEquals(i, clock.claimPlain());
+        }
+        Assert.assertEquals(1, counter.get());
+        Assert.assertEquals(STEP, clock.claimPlain());
+        Assert.assertEquals(2, counter.get());
+    }
+}
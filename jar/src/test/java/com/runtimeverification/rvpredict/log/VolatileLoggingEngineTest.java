@@ -7,6 +7,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.List;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -118,6 +119,56 @@ public class VolatileLoggingEngineTest {
         Assert.assertTrue(!t1.isAlive());
     }
 
+    @Test
+    public void boundsTheDroppedWindows() throws InterruptedException, IOException {
+        Configuration configuration = mock(Configuration.class);
+        configuration.windowSize = 1;
+        configuration.online_windows_in_flight = 1;
+        configuration.online_drop_windows = true;
+        when(configuration.getOrCreateLogDir()).thenReturn(TestUtils.getLogDir());
+
+        Metadata metadata = mock(Metadata.class);
+
+        ControlFlags controlFlags = new ControlFlags();
+        controlFlags.canFinishRaceDetection = false;
+
+        VolatileLoggingEngine loggingEngine = new VolatileLoggingEngine(configuration, metadata) {
+            @Override
+            void analyzeWindow(List<FrozenBuffer> window, boolean detectRaces) {
+                controlFlags.hasStartedRaceDetection = true;
+                while (!controlFlags.canFinishRaceDetection) {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }
+        };
+
+        Thread t1 = new Thread(() -> {
+            // Each event closes the window of the previous one. The first window is
+            // analyzed, the next ones are dropped while the analyzer is on hold.
+            for (int i = 0; i < 10; i++) {
+                loggingEngine.log(EventType.WRITE, LOC_ID, ADDR, ADDR, VALUE, VALUE);
+            }
+        });
+        t1.start();
+        while (!controlFlags.hasStartedRaceDetection) {
+            Thread.sleep(1);
+        }
+        // At most two windows per window in flight may wait; the thread closing
+        // the next one waits for the analyzer instead of queuing more events.
+        Thread.sleep(100);
+        Assert.assertEquals(2, loggingEngine.numOfQueuedWindows());
+        Assert.assertTrue(t1.isAlive());
+
+        controlFlags.canFinishRaceDetection = true;
+        // One second should be enough for it to finish, but another way to detect whether
+        // it deadlocked would be nice.
+        t1.join(1000);
+        Assert.assertTrue(!t1.isAlive());
+    }
+
     private static class ControlFlags {
         private volatile boolean canFinishRaceDetection = true;
         private volatile boolean hasStartedRaceDetection = false;
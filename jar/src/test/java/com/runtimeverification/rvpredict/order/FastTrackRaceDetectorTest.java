@@ -0,0 +1,74 @@
+package com.runtimeverification.rvpredict.order;
+
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+import com.runtimeverification.rvpredict.testutils.TraceUtils;
+import com.runtimeverification.rvpredict.trace.RawTrace;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.runtimeverification.rvpredict.testutils.TraceUtils.extractSingleEvent;
+
+public class FastTrackRaceDetectorTest extends JavaHappensBeforeRaceDetectorTest {
+    @Override
+    OrderedRaceDetector createDetector() {
+        return new FastTrackRaceDetector(mockConfiguration, mockMetadata);
+    }
+
+    @Test
+    public void concurrentReadsWriteRaces() throws Exception {
+        TraceUtils tu = new TraceUtils(mockContext, THREAD_1, NO_SIGNAL, BASE_PC);
+
+        List<ReadonlyEventInterface> e1;
+        List<ReadonlyEventInterface> e2;
+        List<ReadonlyEventInterface> e3;
+        List<List<ReadonlyEventInterface>> events = Arrays.asList(
+                e1 = tu.nonAtomicLoad(ADDRESS_1, VALUE_1),
+
+                tu.switchThread(THREAD_2, NO_SIGNAL),
+                e2 = tu.nonAtomicLoad(ADDRESS_1, VALUE_1),
+
+                tu.switchThread(THREAD_3, NO_SIGNAL),
+                e3 = tu.nonAtomicStore(ADDRESS_1, VALUE_2)
+        );
+
+        List<RawTrace> rawTraces = Arrays.asList(
+                tu.extractRawTrace(events, THREAD_1, NO_SIGNAL),
+                tu.extractRawTrace(events, THREAD_2, NO_SIGNAL),
+                tu.extractRawTrace(events, THREAD_3, NO_SIGNAL));
+
+        Assert.assertTrue(
+                hasRace(Collections.singletonList(rawTraces), extractSingleEvent(e1), extractSingleEvent(e3)));
+        Assert.assertTrue(
+                hasRace(Collections.singletonList(rawTraces), extractSingleEvent(e2), extractSingleEvent(e3)));
+    }
+
+    @Test
+    public void orderedReadsWriteNoRace() throws Exception {
+        TraceUtils tu = new TraceUtils(mockContext, THREAD_1, NO_SIGNAL, BASE_PC);
+
+        List<ReadonlyEventInterface> e1;
+        List<ReadonlyEventInterface> e2;
+        List<List<ReadonlyEventInterface>> events = Arrays.asList(
+                tu.lock(LOCK_1),
+                e1 = tu.nonAtomicLoad(ADDRESS_1, VALUE_1),
+                tu.unlock(LOCK_1),
+
+                tu.switchThread(THREAD_2, NO_SIGNAL),
+                tu.lock(LOCK_1),
+                tu.nonAtomicLoad(ADDRESS_1, VALUE_1),
+                e2 = tu.nonAtomicStore(ADDRESS_1, VALUE_2),
+                tu.unlock(LOCK_1)
+        );
+
+        List<RawTrace> rawTraces = Arrays.asList(
+                tu.extractRawTrace(events, THREAD_1, NO_SIGNAL),
+                tu.extractRawTrace(events, THREAD_2, NO_SIGNAL));
+
+        Assert.assertFalse(
+                hasRace(Collections.singletonList(rawTraces), extractSingleEvent(e1), extractSingleEvent(e2)));
+    }
+}
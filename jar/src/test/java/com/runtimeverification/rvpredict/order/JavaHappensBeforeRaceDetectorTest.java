@@ -2,6 +2,7 @@ package com.runtimeverification.rvpredict.order;
 
 import com.runtimeverification.rvpredict.config.Configuration;
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.log.IEventReader;
 import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
 import com.runtimeverification.rvpredict.log.compact.Context;
 import com.runtimeverification.rvpredict.metadata.Metadata;
@@ -21,10 +22,14 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.EOFException;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,24 +41,24 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class JavaHappensBeforeRaceDetectorTest {
     private static final int WINDOW_SIZE = 100;
-    private static final long ADDRESS_1 = 200;
-    private static final long ADDRESS_2 = 201;
-    private static final long ADDRESS_3_VOLATILE = 202;
-    private static final long VALUE_1 = 300;
-    private static final long VALUE_2 = 301;
-    private static final long BASE_ID = 0;
-    private static final long BASE_PC = 400;
-    private static final long THREAD_1 = 1;
-    private static final long THREAD_2 = 2;
-    private static final long THREAD_3 = 3;
-    private static final int NO_SIGNAL = 0;
-    private static final long LOCK_1 = 500;
+    static final long ADDRESS_1 = 200;
+    static final long ADDRESS_2 = 201;
+    static final long ADDRESS_3_VOLATILE = 202;
+    static final long VALUE_1 = 300;
+    static final long VALUE_2 = 301;
+    static final long BASE_ID = 0;
+    static final long BASE_PC = 400;
+    static final long THREAD_1 = 1;
+    static final long THREAD_2 = 2;
+    static final long THREAD_3 = 3;
+    static final int NO_SIGNAL = 0;
+    static final long LOCK_1 = 500;
 
     private int nextIdDelta = 0;
 
-    @Mock private Configuration mockConfiguration;
-    @Mock private Context mockContext;
-    @Mock private Metadata mockMetadata;
+    @Mock Configuration mockConfiguration;
+    @Mock Context mockContext;
+    @Mock Metadata mockMetadata;
 
     @Before
     public void setUp() {
@@ -258,6 +263,33 @@ public class JavaHappensBeforeRaceDetectorTest {
                 hasRace(Collections.singletonList(rawTraces), extractSingleEvent(e1), extractSingleEvent(e2)));
     }
 
+    @Test
+    public void synchronizedWriteWriteNoRaceAfterMoreEventsInThread() throws Exception {
+        TraceUtils tu = new TraceUtils(mockContext, THREAD_1, NO_SIGNAL, BASE_PC);
+
+        List<ReadonlyEventInterface> e1;
+        List<ReadonlyEventInterface> e2;
+        List<List<ReadonlyEventInterface>> events = Arrays.asList(
+                tu.lock(LOCK_1),
+                e1 = tu.nonAtomicStore(ADDRESS_1, VALUE_1),
+                tu.unlock(LOCK_1),
+                tu.nonAtomicStore(ADDRESS_2, VALUE_1),
+
+                tu.switchThread(THREAD_2, NO_SIGNAL),
+                tu.lock(LOCK_1),
+                e2 = tu.nonAtomicStore(ADDRESS_1, VALUE_2),
+                tu.unlock(LOCK_1),
+                tu.nonAtomicStore(ADDRESS_2, VALUE_2)
+        );
+
+        List<RawTrace> rawTraces = Arrays.asList(
+                tu.extractRawTrace(events, THREAD_1, NO_SIGNAL),
+                tu.extractRawTrace(events, THREAD_2, NO_SIGNAL));
+
+        Assert.assertFalse(
+                hasRace(Collections.singletonList(rawTraces), extractSingleEvent(e1), extractSingleEvent(e2)));
+    }
+
     @Test
     public void simpleSpawnNoRace() throws Exception {
         TraceUtils tu = new TraceUtils(mockContext, THREAD_1, NO_SIGNAL, BASE_PC);
@@ -302,11 +334,110 @@ public class JavaHappensBeforeRaceDetectorTest {
                 hasRace(Collections.singletonList(rawTraces), extractSingleEvent(e1), extractSingleEvent(e2)));
     }
 
-    private boolean hasRace(List<List<RawTrace>> rawTracesList, ReadonlyEventInterface e1, ReadonlyEventInterface e2) {
+    @Test
+    public void streamedWriteWriteRace() throws Exception {
+        TraceUtils tu = new TraceUtils(mockContext, THREAD_1, NO_SIGNAL, BASE_PC);
+
+        List<ReadonlyEventInterface> e1;
+        List<ReadonlyEventInterface> e2;
+        List<ReadonlyEventInterface> e3;
+        List<List<ReadonlyEventInterface>> events = Arrays.asList(
+                e1 = tu.nonAtomicStore(ADDRESS_1, VALUE_1),
+                tu.lock(LOCK_1),
+                tu.nonAtomicStore(ADDRESS_2, VALUE_1),
+                tu.unlock(LOCK_1),
+
+                tu.switchThread(THREAD_2, NO_SIGNAL),
+                tu.lock(LOCK_1),
+                e2 = tu.nonAtomicStore(ADDRESS_2, VALUE_2),
+                tu.unlock(LOCK_1),
+                e3 = tu.nonAtomicStore(ADDRESS_1, VALUE_2)
+        );
+
+        OrderedRaceDetector detector = createDetector();
+        detector.run(new OrderedListEventReader(events));
+
+        Assert.assertTrue(detector.races.containsKey(
+                new Race(extractSingleEvent(e1), extractSingleEvent(e3), null, mockConfiguration).toString()));
+        Assert.assertEquals(1, detector.races.size());
+        Assert.assertEquals(1, detector.getRaceReports().size());
+        Assert.assertFalse(detector.races.containsKey(
+                new Race(extractSingleEvent(e2), extractSingleEvent(e2), null, mockConfiguration).toString()));
+    }
+
+    @Test
+    public void streamedReadsInALoopWriteRace() throws Exception {
+        TraceUtils tu = new TraceUtils(mockContext, THREAD_1, NO_SIGNAL, BASE_PC);
+
+        List<List<ReadonlyEventInterface>> events = new ArrayList<>();
+        List<ReadonlyEventInterface> e1 = null;
+        for (int i = 0; i < 100; i++) {
+            events.add(tu.setPc(BASE_PC));
+            events.add(e1 = tu.nonAtomicLoad(ADDRESS_1, VALUE_1));
+        }
+        List<ReadonlyEventInterface> e2;
+        List<ReadonlyEventInterface> e3;
+        events.addAll(Arrays.asList(
+                tu.switchThread(THREAD_2, NO_SIGNAL),
+                e2 = tu.nonAtomicLoad(ADDRESS_1, VALUE_1),
+
+                tu.switchThread(THREAD_3, NO_SIGNAL),
+                e3 = tu.nonAtomicStore(ADDRESS_1, VALUE_2)
+        ));
+
+        OrderedRaceDetector detector = createDetector();
+        detector.run(new OrderedListEventReader(events.subList(0, events.size() - 2)));
+        Assert.assertTrue(detector.numOfPendingReads() <= 2);
+
+        detector = createDetector();
+        detector.run(new OrderedListEventReader(events));
+        Assert.assertTrue(detector.races.containsKey(
+                new Race(extractSingleEvent(e1), extractSingleEvent(e3), null, mockConfiguration).toString()));
+        Assert.assertTrue(detector.races.containsKey(
+                new Race(extractSingleEvent(e2), extractSingleEvent(e3), null, mockConfiguration).toString()));
+        Assert.assertEquals(2, detector.races.size());
+        Assert.assertEquals(0, detector.numOfPendingReads());
+    }
+
+    OrderedRaceDetector createDetector() {
+        return new JavaHappensBeforeRaceDetector(mockConfiguration, mockMetadata);
+    }
+
+    /**
+     * Reads the given events in the order of their ids.
+     */
+    private static class OrderedListEventReader implements IEventReader {
+        private final Iterator<ReadonlyEventInterface> events;
+        private ReadonlyEventInterface lastReadEvent;
+
+        private OrderedListEventReader(List<List<ReadonlyEventInterface>> events) {
+            this.events = events.stream().flatMap(List::stream).sorted().iterator();
+        }
+
+        @Override
+        public ReadonlyEventInterface readEvent() throws IOException {
+            if (!events.hasNext()) {
+                throw new EOFException();
+            }
+            lastReadEvent = events.next();
+            return lastReadEvent;
+        }
+
+        @Override
+        public ReadonlyEventInterface lastReadEvent() {
+            return lastReadEvent;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    boolean hasRace(List<List<RawTrace>> rawTracesList, ReadonlyEventInterface e1, ReadonlyEventInterface e2) {
         mockConfiguration.windowSize = WINDOW_SIZE;
         TraceState traceState = new TraceState(mockConfiguration, mockMetadata);
         ThreadInfos threadInfos = traceState.getThreadInfos();
-        JavaHappensBeforeRaceDetector detector = new JavaHappensBeforeRaceDetector(mockConfiguration, mockMetadata);
+        OrderedRaceDetector detector = createDetector();
 
         Trace trace = null;
         assert !rawTracesList.isEmpty();
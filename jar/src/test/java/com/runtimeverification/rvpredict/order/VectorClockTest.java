@@ -3,42 +3,39 @@ package com.runtimeverification.rvpredict.order;
 import org.junit.Assert;
 import org.junit.Test;
 
-import static com.runtimeverification.rvpredict.testutils.MoreAsserts.*;
-
 public class VectorClockTest {
 
     @Test
     public void increment() throws Exception {
         VectorClock clock1 = new VectorClock();
         clock1.increment(15);
-        Assert.assertThat(clock1.clocks, hasMapSize(1));
-        Assert.assertTrue(clock1.clocks.containsKey(15));
-        Assert.assertEquals(1, clock1.get(15).longValue());
+        Assert.assertEquals(1, clock1.size());
+        Assert.assertEquals(1, clock1.get(15));
 
         VectorClock clock2 = new VectorClock().put(1, 1).put(2, 3).put(3, 7);
         VectorClock clock = new VectorClock(clock2);
         clock2.increment(15);
-        Assert.assertThat(clock2.clocks, hasMapSize(4));
-        Assert.assertTrue(clock2.clocks.containsKey(15));
-        Assert.assertEquals(1, clock2.get(15).longValue());
+        Assert.assertEquals(4, clock2.size());
+        Assert.assertEquals(1, clock2.get(15));
+        Assert.assertEquals(3, clock.size());
+        Assert.assertEquals(0, clock.get(15));
         assertIncludedIn(clock, clock2);
 
         clock2.increment(1);
-        Assert.assertThat(clock2.clocks, hasMapSize(4));
-        Assert.assertEquals(2, clock2.get(1).longValue());
-        clock.clocks.forEach((c, value) -> {
-            Assert.assertTrue(clock2.clocks.containsKey(c));
-            if (c != 1) {
-                Assert.assertEquals(value.longValue(), clock2.get(c).longValue());
-            }
-        });
+        Assert.assertEquals(4, clock2.size());
+        Assert.assertEquals(2, clock2.get(1));
+        Assert.assertEquals(1, clock.get(1));
+        for (int c = 2; c < 16; c++) {
+            Assert.assertTrue(c == 15 || clock.get(c) == clock2.get(c));
+        }
     }
 
     private void assertIncludedIn(VectorClock clock, VectorClock clock2) {
-        clock.clocks.forEach((c, value) -> {
-            Assert.assertTrue(clock2.clocks.containsKey(c));
-            Assert.assertEquals(value.longValue(), clock2.get(c).longValue());
-        });
+        for (int c = 0; c < 16; c++) {
+            if (clock.get(c) != 0) {
+                Assert.assertEquals(clock.get(c), clock2.get(c));
+            }
+        }
     }
 
     @Test
@@ -52,19 +49,22 @@ public class VectorClockTest {
         assertIncludedIn(clockTest, clock2);
 
         clockTest.update(clock3);
-        Assert.assertThat(clockTest.clocks, hasMapSize(4));
-        Assert.assertEquals(5, clockTest.get(1).longValue());
-        Assert.assertEquals(3, clockTest.get(2).longValue());
-        Assert.assertEquals(7, clockTest.get(3).longValue());
-        Assert.assertEquals(1, clockTest.get(5).longValue());
+        Assert.assertEquals(4, clockTest.size());
+        Assert.assertEquals(5, clockTest.get(1));
+        Assert.assertEquals(3, clockTest.get(2));
+        Assert.assertEquals(7, clockTest.get(3));
+        Assert.assertEquals(1, clockTest.get(5));
+        Assert.assertEquals(1, clock2.get(1));
+        Assert.assertEquals(0, clock2.get(5));
 
         clockTest = new VectorClock(clock3);
         clockTest.update(clock2);
-        Assert.assertThat(clockTest.clocks, hasMapSize(4));
-        Assert.assertEquals(5, clockTest.get(1).longValue());
-        Assert.assertEquals(3, clockTest.get(2).longValue());
-        Assert.assertEquals(7, clockTest.get(3).longValue());
-        Assert.assertEquals(1, clockTest.get(5).longValue());
+        Assert.assertEquals(4, clockTest.size());
+        Assert.assertEquals(5, clockTest.get(1));
+        Assert.assertEquals(3, clockTest.get(2));
+        Assert.assertEquals(7, clockTest.get(3));
+        Assert.assertEquals(1, clockTest.get(5));
+        Assert.assertEquals(4, clock3.get(3));
     }
 
     @Test
@@ -81,13 +81,92 @@ public class VectorClockTest {
         Assert.assertEquals(VectorClock.Comparison.NOT_COMPARABLE, clock3.compareTo(clock2));
 
         VectorClock clockTest = new VectorClock(clock2);
-        clock2.clocks.put(2, 4);
+        clock2.put(2, 4);
         Assert.assertEquals(VectorClock.Comparison.AFTER, clock2.compareTo(clockTest));
         Assert.assertEquals(VectorClock.Comparison.BEFORE, clockTest.compareTo(clock2));
-        clockTest.clocks.put(10, 1);
+        clockTest.put(10, 1);
         Assert.assertEquals(VectorClock.Comparison.NOT_COMPARABLE, clock2.compareTo(clockTest));
         Assert.assertEquals(VectorClock.Comparison.NOT_COMPARABLE, clockTest.compareTo(clock2));
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void happensBefore() throws Exception {
+        VectorClock thread1 = new VectorClock(1, null);
+        thread1.increment(1);
+        VectorClock event1 = thread1.snapshot();
+        thread1.increment(1);
+        VectorClock release = thread1.snapshot();
+
+        VectorClock thread2 = new VectorClock(2, null);
+        thread2.increment(2);
+        VectorClock event2 = thread2.snapshot();
+        Assert.assertFalse(event1.happensBefore(event2));
+        Assert.assertFalse(event2.happensBefore(event1));
+
+        thread2.update(release);
+        thread2.increment(2);
+        VectorClock event3 = thread2.snapshot();
+        Assert.assertTrue(event1.happensBefore(event3));
+        Assert.assertTrue(event2.happensBefore(event3));
+        Assert.assertFalse(event3.happensBefore(event1));
+
+        thread1.increment(1);
+        Assert.assertEquals(1, event1.get(1));
+        Assert.assertEquals(2, release.get(1));
+        Assert.assertEquals(3, thread1.get(1));
+    }
+
+    @Test
+    public void timestampsKeepTheEpoch() throws Exception {
+        VectorClock thread1 = new VectorClock(1, null);
+        thread1.increment(1);
+        VectorClock event1 = thread1.timestamp();
+        VectorClock release = thread1.snapshot();
+        thread1.increment(1);
+        VectorClock event2 = thread1.timestamp();
+
+        VectorClock thread2 = new VectorClock(2, null);
+        thread2.increment(2);
+        VectorClock event3 = thread2.timestamp();
+        Assert.assertFalse(event2.happensBefore(event3));
+        Assert.assertEquals(0, event3.get(1));
+
+        thread2.update(release);
+        thread2.increment(2);
+        VectorClock event4 = thread2.timestamp();
+        Assert.assertTrue(event1.happensBefore(event4));
+        Assert.assertFalse(event2.happensBefore(event4));
+        Assert.assertTrue(event3.happensBefore(event4));
+        Assert.assertEquals(1, event4.get(1));
+
+        // the timestamps taken before the join keep their clocks
+        Assert.assertEquals(0, event3.get(1));
+        Assert.assertEquals(1, event3.get(2));
+        Assert.assertEquals(2, event4.get(2));
+        thread2.increment(2);
+        Assert.assertEquals(2, event4.get(2));
+        Assert.assertEquals(3, thread2.get(2));
+    }
+
+    @Test
+    public void timestampsCanBeModified() throws Exception {
+        VectorClock thread1 = new VectorClock(1, null);
+        thread1.increment(1);
+        VectorClock event1 = thread1.timestamp();
+        thread1.increment(1);
+
+        event1.update(new VectorClock().put(2, 5));
+        Assert.assertEquals(1, event1.get(1));
+        Assert.assertEquals(5, event1.get(2));
+        Assert.assertEquals(2, thread1.get(1));
+        Assert.assertEquals(0, thread1.get(2));
+
+        VectorClock copy = new VectorClock(thread1.timestamp());
+        thread1.update(event1);
+        Assert.assertEquals(2, copy.get(1));
+        Assert.assertEquals(0, copy.get(2));
+        Assert.assertEquals(5, thread1.get(2));
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.runtimeverification.rvpredict.runtime;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MethodSamplerTest {
+    @Test
+    public void logsBurstsLessAndLessOften() {
+        int methodId = 1 << 16;
+        int sampled = 0;
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(MethodSampler.sample(methodId));
+        }
+        for (int i = 0; i < 1_000_000; i++) {
+            if (MethodSampler.sample(methodId)) {
+                sampled++;
+            }
+        }
+        /* each rate lasts one burst: 10% of the next 100 executions, 1% of the next 1000,
+         * then 0.1% */
+        Assert.assertTrue(sampled > 1000 && sampled < 1100);
+        /* other methods are sampled independently */
+        Assert.assertTrue(MethodSampler.sample(methodId + 1));
+    }
+
+    @Test
+    public void keepsTheStateOfManyMethods() {
+        int firstMethodId = 2 << 16;
+        for (int m = firstMethodId; m < firstMethodId + 1000; m++) {
+            for (int i = 0; i < 10; i++) {
+                Assert.assertTrue(MethodSampler.sample(m));
+            }
+        }
+        /* the first burst of each method is over */
+        for (int m = firstMethodId; m < firstMethodId + 1000; m++) {
+            Assert.assertFalse(MethodSampler.sample(m));
+        }
+    }
+}
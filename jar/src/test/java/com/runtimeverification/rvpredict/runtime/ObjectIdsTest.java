@@ -0,0 +1,49 @@
+package com.runtimeverification.rvpredict.runtime;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class ObjectIdsTest {
+    @Before
+    public void setUp() {
+        ObjectIds.init(true);
+    }
+
+    @After
+    public void tearDown() {
+        ObjectIds.init(false);
+    }
+
+    @Test
+    public void givesDistinctIdsToDistinctObjects() {
+        Object[] objects = new Object[5000];
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new Object();
+            int id = ObjectIds.of(objects[i]);
+            Assert.assertTrue(id > 0);
+            Assert.assertTrue(ids.add(id));
+        }
+        for (Object object : objects) {
+            Assert.assertTrue(ids.contains(ObjectIds.of(object)));
+        }
+        Assert.assertEquals(0, ObjectIds.of(null));
+    }
+
+    @Test
+    public void keepsTheIdOfAnObjectAcrossThreads() throws InterruptedException {
+        Object object = new Object();
+        int id = ObjectIds.of(object);
+        int[] seen = new int[1];
+        Thread thread = new Thread(() -> seen[0] = ObjectIds.of(object));
+        thread.start();
+        thread.join();
+        Assert.assertEquals(id, seen[0]);
+        Assert.assertEquals(id, ObjectIds.of(object));
+    }
+}
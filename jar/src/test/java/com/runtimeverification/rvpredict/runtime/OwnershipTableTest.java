@@ -0,0 +1,46 @@
+package com.runtimeverification.rvpredict.runtime;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OwnershipTableTest {
+    @Test
+    public void logsObjectsOnceShared() throws InterruptedException {
+        OwnershipTable table = new OwnershipTable(1024);
+        Assert.assertTrue(table.isOwnedByCurrentThread(1));
+        Assert.assertTrue(table.isOwnedByCurrentThread(1));
+        Assert.assertTrue(table.isOwnedByCurrentThread(2));
+
+        boolean[] owned = new boolean[1];
+        Thread thread = new Thread(() -> owned[0] = table.isOwnedByCurrentThread(1));
+        thread.start();
+        thread.join();
+        Assert.assertFalse(owned[0]);
+        Assert.assertFalse(table.isOwnedByCurrentThread(1));
+        Assert.assertTrue(table.isOwnedByCurrentThread(2));
+    }
+
+    @Test
+    public void recyclesSlotsWhenFull() throws InterruptedException {
+        OwnershipTable table = new OwnershipTable(0);
+        int numOfObjects = 64 * 16 * 4;
+        for (int id = 1; id <= numOfObjects; id++) {
+            Assert.assertTrue(table.isOwnedByCurrentThread(id));
+        }
+        Assert.assertFalse(table.isOwnedByCurrentThread(0));
+
+        /* the objects still in the table are shared, the others are owned again */
+        int[] owned = new int[1];
+        Thread thread = new Thread(() -> {
+            for (int id = 1; id <= numOfObjects; id++) {
+                if (table.isOwnedByCurrentThread(id)) {
+                    owned[0]++;
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertTrue(owned[0] > 0 && owned[0] < numOfObjects);
+        Assert.assertTrue(table.isOwnedByCurrentThread(numOfObjects + 1));
+    }
+}
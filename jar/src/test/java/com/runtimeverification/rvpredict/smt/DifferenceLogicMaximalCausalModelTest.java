@@ -0,0 +1,14 @@
+package com.runtimeverification.rvpredict.smt;
+
+import com.runtimeverification.rvpredict.config.Configuration;
+
+/**
+ * Runs the scenarios of {@link MaximalCausalModelTest} with the built-in difference logic
+ * solver instead of Z3.
+ */
+public class DifferenceLogicMaximalCausalModelTest extends MaximalCausalModelTest {
+    @Override
+    protected RaceSolver createRaceSolver(Configuration configuration) {
+        return new DifferenceLogicRaceSolver(configuration);
+    }
+}
@@ -0,0 +1,121 @@
+package com.runtimeverification.rvpredict.smt;
+
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+import com.runtimeverification.rvpredict.smt.formula.ConcretePhiVariable;
+import com.runtimeverification.rvpredict.smt.formula.FormulaTerm;
+import com.runtimeverification.rvpredict.smt.formula.IntConstant;
+import com.runtimeverification.rvpredict.smt.formula.InterruptedThreadVariable;
+import com.runtimeverification.rvpredict.smt.formula.OrderVariable;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Map;
+
+import static com.runtimeverification.rvpredict.smt.formula.FormulaTerm.BOOL_EQUAL;
+import static com.runtimeverification.rvpredict.smt.formula.FormulaTerm.INT_EQUAL;
+import static com.runtimeverification.rvpredict.smt.formula.FormulaTerm.LESS_THAN;
+import static com.runtimeverification.rvpredict.smt.formula.FormulaTerm.OR;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DifferenceLogicSolverTest {
+    private static final long TIMEOUT_NANOS = 10_000_000_000L;
+    private static final int SIGNAL_TTID = 5;
+    private static final int THREAD_TTID = 2;
+
+    @Mock private ReadonlyEventInterface mockEvent1;
+    @Mock private ReadonlyEventInterface mockEvent2;
+    @Mock private ReadonlyEventInterface mockEvent3;
+    @Mock private ReadonlyEventInterface mockEvent4;
+
+    private OrderVariable o1;
+    private OrderVariable o2;
+    private OrderVariable o3;
+    private OrderVariable o4;
+
+    @Before
+    public void setUp() {
+        when(mockEvent1.getEventId()).thenReturn(1L);
+        when(mockEvent2.getEventId()).thenReturn(2L);
+        when(mockEvent3.getEventId()).thenReturn(3L);
+        when(mockEvent4.getEventId()).thenReturn(4L);
+        o1 = OrderVariable.get(mockEvent1);
+        o2 = OrderVariable.get(mockEvent2);
+        o3 = OrderVariable.get(mockEvent3);
+        o4 = OrderVariable.get(mockEvent4);
+    }
+
+    @Test
+    public void modelSatisfiesOrdering() {
+        DifferenceLogicSolver solver = new DifferenceLogicSolver();
+        solver.assertFormula(LESS_THAN(o1, o2));
+        solver.assertFormula(LESS_THAN(o2, o3));
+        solver.assertFormula(INT_EQUAL(o3, o4));
+        Assert.assertEquals(DifferenceLogicSolver.Result.SATISFIABLE, solver.check(TIMEOUT_NANOS));
+        Map<String, Long> model = solver.getModel();
+        Assert.assertTrue(model.get("o1") < model.get("o2"));
+        Assert.assertTrue(model.get("o2") < model.get("o3"));
+        Assert.assertEquals(model.get("o3"), model.get("o4"));
+    }
+
+    @Test
+    public void cycleIsUnsatisfiable() {
+        DifferenceLogicSolver solver = new DifferenceLogicSolver();
+        solver.assertFormula(LESS_THAN(o1, o2));
+        solver.assertFormula(LESS_THAN(o2, o3));
+        solver.assertFormula(LESS_THAN(o3, o1));
+        Assert.assertEquals(DifferenceLogicSolver.Result.UNSATISFIABLE, solver.check(TIMEOUT_NANOS));
+    }
+
+    @Test
+    public void constantsAreValuesOfTheModel() {
+        InterruptedThreadVariable interruptedThread = new InterruptedThreadVariable(SIGNAL_TTID);
+        DifferenceLogicSolver solver = new DifferenceLogicSolver();
+        solver.assertFormula(INT_EQUAL(interruptedThread, new IntConstant(THREAD_TTID)));
+        Assert.assertEquals(DifferenceLogicSolver.Result.SATISFIABLE, solver.check(TIMEOUT_NANOS));
+        Assert.assertEquals(THREAD_TTID, solver.getModel().get("citv" + SIGNAL_TTID).longValue());
+
+        solver.assertFormula(LESS_THAN(interruptedThread, new IntConstant(THREAD_TTID)));
+        Assert.assertEquals(DifferenceLogicSolver.Result.UNSATISFIABLE, solver.check(TIMEOUT_NANOS));
+    }
+
+    @Test
+    public void choosesTheDisjunctsWhichDoNotCloseACycle() {
+        /* two lock sections [o1, o2] and [o3, o4] which cannot interleave */
+        DifferenceLogicSolver solver = new DifferenceLogicSolver();
+        solver.assertFormula(LESS_THAN(o1, o2));
+        solver.assertFormula(LESS_THAN(o3, o4));
+        solver.assertFormula(OR(LESS_THAN(o2, o3), LESS_THAN(o4, o1)));
+        solver.assertFormula(LESS_THAN(o3, o2));
+        Assert.assertEquals(DifferenceLogicSolver.Result.SATISFIABLE, solver.check(TIMEOUT_NANOS));
+        Map<String, Long> model = solver.getModel();
+        Assert.assertTrue(model.get("o4") < model.get("o1"));
+    }
+
+    @Test
+    public void assumptionsOnlyHoldForOneCheck() {
+        DifferenceLogicSolver solver = new DifferenceLogicSolver();
+        solver.assertFormula(OR(LESS_THAN(o1, o2), LESS_THAN(o3, o4)));
+        int race = solver.literal(FormulaTerm.AND(INT_EQUAL(o1, o2), INT_EQUAL(o3, o4)));
+        int order = solver.literal(LESS_THAN(o2, o3));
+        Assert.assertEquals(DifferenceLogicSolver.Result.UNSATISFIABLE, solver.check(TIMEOUT_NANOS, race));
+        Assert.assertEquals(DifferenceLogicSolver.Result.SATISFIABLE, solver.check(TIMEOUT_NANOS, order));
+        Assert.assertTrue(solver.getModel().get("o2") < solver.getModel().get("o3"));
+        Assert.assertEquals(DifferenceLogicSolver.Result.SATISFIABLE, solver.check(TIMEOUT_NANOS));
+    }
+
+    @Test
+    public void booleanVariablesFollowTheirDefinition() {
+        ConcretePhiVariable phi = ConcretePhiVariable.get(mockEvent1);
+        DifferenceLogicSolver solver = new DifferenceLogicSolver();
+        solver.assertFormula(BOOL_EQUAL(phi, LESS_THAN(o1, o2)));
+        solver.assertFormula(LESS_THAN(o2, o1));
+        Assert.assertEquals(DifferenceLogicSolver.Result.SATISFIABLE, solver.check(TIMEOUT_NANOS));
+        Assert.assertEquals(DifferenceLogicSolver.Result.UNSATISFIABLE,
+                solver.check(TIMEOUT_NANOS, solver.literal(phi)));
+    }
+}
@@ -2421,6 +2421,9 @@ public class MaximalCausalModelTest {
         return races.size() > 0;
     }
 
+    protected RaceSolver createRaceSolver(Configuration configuration) {
+        return SingleThreadedRaceSolver.createRaceSolver(configuration);
+    }
 
     private Map<String, Race> findRaces(
             List<List<RawTrace>> rawTracesList,
@@ -2429,7 +2432,7 @@ public class MaximalCausalModelTest {
             TraceUtils tu,
             boolean detectInterruptedThreadRace,
             int maxSignalDepth) {
-        try (RaceSolver raceSolver = SingleThreadedRaceSolver.createRaceSolver(mockConfiguration)) {
+        try (RaceSolver raceSolver = createRaceSolver(mockConfiguration)) {
             mockConfiguration.windowSize = WINDOW_SIZE;
             TraceState traceState = new TraceState(mockConfiguration, mockMetadata);
             ThreadInfos threadInfos = traceState.getThreadInfos();
@@ -0,0 +1,156 @@
+package com.runtimeverification.rvpredict.smt;
+
+import com.runtimeverification.rvpredict.log.Event;
+import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TransitiveClosureTest {
+    @Test
+    public void relatesGroupsTransitively() {
+        ReadonlyEventInterface e1 = event(1);
+        ReadonlyEventInterface e2 = event(2);
+        ReadonlyEventInterface e3 = event(3);
+        ReadonlyEventInterface e4 = event(4);
+        ReadonlyEventInterface e5 = event(5);
+
+        TransitiveClosure.Builder builder = TransitiveClosure.builder(5);
+        builder.createNewGroup(e1);
+        builder.addToGroup(e2, e1);
+        builder.createNewGroup(e3);
+        builder.createNewGroup(e4);
+        builder.createNewGroup(e5);
+        builder.addRelation(e2, e3);
+        builder.addRelation(e3, e4);
+        TransitiveClosure closure = builder.build();
+
+        Assert.assertTrue(closure.inRelation(e1, e3));
+        Assert.assertTrue(closure.inRelation(e2, e4));
+        Assert.assertTrue(closure.inRelation(e1, e4));
+        Assert.assertFalse(closure.inRelation(e4, e1));
+        Assert.assertFalse(closure.inRelation(e1, e2));
+        Assert.assertFalse(closure.inRelation(e3, e3));
+        Assert.assertFalse(closure.inRelation(e1, e5));
+        Assert.assertFalse(closure.inRelation(e5, e1));
+    }
+
+    @Test
+    public void handlesCycles() {
+        ReadonlyEventInterface e1 = event(1);
+        ReadonlyEventInterface e2 = event(2);
+        ReadonlyEventInterface e3 = event(3);
+
+        TransitiveClosure.Builder builder = TransitiveClosure.builder(3);
+        builder.createNewGroup(e1);
+        builder.createNewGroup(e2);
+        builder.createNewGroup(e3);
+        builder.addRelation(e1, e2);
+        builder.addRelation(e2, e1);
+        builder.addRelation(e2, e3);
+        TransitiveClosure closure = builder.build();
+
+        Assert.assertTrue(closure.inRelation(e1, e1));
+        Assert.assertTrue(closure.inRelation(e2, e1));
+        Assert.assertTrue(closure.inRelation(e1, e3));
+        Assert.assertFalse(closure.inRelation(e3, e3));
+        Assert.assertFalse(closure.inRelation(e3, e1));
+    }
+
+    @Test
+    public void matchesFloydWarshallOnRandomGraphs() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            int groupCount = 1 + random.nextInt(150);
+            ReadonlyEventInterface[] events = new ReadonlyEventInterface[groupCount];
+            TransitiveClosure.Builder builder = TransitiveClosure.builder(groupCount);
+            for (int i = 0; i < groupCount; i++) {
+                events[i] = event(1000L * round + 7L * i);
+                builder.createNewGroup(events[i]);
+            }
+            boolean acyclic = round % 2 == 0;
+            boolean[][] expected = new boolean[groupCount][groupCount];
+            for (int i = 0; i < 2 * groupCount; i++) {
+                int x = random.nextInt(groupCount);
+                int y = random.nextInt(groupCount);
+                if (acyclic && x >= y) {
+                    continue;
+                }
+                builder.addRelation(events[x], events[y]);
+                expected[x][y] = true;
+            }
+            for (int k = 0; k < groupCount; k++) {
+                for (int x = 0; x < groupCount; x++) {
+                    for (int y = 0; y < groupCount; y++) {
+                        expected[x][y] = expected[x][y] || expected[x][k] && expected[k][y];
+                    }
+                }
+            }
+
+            TransitiveClosure closure = builder.build();
+            for (int x = 0; x < groupCount; x++) {
+                for (int y = 0; y < groupCount; y++) {
+                    Assert.assertEquals(expected[x][y], closure.inRelation(events[x], events[y]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesFloydWarshallOnThreadChains() {
+        Random random = new Random(7);
+        for (int round = 0; round < 10; round++) {
+            int threadCount = 1 + random.nextInt(8);
+            int groupCount = threadCount + random.nextInt(300);
+            ReadonlyEventInterface[] events = new ReadonlyEventInterface[groupCount];
+            int[] lastGroupOfThread = new int[threadCount];
+            Arrays.fill(lastGroupOfThread, -1);
+            TransitiveClosure.Builder builder = TransitiveClosure.builder(groupCount);
+            boolean[][] expected = new boolean[groupCount][groupCount];
+            for (int i = 0; i < groupCount; i++) {
+                events[i] = event(1000L * round + 3L * i);
+                builder.createNewGroup(events[i]);
+                int thread = random.nextInt(threadCount);
+                int previous = lastGroupOfThread[thread];
+                if (previous != -1) {
+                    builder.addRelation(events[previous], events[i]);
+                    expected[previous][i] = true;
+                }
+                int other = lastGroupOfThread[random.nextInt(threadCount)];
+                if (other != -1 && random.nextBoolean()) {
+                    builder.addRelation(events[other], events[i]);
+                    expected[other][i] = true;
+                }
+                lastGroupOfThread[thread] = i;
+            }
+            for (int k = 0; k < groupCount; k++) {
+                for (int x = 0; x < groupCount; x++) {
+                    for (int y = 0; y < groupCount; y++) {
+                        expected[x][y] = expected[x][y] || expected[x][k] && expected[k][y];
+                    }
+                }
+            }
+
+            TransitiveClosure closure = builder.build();
+            for (int x = 0; x < groupCount; x++) {
+                for (int y = 0; y < groupCount; y++) {
+                    Assert.assertEquals(expected[x][y], closure.inRelation(events[x], events[y]));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEventsWithoutGroup() {
+        TransitiveClosure.Builder builder = TransitiveClosure.builder(1);
+        builder.createNewGroup(event(1));
+        builder.build().inRelation(event(1), event(2));
+    }
+
+    private static ReadonlyEventInterface event(long eventId) {
+        return new Event(eventId, 1, 0, 0, 0, EventType.READ);
+    }
+}
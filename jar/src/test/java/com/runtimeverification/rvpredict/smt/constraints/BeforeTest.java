@@ -29,4 +29,14 @@ public class BeforeTest {
         Assert.assertFalse(constraint.evaluate(mockVariableSource("o1", "10", "o2", "5")));
         Assert.assertFalse(constraint.evaluate(mockVariableSource("o1", "10", "o2", "10")));
     }
+
+    @Test
+    public void sharesTheFormulaOfTheSameEvents() {
+        Assert.assertSame(
+                new Before(mockEvent1, mockEvent2).createSmtFormula(),
+                new Before(mockEvent1, mockEvent2).createSmtFormula());
+        Assert.assertNotSame(
+                new Before(mockEvent1, mockEvent2).createSmtFormula(),
+                new Before(mockEvent2, mockEvent1).createSmtFormula());
+    }
 }
@@ -179,4 +179,34 @@ public class DisjointLocksTest {
                 "o1", "10", "o2", "20", "o3", "30", "o4", "40",
                 "o5", "15", "o6", "35", "o7", "25", "o8", "45")));
     }
+
+    @Test
+    public void alwaysTrueWhenSectionsMustHappenInOrder() {
+        ConstraintSource constraintSource = new DisjointLocks(
+                Collections.singletonList(Arrays.asList(
+                        new LockRegion(mockLock_1_1, mockUnlock_1_1, 1),
+                        new LockRegion(mockLock_1_2, mockUnlock_1_2, 2)
+                )),
+                (t1, t2) -> true,
+                (e1, e2) -> e1 == mockUnlock_1_1 && e2 == mockLock_1_2);
+        ModelConstraint constraint = constraintSource.createConstraint(ConstraintType.SOUND);
+        Assert.assertTrue(constraint.evaluate(ModelConstraintUtils.mockVariableSource()));
+    }
+
+    @Test
+    public void disjointLockSectionsWhichCanInterleave() {
+        ConstraintSource constraintSource = new DisjointLocks(
+                Collections.singletonList(Arrays.asList(
+                        new LockRegion(mockLock_1_1, mockUnlock_1_1, 1),
+                        new LockRegion(mockLock_1_2, mockUnlock_1_2, 2),
+                        new LockRegion(mockLock_2_1, mockUnlock_2_1, 2)
+                )),
+                (t1, t2) -> true,
+                (e1, e2) -> e1 == mockUnlock_1_1 && e2 == mockLock_2_1);
+        ModelConstraint constraint = constraintSource.createConstraint(ConstraintType.SOUND);
+        Assert.assertFalse(constraint.evaluate(ModelConstraintUtils.mockVariableSource(
+                "o1", "10", "o2", "30", "o3", "20", "o4", "40")));
+        Assert.assertTrue(constraint.evaluate(ModelConstraintUtils.mockVariableSource(
+                "o1", "10", "o2", "30", "o3", "1", "o4", "5")));
+    }
 }
@@ -0,0 +1,95 @@
+package com.runtimeverification.rvpredict.trace;
+
+import com.runtimeverification.rvpredict.log.Event;
+import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.log.IEventReader;
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class EventReaderHeapTest {
+    @Test
+    public void emptyWithoutReaders() throws IOException {
+        EventReaderHeap heap = new EventReaderHeap(Collections.emptyList());
+        Assert.assertTrue(heap.isEmpty());
+        Assert.assertNull(heap.peek());
+        Assert.assertNull(heap.next());
+    }
+
+    @Test
+    public void mergesReadersByEventId() throws IOException {
+        EventReaderHeap heap = new EventReaderHeap(Arrays.asList(
+                new ArrayEventReader(1, 4, 5, 9),
+                new ArrayEventReader(2, 3, 8),
+                new ArrayEventReader(6, 7)));
+        Assert.assertEquals(3, heap.size());
+        List<Long> ids = new ArrayList<>();
+        ReadonlyEventInterface event;
+        while ((event = heap.next()) != null) {
+            ids.add(event.getEventId());
+        }
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), ids);
+        Assert.assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void dropsExhaustedReaders() throws IOException {
+        EventReaderHeap heap = new EventReaderHeap(Arrays.asList(
+                new ArrayEventReader(1),
+                new ArrayEventReader(),
+                new ArrayEventReader(2, 3)));
+        Assert.assertEquals(2, heap.size());
+        Assert.assertEquals(1L, heap.next().getEventId());
+        Assert.assertEquals(1, heap.size());
+        Assert.assertEquals(2L, heap.peek().getEventId());
+        Assert.assertEquals(2L, heap.next().getEventId());
+        Assert.assertEquals(3L, heap.next().getEventId());
+        Assert.assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void breaksTiesByReaderOrder() throws IOException {
+        ArrayEventReader first = new ArrayEventReader(5);
+        ArrayEventReader second = new ArrayEventReader(5);
+        EventReaderHeap heap = new EventReaderHeap(Arrays.asList(second, first));
+        Assert.assertEquals(second.events[0], heap.next());
+        Assert.assertEquals(first.events[0], heap.next());
+    }
+
+    private static class ArrayEventReader implements IEventReader {
+        private final Event[] events;
+        private int index;
+
+        private ArrayEventReader(long... eventIds) {
+            events = new Event[eventIds.length];
+            for (int i = 0; i < eventIds.length; i++) {
+                events[i] = new Event(eventIds[i], 1, 0, 0, 0, EventType.READ);
+            }
+        }
+
+        @Override
+        public ReadonlyEventInterface readEvent() throws IOException {
+            index++;
+            if (index >= events.length) {
+                throw new EOFException();
+            }
+            return events[index];
+        }
+
+        @Override
+        public ReadonlyEventInterface lastReadEvent() {
+            return index < events.length ? events[index] : null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.runtimeverification.rvpredict.trace;
+
+import com.runtimeverification.rvpredict.log.Event;
+import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RawWindowPrefetcherTest {
+    @Mock private TraceCache mockTraceCache;
+
+    @Test
+    public void deliversWindowsInOrder() throws Exception {
+        ArrayList<ReadonlyEventInterface> window1 = window(1);
+        ArrayList<ReadonlyEventInterface> window2 = window(2);
+        ArrayList<ReadonlyEventInterface> window3 = window(3);
+        when(mockTraceCache.readRawWindow())
+                .thenReturn(window1).thenReturn(window2).thenReturn(window3).thenReturn(new ArrayList<>());
+
+        try (RawWindowPrefetcher prefetcher = new RawWindowPrefetcher(mockTraceCache, 1)) {
+            Assert.assertSame(window1, prefetcher.take());
+            Assert.assertSame(window2, prefetcher.take());
+            Assert.assertSame(window3, prefetcher.take());
+            Assert.assertTrue(prefetcher.take().isEmpty());
+            Assert.assertTrue(prefetcher.take().isEmpty());
+        }
+    }
+
+    @Test
+    public void rethrowsReadErrors() throws Exception {
+        ArrayList<ReadonlyEventInterface> window1 = window(1);
+        when(mockTraceCache.readRawWindow()).thenReturn(window1).thenThrow(new IOException("broken"));
+
+        try (RawWindowPrefetcher prefetcher = new RawWindowPrefetcher(mockTraceCache, 2)) {
+            Assert.assertSame(window1, prefetcher.take());
+            try {
+                prefetcher.take();
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertEquals("broken", e.getMessage());
+            }
+            Assert.assertTrue(prefetcher.take().isEmpty());
+        }
+    }
+
+    @Test
+    public void rethrowsUncheckedReadErrors() throws Exception {
+        ArrayList<ReadonlyEventInterface> window1 = window(1);
+        when(mockTraceCache.readRawWindow()).thenReturn(window1).thenThrow(new IllegalStateException("corrupt"));
+
+        try (RawWindowPrefetcher prefetcher = new RawWindowPrefetcher(mockTraceCache, 2)) {
+            Assert.assertSame(window1, prefetcher.take());
+            try {
+                prefetcher.take();
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("corrupt", e.getMessage());
+            }
+            Assert.assertTrue(prefetcher.take().isEmpty());
+        }
+    }
+
+    private static ArrayList<ReadonlyEventInterface> window(long eventId) {
+        return new ArrayList<>(Collections.singletonList(new Event(eventId, 1, 0, 0, 0, EventType.READ)));
+    }
+}
@@ -21,6 +21,7 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -501,6 +502,35 @@ public class TraceCacheTest {
         verify(mockTraceState).createAndRegisterThreadInfo(THREAD_ID_2, OptionalInt.of(TTID_1_OTID_1_THREAD.getId()));
     }
 
+    @Test
+    public void mergedEventReaderKeepsEventIds() throws IOException {
+        mockConfiguration.windowSize = 2;
+
+        List<ReadonlyEventInterface> readData1Thread1 = readData(THREAD_ID, NO_SIGNAL);
+        List<ReadonlyEventInterface> readData1Thread2 = readData(THREAD_ID_2, NO_SIGNAL);
+        List<ReadonlyEventInterface> readData2Thread1 = readData(THREAD_ID, NO_SIGNAL);
+        List<ReadonlyEventInterface> readData2Thread2 = readData(THREAD_ID_2, NO_SIGNAL);
+
+        TraceCache traceCache =
+                TraceCache.createForTesting(
+                        mockConfiguration, mockTraceState, mockLockGraph, Arrays.asList(
+                                new ListEventReader(Arrays.asList(readData1Thread1, readData2Thread1)),
+                                new ListEventReader(Arrays.asList(readData1Thread2, readData2Thread2))));
+
+        IEventReader reader = traceCache.mergedEventReader();
+        for (List<ReadonlyEventInterface> events : Arrays.asList(
+                readData1Thread1, readData1Thread2, readData2Thread1, readData2Thread2)) {
+            ReadonlyEventInterface event = reader.readEvent();
+            Assert.assertSame(events.get(0), event);
+            Assert.assertSame(event, reader.lastReadEvent());
+        }
+        try {
+            reader.readEvent();
+            Assert.fail();
+        } catch (EOFException ignored) {
+        }
+    }
+
     private List<ReadonlyEventInterface> endSignal(long threadId, int signalDepth) {
         return Collections.singletonList(
                 new CompactEvent(
@@ -17,7 +17,9 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 
@@ -40,6 +42,7 @@ public class TraceTest {
     private static final long ADDRESS_3 = 302;
     private static final long VALUE_1 = 400;
     private static final long VALUE_2 = 401;
+    private static final long LOCK_1 = 500;
     private static final long SIGNAL_HANDLER_1 = 600;
     private static final long SIGNAL_HANDLER_2 = 601;
     private static final long SIGNAL_HANDLER_3 = 602;
@@ -761,6 +764,83 @@ public class TraceTest {
         Assert.assertTrue(trace.eventsByThreadID().get(3).isEmpty());
     }
 
+    @Test
+    public void detachedTraceKeepsItsWindowStateAfterTheNextWindow() throws InvalidTraceDataException {
+        mockConfiguration.parallel_windows = 2;
+        TraceUtils tu = new TraceUtils(mockContext, THREAD_ID_1, NO_SIGNAL, PC_BASE);
+        TraceState traceState = new TraceState(mockConfiguration, mockMetadata);
+
+        Trace firstWindow = createTrace(
+                traceState,
+                Arrays.asList(
+                        tu.createRawTrace(
+                                tu.threadStart(THREAD_ID_2),
+                                tu.nonAtomicStore(ADDRESS_1, VALUE_1)),
+                        tu.createRawTrace(
+                                tu.switchThread(THREAD_ID_2, NO_SIGNAL),
+                                tu.nonAtomicStore(ADDRESS_1, VALUE_2))),
+                TTID_1_OTID_1_THREAD, TTID_2_OTID_2_THREAD);
+        Map<Integer, List<ReadonlyEventInterface>> firstWindowEvents =
+                new HashMap<>(firstWindow.eventsByThreadID());
+
+        Trace secondWindow = createTrace(
+                traceState,
+                Arrays.asList(
+                        tu.createRawTrace(
+                                false,
+                                tu.switchThread(THREAD_ID_2, NO_SIGNAL),
+                                tu.nonAtomicLoad(ADDRESS_1, VALUE_1)),
+                        tu.createRawTrace(
+                                false,
+                                tu.switchThread(THREAD_ID_1, NO_SIGNAL),
+                                tu.threadJoin(THREAD_ID_2),
+                                tu.nonAtomicLoad(ADDRESS_1, VALUE_2))));
+
+        Assert.assertTrue(firstWindow.getThreadStartsInTheCurrentWindow(2));
+        Assert.assertFalse(firstWindow.getSignalEndsInTheCurrentWindow(2));
+        Assert.assertEquals(2, firstWindowEvents.size());
+        Assert.assertEquals(firstWindowEvents, firstWindow.eventsByThreadID());
+
+        Assert.assertFalse(secondWindow.getThreadStartsInTheCurrentWindow(2));
+        Assert.assertTrue(secondWindow.getSignalEndsInTheCurrentWindow(2));
+        Assert.assertNotEquals(firstWindowEvents, secondWindow.eventsByThreadID());
+    }
+
+    @Test
+    public void testComputesLockSetsOfMemoryAccesses() throws InvalidTraceDataException {
+        TraceUtils tu = new TraceUtils(mockContext, THREAD_ID_1, NO_SIGNAL, PC_BASE);
+
+        List<ReadonlyEventInterface> e1;
+        List<ReadonlyEventInterface> e2;
+        List<ReadonlyEventInterface> e3;
+        List<ReadonlyEventInterface> e4;
+        List<RawTrace> rawTraces = Arrays.asList(
+                tu.createRawTrace(
+                        tu.lock(LOCK_1),
+                        e1 = tu.nonAtomicStore(ADDRESS_1, VALUE_1),
+                        tu.unlock(LOCK_1),
+                        e2 = tu.nonAtomicStore(ADDRESS_1, VALUE_2)),
+                tu.createRawTrace(
+                        tu.switchThread(THREAD_ID_2, NO_SIGNAL),
+                        tu.lock(LOCK_1),
+                        e3 = tu.nonAtomicStore(ADDRESS_1, VALUE_1),
+                        tu.unlock(LOCK_1),
+                        e4 = tu.nonAtomicLoad(ADDRESS_1, VALUE_1)));
+
+        Trace trace = createTrace(rawTraces, TTID_1_OTID_1_THREAD, TTID_2_OTID_2_THREAD);
+
+        LockSet lockSet1 = trace.getLockSet(extractSingleEvent(e1));
+        LockSet lockSet2 = trace.getLockSet(extractSingleEvent(e2));
+        LockSet lockSet3 = trace.getLockSet(extractSingleEvent(e3));
+        LockSet lockSet4 = trace.getLockSet(extractSingleEvent(e4));
+        Assert.assertFalse(lockSet1.isEmpty());
+        Assert.assertTrue(lockSet2.isEmpty());
+        Assert.assertEquals(lockSet1, lockSet3);
+        Assert.assertTrue(lockSet1.hasCommonLock(lockSet3));
+        Assert.assertFalse(lockSet1.hasCommonLock(lockSet4));
+        Assert.assertFalse(lockSet2.hasCommonLock(lockSet3));
+    }
+
     private Trace createTrace(List<RawTrace> rawTraces, ThreadInfo... threadInfos) {
         return createTrace(new TraceState(mockConfiguration, mockMetadata), rawTraces, threadInfos);
     }
@@ -0,0 +1,130 @@
+package performance;
+
+import com.runtimeverification.rvpredict.log.Event;
+import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.log.IEventReader;
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+import com.runtimeverification.rvpredict.metadata.Metadata;
+import com.runtimeverification.rvpredict.order.JavaHappensBefore;
+import com.runtimeverification.rvpredict.order.ReadonlyOrderedEvent;
+import com.runtimeverification.rvpredict.order.VectorClock;
+import com.runtimeverification.rvpredict.order.VectorClockTraceReader;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the throughput of the {@code --happens-before} ordering: events are
+ * timestamped by {@link JavaHappensBefore} through a {@link VectorClockTraceReader}
+ * and each access is checked against the last write to its address, as
+ * {@code OrderedRaceDetector} does.
+ * <p>
+ * The synthetic trace spreads accesses to a few thousand addresses over the
+ * given number of threads, with some of them protected by one of a few locks.
+ * <p>
+ * Not a unit test; run it manually with
+ * {@code java performance.HappensBeforeBenchmark [threads] [events]}.
+ */
+public class HappensBeforeBenchmark {
+    private static final int ADDRESS_COUNT = 4096;
+    private static final int LOCK_COUNT = 8;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int eventCount = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        ReadonlyEventInterface[] events = generateEvents(threadCount, eventCount);
+
+        double best = Double.MAX_VALUE;
+        long unordered = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            unordered = run(events);
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed / 1e9);
+            }
+        }
+        System.out.printf("%d threads, %d events: %.2f s, %.2f M events/s, %d unordered pairs%n",
+                threadCount, events.length, best, events.length / best / 1e6, unordered);
+    }
+
+    private static ReadonlyEventInterface[] generateEvents(int threadCount, int eventCount) {
+        Random random = new Random(42);
+        ReadonlyEventInterface[] events = new ReadonlyEventInterface[eventCount];
+        int[] heldLock = new int[threadCount + 1];
+        for (int i = 0; i < eventCount; i++) {
+            int tid = 1 + random.nextInt(threadCount);
+            EventType type;
+            long address;
+            if (heldLock[tid] != 0 && random.nextInt(4) == 0) {
+                type = EventType.WRITE_UNLOCK;
+                address = heldLock[tid];
+                heldLock[tid] = 0;
+            } else if (heldLock[tid] == 0 && random.nextInt(16) == 0) {
+                type = EventType.WRITE_LOCK;
+                address = 1 + random.nextInt(LOCK_COUNT);
+                heldLock[tid] = (int) address;
+            } else {
+                type = random.nextInt(4) == 0 ? EventType.WRITE : EventType.READ;
+                address = 1 + random.nextInt(ADDRESS_COUNT);
+            }
+            events[i] = new Event(i, tid, 0, address, 0, type);
+        }
+        return events;
+    }
+
+    private static long run(ReadonlyEventInterface[] events) throws IOException {
+        Map<Long, VectorClock> lastWrites = new HashMap<>();
+        long unordered = 0;
+        try (VectorClockTraceReader reader = new VectorClockTraceReader(
+                new ArrayEventReader(events), new JavaHappensBefore(Metadata.singleton()))) {
+            while (true) {
+                ReadonlyOrderedEvent orderedEvent = reader.readEvent();
+                ReadonlyEventInterface event = orderedEvent.getEvent();
+                if (!event.isReadOrWrite()) {
+                    continue;
+                }
+                VectorClock lastWrite = lastWrites.get(event.getDataInternalIdentifier());
+                if (lastWrite != null && !lastWrite.happensBefore(orderedEvent.getVectorClock())) {
+                    unordered++;
+                }
+                if (event.isWrite()) {
+                    lastWrites.put(event.getDataInternalIdentifier(), orderedEvent.getVectorClock());
+                }
+            }
+        } catch (EOFException ignored) {
+        }
+        return unordered;
+    }
+
+    private static class ArrayEventReader implements IEventReader {
+        private final ReadonlyEventInterface[] events;
+        private int next;
+
+        private ArrayEventReader(ReadonlyEventInterface[] events) {
+            this.events = events;
+        }
+
+        @Override
+        public ReadonlyEventInterface readEvent() throws IOException {
+            if (next == events.length) {
+                throw new EOFException();
+            }
+            return events[next++];
+        }
+
+        @Override
+        public ReadonlyEventInterface lastReadEvent() {
+            return events[next - 1];
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
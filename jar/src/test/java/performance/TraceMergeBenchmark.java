@@ -0,0 +1,154 @@
+package performance;
+
+import com.runtimeverification.rvpredict.log.Event;
+import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.log.IEventReader;
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+import com.runtimeverification.rvpredict.trace.EventReaderHeap;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the window-read throughput of the heap-based merge used by
+ * {@code TraceCache} against the linear scan over all readers that it replaced.
+ * <p>
+ * Not a unit test; run it manually with
+ * {@code java performance.TraceMergeBenchmark [events] [window]}.
+ */
+public class TraceMergeBenchmark {
+    private static final int[] READER_COUNTS = {8, 64, 512};
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int windowSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        System.out.printf("%8s %16s %16s %8s%n", "readers", "scan (ev/ms)", "heap (ev/ms)", "speedup");
+        for (int readerCount : READER_COUNTS) {
+            Event[][] traces = generateTraces(readerCount, eventCount);
+            double scan = measure(traces, windowSize, false);
+            double heap = measure(traces, windowSize, true);
+            System.out.printf("%8d %16.0f %16.0f %7.1fx%n", readerCount, scan, heap, heap / scan);
+        }
+    }
+
+    /**
+     * Distributes consecutive global ids over the given number of threads,
+     * picking the owning thread of each id at random.
+     */
+    private static Event[][] generateTraces(int readerCount, int eventCount) {
+        Random random = new Random(readerCount);
+        List<List<Event>> traces = new ArrayList<>();
+        for (int i = 0; i < readerCount; i++) {
+            traces.add(new ArrayList<>());
+        }
+        for (long gid = 0; gid < eventCount; gid++) {
+            int tid = random.nextInt(readerCount);
+            traces.get(tid).add(new Event(gid, tid, 0, 0, 0, EventType.READ));
+        }
+        Event[][] result = new Event[readerCount][];
+        for (int i = 0; i < readerCount; i++) {
+            result[i] = traces.get(i).toArray(new Event[0]);
+        }
+        return result;
+    }
+
+    private static double measure(Event[][] traces, int windowSize, boolean useHeap) throws IOException {
+        double best = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            List<IEventReader> readers = new ArrayList<>();
+            for (Event[] trace : traces) {
+                readers.add(new ArrayEventReader(trace));
+            }
+            long start = System.nanoTime();
+            long count = useHeap ? mergeWithHeap(readers, windowSize) : mergeWithScan(readers, windowSize);
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.max(best, count * 1e6 / elapsed);
+            }
+        }
+        return best;
+    }
+
+    private static long mergeWithHeap(List<IEventReader> readers, int windowSize) throws IOException {
+        EventReaderHeap heap = new EventReaderHeap(readers);
+        List<ReadonlyEventInterface> window = new ArrayList<>(windowSize);
+        long count = 0;
+        while (!heap.isEmpty()) {
+            window.clear();
+            for (int i = 0; i < windowSize; i++) {
+                ReadonlyEventInterface event = heap.next();
+                if (event == null) {
+                    break;
+                }
+                window.add(event);
+            }
+            count += window.size();
+        }
+        return count;
+    }
+
+    /**
+     * The merge loop formerly used by {@code TraceCache.readEventWindow}.
+     */
+    private static long mergeWithScan(List<IEventReader> readers, int windowSize) throws IOException {
+        List<ReadonlyEventInterface> window = new ArrayList<>(windowSize);
+        long count = 0;
+        while (!readers.isEmpty()) {
+            window.clear();
+            for (int i = 0; i < windowSize; i++) {
+                long leastGID = Long.MAX_VALUE;
+                IEventReader leastReader = null;
+                for (IEventReader reader : readers) {
+                    ReadonlyEventInterface event = reader.lastReadEvent();
+                    if (event != null && event.getEventId() < leastGID) {
+                        leastReader = reader;
+                        leastGID = event.getEventId();
+                    }
+                }
+                if (leastReader == null) {
+                    break;
+                }
+                window.add(leastReader.lastReadEvent());
+                try {
+                    leastReader.readEvent();
+                } catch (EOFException e) {
+                    readers.remove(leastReader);
+                }
+            }
+            count += window.size();
+        }
+        return count;
+    }
+
+    private static class ArrayEventReader implements IEventReader {
+        private final Event[] events;
+        private int index;
+
+        private ArrayEventReader(Event[] events) {
+            this.events = events;
+        }
+
+        @Override
+        public ReadonlyEventInterface readEvent() throws IOException {
+            index++;
+            if (index >= events.length) {
+                throw new EOFException();
+            }
+            return events[index];
+        }
+
+        @Override
+        public ReadonlyEventInterface lastReadEvent() {
+            return index < events.length ? events[index] : null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package performance;
+
+import com.runtimeverification.rvpredict.log.Event;
+import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+import com.runtimeverification.rvpredict.smt.TransitiveClosure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the must-happen-before closure of {@link TransitiveClosure} against
+ * the Floyd-Warshall closure over a {@code boolean[][]} matrix that it replaced,
+ * on synthetic windows shaped like the ones built by
+ * {@code IntraThreadOrdering} and {@code InterThreadOrdering}. Each
+ * measurement builds the closure and then runs a million random lookups.
+ * <p>
+ * The old implementation is cubic in the number of groups, so it is skipped
+ * for windows with more than {@code maxLegacyGroups} groups.
+ * <p>
+ * Not a unit test; run it manually with
+ * {@code java performance.TransitiveClosureBenchmark [eventsPerGroup] [maxLegacyGroups]}.
+ */
+public class TransitiveClosureBenchmark {
+    private static final int[] WINDOW_SIZES = {1_000, 10_000, 100_000};
+    private static final int THREAD_COUNT = 16;
+    private static final int LOOKUPS = 1_000_000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int eventsPerGroup = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int maxLegacyGroups = args.length > 1 ? Integer.parseInt(args[1]) : 1500;
+        System.out.printf("%8s %8s %16s %16s %8s%n",
+                "events", "groups", "old (ms)", "new (ms)", "speedup");
+        for (int windowSize : WINDOW_SIZES) {
+            Window window = generateWindow(windowSize, eventsPerGroup);
+            double newTime = measure(window, false);
+            if (window.groupCount <= maxLegacyGroups) {
+                double oldTime = measure(window, true);
+                System.out.printf("%8d %8d %16.1f %16.1f %7.1fx%n",
+                        windowSize, window.groupCount, oldTime, newTime, oldTime / newTime);
+            } else {
+                System.out.printf("%8d %8d %16s %16.1f %8s%n",
+                        windowSize, window.groupCount, "skipped", newTime, "-");
+            }
+        }
+    }
+
+    private static class Window {
+        private final List<ReadonlyEventInterface> groupStarts = new ArrayList<>();
+        private final List<ReadonlyEventInterface[]> groupMembers = new ArrayList<>();
+        private final List<ReadonlyEventInterface[]> relations = new ArrayList<>();
+        private final List<ReadonlyEventInterface> events = new ArrayList<>();
+        private int groupCount;
+    }
+
+    /**
+     * Spreads the events of a window over a few threads and cuts each thread in
+     * groups, as if by start and join events. Each group is ordered after the
+     * previous group of its thread and after a group of another thread, and all
+     * relations follow the event order, so the contracted graph is acyclic.
+     */
+    private static Window generateWindow(int windowSize, int eventsPerGroup) {
+        Random random = new Random(windowSize);
+        Window window = new Window();
+        ReadonlyEventInterface[] lastEventOfThread = new ReadonlyEventInterface[THREAD_COUNT];
+        for (long gid = 0; gid < windowSize; gid++) {
+            int tid = random.nextInt(THREAD_COUNT);
+            ReadonlyEventInterface event = new Event(gid, tid, 0, 0, 0, EventType.READ);
+            window.events.add(event);
+            ReadonlyEventInterface previous = lastEventOfThread[tid];
+            if (previous == null || random.nextInt(eventsPerGroup) == 0) {
+                window.groupStarts.add(event);
+                window.groupCount++;
+                if (previous != null) {
+                    window.relations.add(new ReadonlyEventInterface[]{previous, event});
+                }
+                ReadonlyEventInterface other = lastEventOfThread[random.nextInt(THREAD_COUNT)];
+                if (other != null && other != previous) {
+                    window.relations.add(new ReadonlyEventInterface[]{other, event});
+                }
+            } else {
+                window.groupMembers.add(new ReadonlyEventInterface[]{event, previous});
+            }
+            lastEventOfThread[tid] = event;
+        }
+        return window;
+    }
+
+    private static double measure(Window window, boolean legacy) {
+        Random random = new Random(0);
+        int[] lookups = new int[2 * LOOKUPS];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = random.nextInt(window.events.size());
+        }
+        double best = Double.MAX_VALUE;
+        long checksum = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            if (legacy) {
+                LegacyTransitiveClosure closure = buildLegacy(window);
+                for (int i = 0; i < lookups.length; i += 2) {
+                    if (closure.inRelation(window.events.get(lookups[i]), window.events.get(lookups[i + 1]))) {
+                        checksum++;
+                    }
+                }
+            } else {
+                TransitiveClosure.Builder builder = TransitiveClosure.builder(window.events.size());
+                fill(window, builder::createNewGroup, builder::addToGroup, builder::addRelation);
+                TransitiveClosure closure = builder.build();
+                for (int i = 0; i < lookups.length; i += 2) {
+                    if (closure.inRelation(window.events.get(lookups[i]), window.events.get(lookups[i + 1]))) {
+                        checksum++;
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed / 1e6);
+            }
+        }
+        if (checksum == 42) {
+            System.out.println();
+        }
+        return best;
+    }
+
+    private interface GroupConsumer {
+        void accept(ReadonlyEventInterface e);
+    }
+
+    private interface PairConsumer {
+        void accept(ReadonlyEventInterface e1, ReadonlyEventInterface e2);
+    }
+
+    private static void fill(
+            Window window, GroupConsumer createNewGroup, PairConsumer addToGroup, PairConsumer addRelation) {
+        window.groupStarts.forEach(createNewGroup::accept);
+        window.groupMembers.forEach(p -> addToGroup.accept(p[0], p[1]));
+        window.relations.forEach(p -> addRelation.accept(p[0], p[1]));
+    }
+
+    private static LegacyTransitiveClosure buildLegacy(Window window) {
+        Map<ReadonlyEventInterface, Integer> eventToGroupId = new HashMap<>(window.events.size());
+        List<ReadonlyEventInterface[]> relations = new ArrayList<>();
+        int[] groupCount = {0};
+        fill(window,
+                e -> eventToGroupId.put(e, groupCount[0]++),
+                (y, x) -> eventToGroupId.put(y, eventToGroupId.get(x)),
+                (x, y) -> relations.add(new ReadonlyEventInterface[]{x, y}));
+        return new LegacyTransitiveClosure(eventToGroupId, relations, groupCount[0]);
+    }
+
+    /**
+     * The closure formerly built by {@code TransitiveClosure.Builder.build}.
+     */
+    private static class LegacyTransitiveClosure {
+        private final Map<ReadonlyEventInterface, Integer> eventToGroupId;
+        private final boolean[][] relation;
+
+        private LegacyTransitiveClosure(
+                Map<ReadonlyEventInterface, Integer> eventToGroupId,
+                List<ReadonlyEventInterface[]> relations,
+                int numOfGroups) {
+            this.eventToGroupId = eventToGroupId;
+            boolean[][] f = new boolean[numOfGroups][numOfGroups];
+            relations.forEach(p -> f[eventToGroupId.get(p[0])][eventToGroupId.get(p[1])] = true);
+            for (int k = 0; k < numOfGroups; k++) {
+                for (int x = 0; x < numOfGroups; x++) {
+                    for (int y = 0; y < numOfGroups; y++) {
+                        f[x][y] = f[x][y] || f[x][k] && f[k][y];
+                    }
+                }
+            }
+            this.relation = f;
+        }
+
+        private boolean inRelation(ReadonlyEventInterface e1, ReadonlyEventInterface e2) {
+            return relation[eventToGroupId.get(e1)][eventToGroupId.get(e2)];
+        }
+    }
+}
@@ -63,6 +63,7 @@ public class Configuration implements Constants {
     public static final String RV_PREDICT_JAR = Configuration.getBasePath() + SEPARATOR + "rv-predict.jar";
 
     public static final String TRACE_SUFFIX = "trace.bin";
+    public static final String SPILL_SUFFIX = "spill.bin";
     private static final String COMPACT_TRACE_FILE_NAME = "rvpredict.trace";
 
     public static final String METADATA_BIN = "metadata.bin";
@@ -265,7 +266,15 @@ public class Configuration implements Constants {
     }
 
     public boolean isHappensBefore() {
-        return happens_before;
+        return happens_before || fast_track || streaming_happens_before;
+    }
+
+    public boolean isStreamingHappensBefore() {
+        return streaming_happens_before;
+    }
+
+    public boolean isFastTrack() {
+        return fast_track;
     }
 
 
@@ -338,6 +347,46 @@ public class Configuration implements Constants {
     @Parameter(names = opt_only_log, description = "Log execution trace without running prediction", hidden = true, descriptionKey = "1100")
     private boolean only_log = false;
 
+    final static String opt_async_log_writers = "--async-log-writers";
+    @Parameter(names = opt_async_log_writers, description = "Number of background threads compressing and writing the trace files. 0 makes every application thread write its own events.", hidden = true, descriptionKey = "1110")
+    public int async_log_writers = 0;
+
+    final static String opt_async_log_buffer = "--async-log-buffer";
+    @Parameter(names = opt_async_log_buffer, description = "Number of events buffered for each application thread when writing the trace files in the background", hidden = true, descriptionKey = "1120")
+    public int async_log_buffer = 65536;
+
+    final static String opt_async_log_spill = "--async-log-spill";
+    @Parameter(names = opt_async_log_spill, description = "Write the events of a thread uncompressed to a spill file when its buffer is full, instead of waiting for the background writers", hidden = true, descriptionKey = "1130")
+    public boolean async_log_spill = false;
+
+    final static String opt_sync_only_gids = "--sync-only-gids";
+    @Parameter(names = opt_sync_only_gids, description = "Order the logged plain accesses of each thread between its synchronization events instead of taking a global number for each of them. Plain accesses of different threads between the same synchronization events are not ordered as they happened.", hidden = true, descriptionKey = "1140")
+    public boolean sync_only_gids = false;
+
+    final static String opt_unique_object_ids = "--unique-object-ids";
+    @Parameter(names = opt_unique_object_ids, description = "Identify the logged objects by distinct ids instead of their identity hash codes, which unrelated objects may share", hidden = true, descriptionKey = "1150")
+    public boolean unique_object_ids = false;
+
+    final static String opt_sample_accesses = "--sample-accesses";
+    @Parameter(names = opt_sample_accesses, description = "Log the memory accesses of a decreasing fraction of the executions of each method in each thread, down to one in a thousand. Synchronization events are always logged.", hidden = true, descriptionKey = "1160")
+    public boolean sample_accesses = false;
+
+    final static String opt_thread_locality_filter = "--thread-locality-filter";
+    @Parameter(names = opt_thread_locality_filter, description = "Do not log the field accesses which the instrumentation proves local to a thread: the private fields only written while initializing, and the fields of an object accessed by a constructor which does not let it escape. Races caused by publishing objects without synchronization are missed.", hidden = true, descriptionKey = "1170")
+    public boolean thread_locality_filter = false;
+
+    final static String opt_ownership_filter = "--ownership-filter";
+    @Parameter(names = opt_ownership_filter, description = "Do not log the accesses to an object until a second thread accesses it. Races involving the accesses made before are missed.", hidden = true, descriptionKey = "1180")
+    public boolean ownership_filter = false;
+
+    final static String opt_ownership_table_size = "--ownership-table-size";
+    @Parameter(names = opt_ownership_table_size, description = "Number of objects whose owning thread is tracked by " + opt_ownership_filter + "; the accesses to other objects are always logged", hidden = true, descriptionKey = "1190")
+    public int ownership_table_size = 1 << 21;
+
+    final static String opt_transform_cache = "--transform-cache";
+    @Parameter(names = opt_transform_cache, description = "Keep the instrumented classes in the given directory and reuse them in later executions", hidden = true, descriptionKey = "1195")
+    public String transform_cache = null;
+
     public final static String opt_only_predict = "--predict";
     @Parameter(names = opt_only_predict, description = "Run prediction on logs from the given directory", hidden = true, descriptionKey = "1200")
     private String predict_dir = null;
@@ -346,6 +395,14 @@ public class Configuration implements Constants {
     @Parameter(names = opt_happens_before, description = "Run prediction using the Happens Before ordering", hidden = true, descriptionKey = "1250")
     private boolean happens_before = false;
 
+    public final static String opt_fast_track = "--fasttrack";
+    @Parameter(names = opt_fast_track, description = "Run prediction using the Happens Before ordering and FastTrack's epoch-based race detection", hidden = true, descriptionKey = "1260")
+    private boolean fast_track = false;
+
+    public final static String opt_streaming_happens_before = "--streaming-happens-before";
+    @Parameter(names = opt_streaming_happens_before, description = "Run offline prediction using the Happens Before ordering in a single pass over the trace, without building windows. Races are reported without stack traces", hidden = true, descriptionKey = "1270")
+    private boolean streaming_happens_before = false;
+
     public final static String opt_event_profile = "--profile";
     @Parameter(names = opt_event_profile, description = "Output event profiling statistics", hidden = true, descriptionKey = "1300")
     private boolean profile;
@@ -413,11 +470,12 @@ public class Configuration implements Constants {
     @Parameter(names = opt_desired_interrupts_per_signal_and_window, description = "Soft target for the number of interrupts for a signal and window.", descriptionKey = "2500", arity = 1)
     private int desiredInterruptsPerSignalAndWindow = 0;
 
-    /*
+    public static final String SOLVER_Z3 = "z3";
+    public static final String SOLVER_IDL = "idl";
+
     final static String opt_smt_solver = "--solver";
-    @Parameter(names = opt_smt_solver, description = "SMT solver to use. <solver> is one of [z3].", hidden = true, descriptionKey = "2550")
-    public String smt_solver = "z3";
-    */
+    @Parameter(names = opt_smt_solver, description = "SMT solver to use. <solver> is one of [z3, idl]; idl is the built-in difference logic solver.", hidden = true, descriptionKey = "2550")
+    public String smt_solver = SOLVER_Z3;
 
     final static String opt_solver_timeout = "--solver-timeout";
     @Parameter(names = opt_solver_timeout, description = "Solver timeout in seconds", hidden = true, descriptionKey = "2600")
@@ -435,6 +493,30 @@ public class Configuration implements Constants {
     @Parameter(names = opt_parallel_smt, description = "How many parallel SMTs to use. Should always be 1 when analysing doing online Java analysis.", hidden = false, descriptionKey = "2700")
     public int parallel_smt = 1;
 
+    final static String opt_prefetch_threads = "--prefetch-threads";
+    @Parameter(names = opt_prefetch_threads, description = "Number of threads decoding trace files ahead of the analysis. 0 disables prefetching.", hidden = true, descriptionKey = "2710")
+    public int prefetch_threads = 0;
+
+    final static String opt_prefetch_depth = "--prefetch-depth";
+    @Parameter(names = opt_prefetch_depth, description = "Maximum number of events decoded ahead of the analysis for each trace file", hidden = true, descriptionKey = "2720")
+    public int prefetch_depth = 4096;
+
+    final static String opt_pipeline_depth = "--pipeline-depth";
+    @Parameter(names = opt_pipeline_depth, description = "Number of trace windows read ahead of the race analysis on a separate thread. 0 disables pipelining.", hidden = true, descriptionKey = "2730")
+    public int pipeline_depth = 0;
+
+    final static String opt_parallel_windows = "--parallel-windows";
+    @Parameter(names = opt_parallel_windows, description = "How many trace windows to analyze in parallel, each with its own SMT solver. Not available for online Java analysis.", hidden = true, descriptionKey = "2740")
+    public int parallel_windows = 1;
+
+    final static String opt_online_windows_in_flight = "--online-windows-in-flight";
+    @Parameter(names = opt_online_windows_in_flight, description = "Number of closed windows analyzed on a separate thread while the application keeps logging, for online Java analysis. 0 stops the application while each window is analyzed.", hidden = true, descriptionKey = "2750")
+    public int online_windows_in_flight = 0;
+
+    final static String opt_online_drop_windows = "--online-drop-windows";
+    @Parameter(names = opt_online_drop_windows, description = "Skip the race detection on the windows closed while --online-windows-in-flight windows are waiting to be analyzed, instead of stopping the application", hidden = true, descriptionKey = "2760")
+    public boolean online_drop_windows = false;
+
     private final static String opt_max_interrupt_depth = "--max-interrupt-depth";
     @Parameter(
             names = opt_max_interrupt_depth,
@@ -595,6 +677,21 @@ public class Configuration implements Constants {
             prediction = offline ? OFFLINE_PREDICTION : ONLINE_PREDICTION;
         }
 
+        if (streaming_happens_before) {
+            /* the reports of the LLVM traces need the stack traces computed for the windows */
+            if (compact_trace != null) {
+                exclusiveOptionsFailure(opt_streaming_happens_before, opt_compact_trace);
+            }
+            if (llvm_predict != null) {
+                exclusiveOptionsFailure(opt_streaming_happens_before, opt_llvm_predict);
+            }
+        }
+
+        if (!SOLVER_Z3.equals(smt_solver) && !SOLVER_IDL.equals(smt_solver)) {
+            System.err.println("Error: Unknown solver " + smt_solver + " for option " + opt_smt_solver + ".");
+            System.exit(1);
+        }
+
         /* set window size */
         windowSize = Math.max(windowSize, MIN_WINDOW_SIZE);
 
@@ -789,6 +886,10 @@ public class Configuration implements Constants {
         return Paths.get(logDir, id + "_" + TRACE_SUFFIX);
     }
 
+    public Path getSpillFilePath(int id) {
+        return Paths.get(logDir, id + "_" + SPILL_SUFFIX);
+    }
+
     public Path getLLVMMetadataPath(String id) {
         return Paths.get(logDir, id + "_" + METADATA_BIN);
     }
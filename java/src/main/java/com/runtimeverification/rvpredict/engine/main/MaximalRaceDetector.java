@@ -1,48 +1,114 @@
 package com.runtimeverification.rvpredict.engine.main;
 
 import com.runtimeverification.rvpredict.config.Configuration;
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
 import com.runtimeverification.rvpredict.performance.AnalysisLimit;
 import com.runtimeverification.rvpredict.smt.MaximalCausalModel;
 import com.runtimeverification.rvpredict.smt.RaceSolver;
 import com.runtimeverification.rvpredict.trace.Trace;
 import com.runtimeverification.rvpredict.violation.Race;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Detects data races from a given {@link Trace} object.
  *
+ * When created with more than one race solver, the windows are analyzed in parallel, each of them with its own
+ * {@link MaximalCausalModel} and race solver. Their results are merged in window order, so the reports are the
+ * same as when analyzing the windows one by one.
+ *
  * @author YilongL
  */
 public class MaximalRaceDetector implements RaceDetector {
 
     private final Configuration config;
 
-    private final Map<String, Race> sigToRealRace = new HashMap<>();
+    private final Map<String, Race> sigToRealRace = new ConcurrentHashMap<>();
 
     private final List<String> reports = new ArrayList<>();
 
-    private final RaceSolver raceSolver;
+    private final List<RaceSolver> raceSolvers;
+
+    /**
+     * The race solvers which are not used by any window.
+     */
+    private final BlockingQueue<RaceSolver> idleRaceSolvers;
+
+    /**
+     * Runs the window analyses; null when the windows are analyzed on the caller's thread.
+     */
+    private final ExecutorService windowAnalyzers;
+
+    /**
+     * The windows whose results were not merged yet, in window order.
+     */
+    private final Deque<Future<Map<String, Race>>> pendingWindows = new ArrayDeque<>();
 
     /**
      * Takes ownership of the race solver.
      */
     public MaximalRaceDetector(Configuration config, RaceSolver raceSolver) {
+        this(config, Collections.singletonList(raceSolver));
+    }
+
+    /**
+     * Analyzes up to {@code raceSolvers.size()} windows in parallel. The windows must be
+     * produced by a {@link com.runtimeverification.rvpredict.trace.TraceState} with
+     * {@link Configuration#parallel_windows} greater than one, so that a {@link Trace} stays valid
+     * while the next windows are read.
+     *
+     * Takes ownership of the race solvers.
+     */
+    public MaximalRaceDetector(Configuration config, List<RaceSolver> raceSolvers) {
         this.config = config;
-        this.raceSolver = raceSolver;
+        this.raceSolvers = raceSolvers;
+        this.idleRaceSolvers = new LinkedBlockingQueue<>(raceSolvers);
+        if (raceSolvers.size() > 1) {
+            windowAnalyzers = Executors.newFixedThreadPool(raceSolvers.size(), runnable -> {
+                Thread thread = new Thread(runnable, "Window analyzer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            windowAnalyzers = null;
+        }
     }
 
+    /**
+     * Waits for the windows which are still being analyzed and returns the reports of all windows.
+     */
     @Override
     public List<String> getRaceReports() {
+        mergeWindows(0);
         return reports;
     }
 
     @Override
     public void close() throws Exception {
-        raceSolver.close();
+        if (windowAnalyzers != null) {
+            windowAnalyzers.shutdownNow();
+            windowAnalyzers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        for (RaceSolver raceSolver : raceSolvers) {
+            raceSolver.close();
+        }
     }
 
     private boolean isThreadSafeLocation(Trace trace, long locId) {
@@ -59,58 +125,276 @@ public class MaximalRaceDetector implements RaceDetector {
         return false;
     }
 
+    /**
+     * A memory access which may be part of a race, with its position in
+     * {@link Trace#eventsByThreadID()}.
+     */
+    private static class Access {
+        private final ReadonlyEventInterface event;
+        private final int threadRank;
+        private final int index;
+
+        private Access(ReadonlyEventInterface event, int threadRank, int index) {
+            this.event = event;
+            this.threadRank = threadRank;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The accesses of one thread to one address from one location.
+     */
+    private static class LocationAccesses {
+        private final List<Access> accesses = new ArrayList<>();
+        private final int threadRank;
+        private boolean hasWrite = false;
+
+        private LocationAccesses(int threadRank) {
+            this.threadRank = threadRank;
+        }
+    }
+
+    /**
+     * The fields of a race signature, as normalized by {@link Race#getRaceSig}: the
+     * suspects with equal keys are checked as one bucket.
+     */
+    private static final class SuspectKey {
+        private final int addr;
+        private final long loc1;
+        private final long loc2;
+
+        private SuspectKey(int fieldIdOrArrayIndex, long locId1, long locId2) {
+            this.addr = Math.min(0, fieldIdOrArrayIndex);
+            this.loc1 = Math.min(locId1, locId2);
+            this.loc2 = Math.max(locId1, locId2);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SuspectKey)) {
+                return false;
+            }
+            SuspectKey other = (SuspectKey) o;
+            return addr == other.addr && loc1 == other.loc1 && loc2 == other.loc2;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * addr + Long.hashCode(loc1)) * 31 + Long.hashCode(loc2);
+        }
+    }
+
+    /**
+     * The pairs of conflicting {@link LocationAccesses} of one {@link SuspectKey}, from which
+     * the suspects are only created if no race with that signature is known.
+     */
+    private static class SuspectGroups {
+        private final String raceSig;
+        private final boolean known;
+        private final List<LocationAccesses[]> groups = new ArrayList<>();
+
+        private SuspectGroups(String raceSig, boolean known) {
+            this.raceSig = raceSig;
+            this.known = known;
+        }
+    }
+
+    /**
+     * Orders the suspects as the scan of all pairs of events in {@link Trace#eventsByThreadID()}
+     * would find them, since the first feasible suspect of a signature is the one reported.
+     */
+    private static final Comparator<Access[]> SUSPECT_ORDER = Comparator
+            .<Access[]>comparingInt(pair -> pair[0].threadRank)
+            .thenComparingInt(pair -> pair[1].threadRank)
+            .thenComparingInt(pair -> pair[0].index)
+            .thenComparingInt(pair -> pair[1].index);
+
+    private static final Comparator<LocationAccesses[]> GROUP_ORDER = Comparator
+            .<LocationAccesses[]>comparingInt(groups -> groups[0].threadRank)
+            .thenComparingInt(groups -> groups[1].threadRank);
+
+    /**
+     * Pairs the conflicting accesses of overlapping threads to the same address, using an index
+     * of the accesses by address, thread and location. The events are filtered once each. The
+     * pairs of locations are deduplicated by {@link SuspectKey}, whose signature is built and
+     * checked against the races already found once, before any pair of accesses or
+     * {@link Race} is created.
+     */
     private Map<String, List<Race>> computeUnknownRaceSuspects(Trace trace) {
-        Map<String, List<Race>> sigToRaceCandidates = new HashMap<>();
-        trace.eventsByThreadID().forEach((ttid1, events1) ->
-                trace.eventsByThreadID().forEach((ttid2, events2) -> {
-                    if (ttid1 >= ttid2 || !trace.threadsCanOverlap(ttid1, ttid2)) {
-                        return;
-                    }
-                    events1.forEach(e1 -> events2.forEach(e2 -> {
-                        if ((e1.isWrite() && e2.isReadOrWrite() || e1.isReadOrWrite() && e2.isWrite())
-                                && e1.getDataInternalIdentifier() == e2.getDataInternalIdentifier()
-                                // TODO(virgil): Metadata should work with external identifiers.
-                                // This code works fine for Java events and we don't handle volatile data
-                                // for compact events, so this is fine for now.
-                                && !trace.metadata().isVolatile(e1.getDataInternalIdentifier())
-                                && !isThreadSafeLocation(trace, e1.getLocationId())
-                                && !trace.isInsideClassInitializer(e1)
-                                && !trace.isInsideClassInitializer(e2)) {
-                            Race race = new Race(e1, e2, trace, config);
-                            if (!config.suppressPattern.matcher(race.getRaceDataSig())
-                                    .matches()) {
-                                String raceSig = race.toString();
-                                if (!sigToRealRace.containsKey(raceSig)) {
-                                    sigToRaceCandidates.computeIfAbsent(raceSig,
-                                            x -> new ArrayList<>()).add(race);
-                                }
-                            }
+        Map<Long, Map<Integer, Map<Long, LocationAccesses>>> addrToAccesses = new HashMap<>();
+        Set<Long> writtenAddrs = new HashSet<>();
+        int threadRank = 0;
+        for (Map.Entry<Integer, List<ReadonlyEventInterface>> entry : trace.eventsByThreadID().entrySet()) {
+            List<ReadonlyEventInterface> events = entry.getValue();
+            int rank = threadRank;
+            for (int i = 0; i < events.size(); i++) {
+                ReadonlyEventInterface event = events.get(i);
+                // TODO(virgil): Metadata should work with external identifiers.
+                // This code works fine for Java events and we don't handle volatile data
+                // for compact events, so this is fine for now.
+                if (!event.isReadOrWrite()
+                        || trace.metadata().isVolatile(event.getDataInternalIdentifier())
+                        || trace.isInsideClassInitializer(event)) {
+                    continue;
+                }
+                long addr = event.getDataInternalIdentifier();
+                LocationAccesses locationAccesses = addrToAccesses
+                        .computeIfAbsent(addr, k -> new HashMap<>())
+                        .computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+                        .computeIfAbsent(event.getLocationId(), k -> new LocationAccesses(rank));
+                locationAccesses.accesses.add(new Access(event, rank, i));
+                if (event.isWrite()) {
+                    locationAccesses.hasWrite = true;
+                    writtenAddrs.add(addr);
+                }
+            }
+            threadRank++;
+        }
+
+        Map<Long, Boolean> threadSafeLocations = new HashMap<>();
+        Map<SuspectKey, SuspectGroups> keyToSuspects = new HashMap<>();
+        addrToAccesses.forEach((addr, ttidToAccesses) -> {
+            if (ttidToAccesses.size() < 2 || !writtenAddrs.contains(addr)) {
+                return;
+            }
+            ttidToAccesses.forEach((ttid1, locToAccesses1) ->
+                    ttidToAccesses.forEach((ttid2, locToAccesses2) -> {
+                        if (ttid1 >= ttid2 || !trace.threadsCanOverlap(ttid1, ttid2)) {
+                            return;
                         }
+                        locToAccesses1.forEach((loc1, accesses1) -> {
+                            if (threadSafeLocations.computeIfAbsent(loc1,
+                                    loc -> isThreadSafeLocation(trace, loc))) {
+                                return;
+                            }
+                            locToAccesses2.forEach((loc2, accesses2) -> {
+                                if (!accesses1.hasWrite && !accesses2.hasWrite) {
+                                    return;
+                                }
+                                SuspectKey key = new SuspectKey(
+                                        accesses1.accesses.get(0).event.getFieldIdOrArrayIndex(), loc1, loc2);
+                                SuspectGroups suspects = keyToSuspects.computeIfAbsent(key, k -> {
+                                    String raceSig = Race.getRaceSig(k.addr, k.loc1, k.loc2);
+                                    return new SuspectGroups(raceSig, sigToRealRace.containsKey(raceSig));
+                                });
+                                if (!suspects.known) {
+                                    suspects.groups.add(new LocationAccesses[] { accesses1, accesses2 });
+                                }
+                            });
+                        });
                     }));
-                }));
+        });
+
+        Map<String, List<Race>> sigToRaceCandidates = new HashMap<>();
+        keyToSuspects.values().forEach(suspects -> {
+            if (suspects.known) {
+                return;
+            }
+            List<Race> races = new ArrayList<>();
+            for (Access[] suspect : pairAccesses(suspects.groups)) {
+                Race race = new Race(suspect[0].event, suspect[1].event, trace, config);
+                if (!config.suppressPattern.matcher(race.getRaceDataSig()).matches()) {
+                    races.add(race);
+                }
+            }
+            if (!races.isEmpty()) {
+                sigToRaceCandidates.put(suspects.raceSig, races);
+            }
+        });
         return sigToRaceCandidates;
     }
 
+    /**
+     * Pairs the conflicting accesses of the given groups in {@link #SUSPECT_ORDER}. The accesses
+     * of a group are in that order already, so only the groups of the same threads to different
+     * array elements need their pairs sorted.
+     */
+    private static List<Access[]> pairAccesses(List<LocationAccesses[]> groups) {
+        groups.sort(GROUP_ORDER);
+        List<Access[]> suspects = new ArrayList<>();
+        for (int i = 0, j; i < groups.size(); i = j) {
+            int start = suspects.size();
+            for (j = i; j < groups.size() && GROUP_ORDER.compare(groups.get(i), groups.get(j)) == 0; j++) {
+                for (Access a1 : groups.get(j)[0].accesses) {
+                    for (Access a2 : groups.get(j)[1].accesses) {
+                        if (a1.event.isWrite() || a2.event.isWrite()) {
+                            suspects.add(new Access[] { a1, a2 });
+                        }
+                    }
+                }
+            }
+            if (j - i > 1) {
+                suspects.subList(start, suspects.size()).sort(SUSPECT_ORDER);
+            }
+        }
+        return suspects;
+    }
+
     @Override
     public void run(Trace trace, AnalysisLimit analysisLimit) {
-        if (!trace.mayContainRaces()) {
+        if (windowAnalyzers == null) {
+            mergeResult(analyzeWindow(trace, raceSolvers.get(0), analysisLimit));
             return;
         }
+        pendingWindows.addLast(windowAnalyzers.submit(() -> {
+            RaceSolver raceSolver = idleRaceSolvers.take();
+            try {
+                return analyzeWindow(trace, raceSolver, analysisLimit);
+            } finally {
+                idleRaceSolvers.add(raceSolver);
+            }
+        }));
+        /* keep the analyzers busy, but do not let the windows pile up in memory */
+        mergeWindows(2 * raceSolvers.size());
+    }
+
+    private Map<String, Race> analyzeWindow(Trace trace, RaceSolver raceSolver, AnalysisLimit analysisLimit) {
+        if (!trace.mayContainRaces()) {
+            return Collections.emptyMap();
+        }
 
         Map<String, List<Race>> sigToRaceSuspects = computeUnknownRaceSuspects(trace);
         if (sigToRaceSuspects.isEmpty()) {
-            return;
+            return Collections.emptyMap();
+        }
+
+        return MaximalCausalModel
+                .create(trace, raceSolver, config.detectInterruptedThreadRace(), config.maxInterruptDepth())
+                .checkRaceSuspects(sigToRaceSuspects, analysisLimit);
+    }
+
+    /**
+     * Merges the results of the analyzed windows in window order, waiting for the oldest windows
+     * until at most {@code maxPendingWindows} are left.
+     */
+    private void mergeWindows(int maxPendingWindows) {
+        while (!pendingWindows.isEmpty()
+                && (pendingWindows.size() > maxPendingWindows || pendingWindows.peekFirst().isDone())) {
+            try {
+                mergeResult(pendingWindows.removeFirst().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
         }
+    }
 
-        Map<String, Race> result =
-                MaximalCausalModel
-                        .create(trace, raceSolver, config.detectInterruptedThreadRace(), config.maxInterruptDepth())
-                        .checkRaceSuspects(sigToRaceSuspects, analysisLimit);
-        sigToRealRace.putAll(result);
+    /**
+     * A race found by a window is dropped if an earlier window found a race with the same signature
+     * while the two were analyzed in parallel.
+     */
+    private void mergeResult(Map<String, Race> result) {
         result.forEach((sig, race) -> {
-            String report = race.generateRaceReport();
-            reports.add(report);
-            config.logger().reportRace(report);
+            if (sigToRealRace.putIfAbsent(sig, race) == null) {
+                String report = race.generateRaceReport();
+                reports.add(report);
+                config.logger().reportRace(report);
+            }
         });
     }
 }
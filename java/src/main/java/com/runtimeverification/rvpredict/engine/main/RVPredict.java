@@ -33,11 +33,18 @@ import com.runtimeverification.rvpredict.log.ILoggingEngine;
 import com.runtimeverification.rvpredict.metadata.CompactMetadata;
 import com.runtimeverification.rvpredict.metadata.Metadata;
 import com.runtimeverification.rvpredict.metadata.MetadataInterface;
+import com.runtimeverification.rvpredict.order.FastTrackRaceDetector;
 import com.runtimeverification.rvpredict.order.JavaHappensBeforeRaceDetector;
+import com.runtimeverification.rvpredict.order.OrderedRaceDetector;
 import com.runtimeverification.rvpredict.performance.AnalysisLimit;
+import com.runtimeverification.rvpredict.performance.Profiler;
+import com.runtimeverification.rvpredict.performance.ProfilerToken;
+import com.runtimeverification.rvpredict.runtime.MethodSampler;
+import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 import com.runtimeverification.rvpredict.smt.RaceSolver;
 import com.runtimeverification.rvpredict.trace.LLVMCompactTraceCache;
 import com.runtimeverification.rvpredict.trace.LLVMTraceCache;
+import com.runtimeverification.rvpredict.trace.RawWindowPrefetcher;
 import com.runtimeverification.rvpredict.trace.Trace;
 import com.runtimeverification.rvpredict.trace.TraceCache;
 import com.runtimeverification.rvpredict.util.Logger;
@@ -66,6 +73,11 @@ public class RVPredict implements AutoCloseable {
     private final TraceCache traceCache;
     private final RaceDetector detector;
 
+    /**
+     * The detector analyzing the whole trace at once, if {@link Configuration#isStreamingHappensBefore()}.
+     */
+    private final OrderedRaceDetector streamingDetector;
+
     public RVPredict(Configuration config) {
         MetadataInterface metadata;
         this.config = config;
@@ -83,16 +95,28 @@ public class RVPredict implements AutoCloseable {
             metadata = Metadata.readFrom(config.getMetadataPath());
             traceCache = new TraceCache(config, metadata);
         }
+        OrderedRaceDetector happensBeforeDetector = null;
         if (config.isHappensBefore()) {
-            this.detector = new JavaHappensBeforeRaceDetector(config, metadata);
+            happensBeforeDetector = config.isFastTrack() ?
+                    new FastTrackRaceDetector(config, metadata) :
+                    new JavaHappensBeforeRaceDetector(config, metadata);
+            this.detector = happensBeforeDetector;
+        } else if (config.parallel_windows > 1) {
+            List<RaceSolver> raceSolvers = new ArrayList<>();
+            for (int i = 0; i < config.parallel_windows; i++) {
+                raceSolvers.add(RaceSolver.create(config));
+            }
+            this.detector = new MaximalRaceDetector(config, raceSolvers);
         } else {
             this.detector = new MaximalRaceDetector(config, RaceSolver.create(config));
         }
+        this.streamingDetector = config.isStreamingHappensBefore() ? happensBeforeDetector : null;
     }
 
     @Override
     public void close() throws Exception {
         detector.close();
+        traceCache.close();
     }
 
     public void start() {
@@ -100,20 +124,19 @@ public class RVPredict implements AutoCloseable {
             AnalysisLimit globalAnalysisLimit =
                     new AnalysisLimit(Clock.systemUTC(), "Global", Optional.empty(), config.global_timeout, config.logger());
             traceCache.setup();
-            // process the trace window by window
-            Trace trace;
-            while (true) {
-                if ((trace = traceCache.getTraceWindow()) != null) {
-                    AnalysisLimit windowAnalysisLimit =
-                            new AnalysisLimit(
-                                    Clock.systemUTC(),
-                                    "Window",
-                                    Optional.of(globalAnalysisLimit),
-                                    config.window_timeout, config.logger());
-                    detector.run(trace, windowAnalysisLimit);
-                } else {
-                    break;
+            if (streamingDetector != null) {
+                try (ProfilerToken ignored = Profiler.instance().start("Streaming happens-before analysis")) {
+                    streamingDetector.run(traceCache.mergedEventReader());
                 }
+            } else if (config.pipeline_depth > 0) {
+                // process the trace window by window, reading windows ahead
+                try (RawWindowPrefetcher prefetcher = new RawWindowPrefetcher(traceCache, config.pipeline_depth)) {
+                    analyzeWindows(() -> traceCache.buildTraceWindow(prefetcher.take()), globalAnalysisLimit);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            } else {
+                analyzeWindows(traceCache::getTraceWindow, globalAnalysisLimit);
             }
 
             List<String> reports = detector.getRaceReports();
@@ -131,11 +154,36 @@ public class RVPredict implements AutoCloseable {
         }
     }
 
+    private interface WindowSupplier {
+        Trace get() throws IOException;
+    }
+
+    private void analyzeWindows(WindowSupplier windows, AnalysisLimit globalAnalysisLimit) throws IOException {
+        Trace trace;
+        while ((trace = windows.get()) != null) {
+            AnalysisLimit windowAnalysisLimit =
+                    new AnalysisLimit(
+                            Clock.systemUTC(),
+                            "Window",
+                            Optional.of(globalAnalysisLimit),
+                            config.window_timeout, config.logger());
+            try (ProfilerToken ignored = Profiler.instance().start("Window stage 3 - detect races")) {
+                detector.run(trace, windowAnalysisLimit);
+            }
+        }
+    }
+
     public static Thread getPredictionThread(Configuration config, ILoggingEngine loggingEngine) {
         return new Thread("Cleanup Thread") {
             @Override
             public void run() {
                 if (loggingEngine != null) {
+                    if (config.sample_accesses) {
+                        long[] totals = MethodSampler.recordSamplingRates(RVPredictRuntime.metadata);
+                        config.logger().report(String.format(
+                                "Logged the memory accesses of %d out of %d method executions.",
+                                totals[1], totals[0]), Logger.MSGTYPE.INFO);
+                    }
                     try {
                         loggingEngine.finishLogging();
                     } catch (IOException e) {
@@ -6,13 +6,25 @@ import java.lang.instrument.IllegalClassFormatException;
 import java.lang.instrument.Instrumentation;
 import java.lang.instrument.UnmodifiableClassException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.ProtectionDomain;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.io.Resources;
 import com.runtimeverification.rvpredict.config.Configuration;
@@ -38,6 +50,35 @@ public class Agent implements ClassFileTransformer, Constants {
 
     public static Configuration config;
 
+    private static TransformCache transformCache;
+
+    /**
+     * Instrumented bytecode of the classes loaded before the agent, computed in parallel by
+     * {@link #pretransformPreloadedClasses}.
+     */
+    private static final Map<Class<?>, Pretransformed> pretransformed = new ConcurrentHashMap<>();
+
+    private static class Pretransformed {
+        /**
+         * The {@link BytecodeDigest} of the class file read from the class path, which may
+         * define another class than the one given to {@link #transform}, e.g. if another
+         * agent transformed the class.
+         */
+        final ByteBuffer original;
+        final byte[] transformed;
+
+        Pretransformed(ByteBuffer original, byte[] transformed) {
+            this.original = original;
+            this.transformed = transformed;
+        }
+    }
+
+    /**
+     * Numbers of preloaded classes whose pretransformed bytecode was used, or not.
+     */
+    private static final AtomicInteger pretransformHits = new AtomicInteger();
+    private static final AtomicInteger pretransformMisses = new AtomicInteger();
+
     public static void premain(String agentArgs, Instrumentation inst) {
         instrumentation = inst;
         preinitializeClasses();
@@ -50,6 +91,12 @@ public class Agent implements ClassFileTransformer, Constants {
                     "Cannot run rv-predict as an agent with --parallel_smt greater than one.", Logger.MSGTYPE.ERROR);
             prematureExit();
         }
+        if (config.isOnlinePrediction() && config.parallel_windows > 1) {
+            config.logger().report(
+                    "Cannot run rv-predict as an agent with --parallel-windows greater than one.",
+                    Logger.MSGTYPE.ERROR);
+            prematureExit();
+        }
         initLoggingDirectory();
         printStartupInfo();
 
@@ -63,21 +110,26 @@ public class Agent implements ClassFileTransformer, Constants {
                 new PersistentLoggingEngine(config, RVPredictRuntime.metadata);
         }
         RVPredictRuntime.init(config, loggingEngine);
+        if (config.transform_cache != null) {
+            try {
+                transformCache = TransformCache.open(config, RVPredictRuntime.metadata);
+                Runtime.getRuntime().addShutdownHook(new Thread(transformCache::save));
+            } catch (IOException e) {
+                config.logger().report("Cannot open the instrumentation cache: " + e.getMessage(),
+                        Logger.MSGTYPE.ERROR);
+            }
+        }
 
+        pretransformPreloadedClasses(inst);
         inst.addTransformer(new Agent(), true);
+        List<Class<?>> classes = new ArrayList<>();
         for (Class<?> c : inst.getAllLoadedClasses()) {
             if (inst.isModifiableClass(c)) {
                 // YilongL: temporary hack to work around JVM crash bug JDK-8075318
                 if (c.getName().startsWith("java.lang.invoke")) {
                     continue;
                 }
-
-                try {
-                    inst.retransformClasses(c);
-                } catch (UnmodifiableClassException e) {
-                    // should not happen
-                    e.printStackTrace();
-                }
+                classes.add(c);
             } else {
                 /* TODO(YilongL): Shall(can) we register fields of these
                  * unmodifiable classes too? We know for sure that primitive
@@ -87,11 +139,76 @@ public class Agent implements ClassFileTransformer, Constants {
                  * accessed by a specific bytecode instruction `arraylength'. */
             }
         }
+        try {
+            inst.retransformClasses(classes.toArray(new Class<?>[classes.size()]));
+        } catch (Throwable e) {
+            /* the whole batch fails if one class does; retry them one by one */
+            config.logger().debug(e);
+            for (Class<?> c : classes) {
+                try {
+                    inst.retransformClasses(c);
+                } catch (UnmodifiableClassException e1) {
+                    // should not happen
+                    e1.printStackTrace();
+                }
+            }
+        }
+        pretransformed.clear();
+        config.logger().debug("Used the pretransformed bytecode of " + pretransformHits + " of "
+                + (pretransformHits.get() + pretransformMisses.get()) + " preloaded classes.");
         config.logger().report("Finished retransforming preloaded classes.", Logger.MSGTYPE.INFO);
 
         Runtime.getRuntime().addShutdownHook(RVPredict.getPredictionThread(config, loggingEngine));
     }
 
+    /**
+     * Instruments the classes loaded before the agent in parallel, reading their bytecode
+     * from the class path, so that {@link #transform} only has to return the result when
+     * they are retransformed.
+     * <p>
+     * This runs on a plain thread pool before the agent is registered as a transformer
+     * because {@link java.util.concurrent.ForkJoinPool} is itself replaced when loaded.
+     * The classes loaded meanwhile are retransformed in the usual way.
+     */
+    private static void pretransformPreloadedClasses(Instrumentation inst) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Class<?> c : inst.getAllLoadedClasses()) {
+            if (inst.isModifiableClass(c) && !c.getName().startsWith("java.lang.invoke")) {
+                tasks.add(() -> {
+                    ClassLoader loader = c.getClassLoader();
+                    String cname = c.getName().replace('.', '/');
+                    URL url = loader == null ? ClassLoader.getSystemResource(cname + ".class")
+                            : loader.getResource(cname + ".class");
+                    if (url != null && !isSpecialClass(cname)) {
+                        byte[] original = Resources.toByteArray(url);
+                        byte[] transformed = transformFull(loader, cname, original);
+                        if (transformed != null) {
+                            pretransformed.put(c, new Pretransformed(BytecodeDigest.of(original), transformed));
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    /* the class is transformed again when it is retransformed */
+                    config.logger().debug(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private static void prematureExit() {
         Runtime.getRuntime().addShutdownHook(
                 RVPredict.getPredictionThread(config, null));
@@ -156,9 +273,10 @@ public class Agent implements ClassFileTransformer, Constants {
             System.exit(1);
         }
 
-        /* scan all trace files */
+        /* scan all trace and spill files */
         DirectoryScanner scanner = new DirectoryScanner();
-        scanner.setIncludes(new String[] { "*" + Configuration.TRACE_SUFFIX + "*" });
+        scanner.setIncludes(new String[] {
+                "*" + Configuration.TRACE_SUFFIX + "*", "*" + Configuration.SPILL_SUFFIX });
         scanner.setBasedir(logDir);
         scanner.scan();
 
@@ -185,26 +303,28 @@ public class Agent implements ClassFileTransformer, Constants {
 
             checkUninterceptedClassLoading(cname, c);
 
+            if (c != null) {
+                Pretransformed result = pretransformed.remove(c);
+                if (result != null) {
+                    /* the JVM gives back a class file reconstituted from the loaded class */
+                    if (result.original.equals(BytecodeDigest.of(cbuf))) {
+                        pretransformHits.incrementAndGet();
+                        return result.transformed;
+                    }
+                    pretransformMisses.incrementAndGet();
+                }
+            }
+
             if (cname.equals("java/lang/Thread")) {
                 return ClassTransformer.transform(loader, cname, cbuf, config,
                         TransformStrategy.THREAD);
-            } else if (cname.startsWith("java/util/concurrent/ForkJoinPool")
-                    || cname.startsWith("java/util/concurrent/ForkJoinTask")
-                    || cname.startsWith("java/util/concurrent/CountedCompleter")
-                    || cname.startsWith("java/util/stream/AbstractTask")) {
+            } else if (isForkJoinClass(cname)) {
                 String AGENT_CLASS = "com/runtimeverification/rvpredict/instrument/Agent";
                 return Resources.toByteArray(new URL(ClassLoader.getSystemClassLoader()
                         .getResource(AGENT_CLASS + ".class").toString().replace(AGENT_CLASS, cname)));
-            } else if (!cname.startsWith(RVPREDICT_PKG_PREFIX)
-                    || cname.startsWith(RVPREDICT_RUNTIME_PKG_PREFIX)) {
-                ClassFile classFile = ClassFile.getInstance(loader, cname, cbuf);
-                if (InstrumentUtils.needToInstrument(classFile)) {
-                    byte[] transformed = ClassTransformer.transform(loader, cname, cbuf, config,
-                            TransformStrategy.FULL);
-                    return transformed;
-                }
+            } else {
+                return transformFull(loader, cname, cbuf);
             }
-            return null;
         } catch (Throwable e) {
             /* exceptions during class loading are silently suppressed by default */
             config.logger().debug("Cannot retransform " + cname);
@@ -217,6 +337,47 @@ public class Agent implements ClassFileTransformer, Constants {
         }
     }
 
+    private static boolean isForkJoinClass(String cname) {
+        return cname.startsWith("java/util/concurrent/ForkJoinPool")
+                || cname.startsWith("java/util/concurrent/ForkJoinTask")
+                || cname.startsWith("java/util/concurrent/CountedCompleter")
+                || cname.startsWith("java/util/stream/AbstractTask");
+    }
+
+    /**
+     * Checks if a class is not instrumented by {@link #transformFull}.
+     */
+    private static boolean isSpecialClass(String cname) {
+        return cname.equals("java/lang/Thread") || isForkJoinClass(cname);
+    }
+
+    /**
+     * Instruments a class with {@link TransformStrategy#FULL}.
+     *
+     * @return the instrumented bytecode, or {@code null} if the class is not instrumented
+     */
+    private static byte[] transformFull(ClassLoader loader, String cname, byte[] cbuf) {
+        if (cname.startsWith(RVPREDICT_PKG_PREFIX) && !cname.startsWith(RVPREDICT_RUNTIME_PKG_PREFIX)) {
+            return null;
+        }
+        ClassFile classFile = ClassFile.getInstance(loader, cname, cbuf);
+        if (!InstrumentUtils.needToInstrument(classFile)) {
+            return null;
+        }
+        if (transformCache == null) {
+            return ClassTransformer.transform(loader, cname, cbuf, config, TransformStrategy.FULL);
+        }
+        ByteBuffer key = transformCache.keyOf(cbuf);
+        byte[] transformed = transformCache.get(key, loader);
+        if (transformed == null) {
+            Map<String, ClassFile> dependencies = new HashMap<>();
+            transformed = ClassFile.recordLookups(dependencies, () -> ClassTransformer.transform(
+                    loader, cname, cbuf, config, TransformStrategy.FULL));
+            transformCache.put(key, transformed, dependencies);
+        }
+        return transformed;
+    }
+
     private static final Set<String> loadedClasses = Collections.synchronizedSet(new HashSet<>());
 
     private static void checkUninterceptedClassLoading(String cname, Class<?> c) {
@@ -0,0 +1,212 @@
+package com.runtimeverification.rvpredict.instrument;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Digest of the declarations and the code of a class, which tells whether two class files
+ * define the same class even if their bytes differ.
+ * <p>
+ * The class file given to a transformer when a class is retransformed is reconstituted by
+ * the JVM from its internal representation: the methods are reordered, the constant pool
+ * is rebuilt and some attributes are dropped, so that it seldom equals the class file it
+ * was loaded from. The digest thus covers the members in name order and their bytecode,
+ * leaving out the constant pool layout, the debug information and the stack map frames.
+ */
+final class BytecodeDigest extends ClassVisitor {
+
+    /**
+     * Access flags of the class file; ASM also reports some attributes as flags.
+     */
+    private static final int ACCESS_MASK = 0xFFFF;
+
+    private final StringBuilder header = new StringBuilder();
+
+    private final List<String> members = new ArrayList<>();
+
+    private BytecodeDigest() {
+        super(Opcodes.ASM5);
+    }
+
+    /**
+     * @return the digest of the given class file
+     */
+    static ByteBuffer of(byte[] cbuf) {
+        BytecodeDigest visitor = new BytecodeDigest();
+        new ClassReader(cbuf).accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        Collections.sort(visitor.members);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(visitor.header.toString().getBytes(StandardCharsets.UTF_8));
+            for (String member : visitor.members) {
+                digest.update(member.getBytes(StandardCharsets.UTF_8));
+            }
+            return ByteBuffer.wrap(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName,
+            String[] interfaces) {
+        header.append(access & ACCESS_MASK).append(' ').append(name).append(' ').append(superName)
+                .append(' ').append(Arrays.toString(interfaces)).append('\n');
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature,
+            Object value) {
+        members.add("F " + name + ' ' + desc + ' ' + (access & ACCESS_MASK) + ' ' + value + '\n');
+        return null;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature,
+            String[] exceptions) {
+        StringBuilder code = new StringBuilder();
+        code.append("M ").append(name).append(' ').append(desc).append(' ').append(access & ACCESS_MASK)
+                .append(' ').append(Arrays.toString(exceptions)).append('\n');
+        return new CodeDigest(code);
+    }
+
+    /**
+     * Appends the instructions of a method, numbering the labels in order of appearance.
+     */
+    private class CodeDigest extends MethodVisitor {
+
+        private final StringBuilder code;
+
+        private final Map<Label, Integer> labelIds = new HashMap<>();
+
+        CodeDigest(StringBuilder code) {
+            super(Opcodes.ASM5);
+            this.code = code;
+        }
+
+        private StringBuilder insn(int opcode) {
+            return code.append(opcode).append(' ');
+        }
+
+        private StringBuilder label(Label label) {
+            Integer id = labelIds.get(label);
+            if (id == null) {
+                id = labelIds.size();
+                labelIds.put(label, id);
+            }
+            return code.append('L').append(id).append(' ');
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            insn(opcode).append(';');
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            insn(opcode).append(operand).append(';');
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int var) {
+            insn(opcode).append(var).append(';');
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            insn(opcode).append(type).append(';');
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+            insn(opcode).append(owner).append('.').append(name).append(' ').append(desc).append(';');
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+            insn(opcode).append(owner).append('.').append(name).append(desc).append(';');
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+            insn(Opcodes.INVOKEDYNAMIC).append(name).append(desc).append(' ').append(bsm)
+                    .append(Arrays.toString(bsmArgs)).append(';');
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            insn(opcode);
+            label(label).append(';');
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            label(label).append(':');
+        }
+
+        @Override
+        public void visitLdcInsn(Object cst) {
+            insn(Opcodes.LDC).append(cst.getClass().getSimpleName()).append(' ').append(cst).append(';');
+        }
+
+        @Override
+        public void visitIincInsn(int var, int increment) {
+            insn(Opcodes.IINC).append(var).append(' ').append(increment).append(';');
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            insn(Opcodes.TABLESWITCH).append(min).append(' ').append(max).append(' ');
+            label(dflt);
+            for (Label label : labels) {
+                label(label);
+            }
+            code.append(';');
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            insn(Opcodes.LOOKUPSWITCH).append(Arrays.toString(keys)).append(' ');
+            label(dflt);
+            for (Label label : labels) {
+                label(label);
+            }
+            code.append(';');
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String desc, int dims) {
+            insn(Opcodes.MULTIANEWARRAY).append(desc).append(' ').append(dims).append(';');
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            code.append("try ");
+            label(start);
+            label(end);
+            label(handler).append(type).append(';');
+        }
+
+        @Override
+        public void visitEnd() {
+            members.add(code.append('\n').toString());
+        }
+    }
+
+}
@@ -22,9 +22,10 @@ public class InstrumentUtils implements Opcodes {
     public static final Type CLASS_TYPE     = Type.getObjectType("java/lang/Class");
     public static final Type JL_FLOAT_TYPE  = Type.getObjectType("java/lang/Float");
     public static final Type JL_DOUBLE_TYPE = Type.getObjectType("java/lang/Double");
-    public static final Type JL_SYSTEM_TYPE = Type.getObjectType("java/lang/System");
     public static final Type RVPREDICT_RUNTIME_TYPE = Type
             .getObjectType("com/runtimeverification/rvpredict/runtime/RVPredictRuntime");
+    public static final Type RVPREDICT_OBJECT_IDS_TYPE = Type
+            .getObjectType("com/runtimeverification/rvpredict/runtime/ObjectIds");
 
     public static void printTransformedClassToFile(String cname, byte[] cbuf, String dir) {
         String fileName = dir + "/" + cname.substring(cname.lastIndexOf("/") + 1) + ".class";
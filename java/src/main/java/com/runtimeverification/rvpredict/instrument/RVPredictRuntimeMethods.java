@@ -33,6 +33,7 @@ public class RVPredictRuntimeMethods {
     public static final RVPredictRuntimeMethod LOG_MONITOR_EXIT  =  init("logMonitorExit", O, I);
     public static final RVPredictRuntimeMethod LOG_INVOKE_METHOD =  init("logInvokeMethod", I);
     public static final RVPredictRuntimeMethod LOG_FINISH_METHOD =  init("logFinishMethod", I);
+    public static final RVPredictRuntimeMethod SAMPLE_METHOD     =  init("sampleMethod", I);
 
     /*
      * Some useful constants.
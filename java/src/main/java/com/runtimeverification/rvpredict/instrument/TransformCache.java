@@ -0,0 +1,382 @@
+package com.runtimeverification.rvpredict.instrument;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import com.runtimeverification.rvpredict.config.Configuration;
+import com.runtimeverification.rvpredict.metadata.ClassFile;
+import com.runtimeverification.rvpredict.metadata.Metadata;
+import com.runtimeverification.rvpredict.util.Logger;
+
+/**
+ * On-disk cache of the instrumented classes, so that the agent does not transform the
+ * same class again on every execution.
+ * <p>
+ * The instrumented code embeds the variable, location and method identifiers registered in
+ * the {@link Metadata} while transforming it, so the cache also keeps the identifiers of
+ * the execution which filled it and registers them again before serving any class. If
+ * that is impossible, the cache starts over.
+ * <p>
+ * The instrumentation of a class also depends on the other classes looked up while
+ * transforming it, e.g. the class declaring each accessed field and whether that field is
+ * final or volatile. So each class is stored with the digest of the {@link ClassFile} of
+ * these classes, and is transformed again if one of them changed since.
+ * <p>
+ * There is one cache file for each version of the agent and each configuration affecting
+ * the instrumentation. It is memory-mapped and laid out as the instrumented classes,
+ * followed by the identifiers and the index of the classes by the digest of their original
+ * bytes, and a trailer giving the offset of the index. It is rewritten when the agent
+ * exits if new classes were transformed.
+ */
+public class TransformCache {
+
+    private static final long MAGIC = 0x5256_5043_4143_4832L;
+
+    private static final int TRAILER_SIZE = 16;
+
+    private final Path path;
+
+    private final Metadata metadata;
+
+    private final Logger logger;
+
+    private MappedByteBuffer mapped;
+
+    private final Map<ByteBuffer, Entry> entries = new HashMap<>();
+
+    private final Map<ByteBuffer, NewEntry> newEntries = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        final long offset;
+        final int length;
+
+        /**
+         * Digests of the classes looked up while transforming the class, by name.
+         */
+        final Map<String, ByteBuffer> dependencies;
+
+        Entry(long offset, int length, Map<String, ByteBuffer> dependencies) {
+            this.offset = offset;
+            this.length = length;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private static class NewEntry {
+        final byte[] bytes;
+        final Map<String, ByteBuffer> dependencies;
+
+        NewEntry(byte[] bytes, Map<String, ByteBuffer> dependencies) {
+            this.bytes = bytes;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private TransformCache(Path path, Metadata metadata, Logger logger) {
+        this.path = path;
+        this.metadata = metadata;
+        this.logger = logger;
+    }
+
+    /**
+     * Opens the cache for the given configuration and registers the identifiers it uses.
+     */
+    public static TransformCache open(Configuration config, Metadata metadata) throws IOException {
+        Path dir = Paths.get(config.transform_cache);
+        Files.createDirectories(dir);
+        TransformCache cache = new TransformCache(dir.resolve(fingerprint(config) + ".cache"),
+                metadata, config.logger());
+        if (Files.exists(cache.path)) {
+            try {
+                cache.load();
+            } catch (IOException | RuntimeException e) {
+                config.logger().report("Ignoring unreadable instrumentation cache " + cache.path
+                        + ": " + e.getMessage(), Logger.MSGTYPE.INFO);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Identifies the agent and the options which the instrumentation depends on.
+     */
+    private static String fingerprint(Configuration config) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(Configuration.class.getPackage().getImplementationVersion()).append('\n');
+        sb.append(new File(Configuration.RV_PREDICT_JAR).lastModified()).append('\n');
+        for (Pattern include : config.includeList) {
+            sb.append('+').append(include.pattern()).append('\n');
+        }
+        for (Pattern exclude : config.excludeList) {
+            sb.append('-').append(exclude.pattern()).append('\n');
+        }
+        sb.append(config.sample_accesses).append(config.thread_locality_filter);
+        byte[] digest = digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            hex.append(String.format("%02x", digest[i]));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] digest(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the cache file. Nothing is registered in the {@link Metadata} and the cache stays
+     * empty unless the whole file is valid.
+     */
+    private void load() throws IOException {
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int indexEnd = file.capacity() - TRAILER_SIZE;
+        if (indexEnd < 0 || file.getLong(file.capacity() - 8) != MAGIC) {
+            throw new IOException("bad trailer");
+        }
+        long dataSize = file.getLong(indexEnd);
+        if (dataSize < 0 || dataSize > indexEnd) {
+            throw new IOException("bad index offset");
+        }
+        ByteBuffer index = file.duplicate();
+        index.position((int) dataSize).limit(indexEnd);
+
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(index));
+        Map<String, Integer> varIds = readIds(in);
+        Map<String, Integer> locIds = readIds(in);
+        Map<String, Integer> methodIds = readIds(in);
+        Set<Integer> volatileIds = new HashSet<>();
+        for (int n = in.readInt(); n > 0; n--) {
+            volatileIds.add(in.readInt());
+        }
+        Map<ByteBuffer, Entry> loaded = new HashMap<>();
+        for (int n = in.readInt(); n > 0; n--) {
+            byte[] key = new byte[20];
+            in.readFully(key);
+            long offset = in.readLong();
+            int length = in.readInt();
+            if (offset < 0 || length < 0 || offset + length > dataSize) {
+                throw new IOException("bad entry");
+            }
+            Map<String, ByteBuffer> dependencies = new HashMap<>();
+            for (int m = in.readInt(); m > 0; m--) {
+                String cname = in.readUTF();
+                byte[] digest = new byte[in.readUnsignedByte()];
+                in.readFully(digest);
+                dependencies.put(cname, ByteBuffer.wrap(digest));
+            }
+            loaded.put(ByteBuffer.wrap(key), new Entry(offset, length, dependencies));
+        }
+        if (index.hasRemaining()) {
+            throw new IOException("bad index");
+        }
+
+        if (!metadata.restoreIds(varIds, locIds, methodIds, volatileIds)) {
+            throw new IOException("conflicting identifiers");
+        }
+        mapped = file;
+        entries.putAll(loaded);
+    }
+
+    private static Map<String, Integer> readIds(DataInputStream in) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        for (int n = in.readInt(); n > 0; n--) {
+            int id = in.readInt();
+            ids.put(in.readUTF(), id);
+        }
+        return ids;
+    }
+
+    private static void writeIds(DataOutputStream out, Map<String, Integer> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            out.writeInt(entry.getValue());
+            out.writeUTF(entry.getKey());
+        }
+    }
+
+    /**
+     * @return the digest of the original bytes of a class, identifying it in the cache
+     */
+    public ByteBuffer keyOf(byte[] cbuf) {
+        return ByteBuffer.wrap(digest(cbuf));
+    }
+
+    /**
+     * @param loader
+     *            the loader of the class, used to look up the classes it depends on
+     * @return the instrumented bytes of the class, or {@code null} if not cached or if the
+     *         classes it depends on changed
+     */
+    public byte[] get(ByteBuffer key, ClassLoader loader) {
+        NewEntry newEntry = newEntries.get(key);
+        if (newEntry != null) {
+            return isUpToDate(newEntry.dependencies, loader) ? newEntry.bytes : null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null || !isUpToDate(entry.dependencies, loader)) {
+            return null;
+        }
+        byte[] bytes = new byte[entry.length];
+        ByteBuffer data = mapped.duplicate();
+        data.position((int) entry.offset);
+        data.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @param dependencies
+     *            the class files looked up while transforming the class, as recorded by
+     *            {@link ClassFile#recordLookups}
+     */
+    public void put(ByteBuffer key, byte[] transformed, Map<String, ClassFile> dependencies) {
+        Map<String, ByteBuffer> digests = new HashMap<>();
+        dependencies.forEach((cname, classFile) -> digests.put(cname, digestOf(classFile)));
+        newEntries.put(key, new NewEntry(transformed, digests));
+    }
+
+    private static boolean isUpToDate(Map<String, ByteBuffer> dependencies, ClassLoader loader) {
+        for (Map.Entry<String, ByteBuffer> entry : dependencies.entrySet()) {
+            if (!digestOf(ClassFile.getInstance(loader, entry.getKey())).equals(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the digest of what the instrumentation may use from a class file, or an empty
+     *         buffer if the class cannot be found
+     */
+    private static ByteBuffer digestOf(ClassFile classFile) {
+        if (classFile == null) {
+            return ByteBuffer.allocate(0);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(classFile.getAccess()).append(' ').append(classFile.getSuperName());
+        for (String itf : classFile.getInterfaces()) {
+            sb.append(' ').append(itf);
+        }
+        for (String fname : classFile.getFieldNames()) {
+            sb.append('\n').append(fname).append(' ').append(classFile.getFieldAccess(fname));
+        }
+        return ByteBuffer.wrap(digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Writes the cache file again if new classes were transformed.
+     */
+    public synchronized void save() {
+        if (newEntries.isEmpty()) {
+            return;
+        }
+        Map<ByteBuffer, NewEntry> added = new HashMap<>(newEntries);
+        try {
+            Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tmp)))) {
+                /* the old entries transformed again are replaced */
+                Map<ByteBuffer, Entry> index = new HashMap<>();
+                long offset = 0;
+                for (Map.Entry<ByteBuffer, Entry> entry : entries.entrySet()) {
+                    Entry old = entry.getValue();
+                    if (!added.containsKey(entry.getKey())) {
+                        byte[] bytes = new byte[old.length];
+                        ByteBuffer data = mapped.duplicate();
+                        data.position((int) old.offset);
+                        data.get(bytes);
+                        out.write(bytes);
+                        index.put(entry.getKey(), new Entry(offset, old.length, old.dependencies));
+                        offset += old.length;
+                    }
+                }
+                for (Map.Entry<ByteBuffer, NewEntry> entry : added.entrySet()) {
+                    NewEntry newEntry = entry.getValue();
+                    out.write(newEntry.bytes);
+                    index.put(entry.getKey(),
+                            new Entry(offset, newEntry.bytes.length, newEntry.dependencies));
+                    offset += newEntry.bytes.length;
+                }
+
+                writeIds(out, metadata.getVariableIds());
+                writeIds(out, metadata.getLocationIds());
+                writeIds(out, metadata.getMethodIds());
+                Set<Integer> volatileIds = metadata.getVolatileVariableIds();
+                out.writeInt(volatileIds.size());
+                for (int varId : volatileIds) {
+                    out.writeInt(varId);
+                }
+                out.writeInt(index.size());
+                for (Map.Entry<ByteBuffer, Entry> entry : index.entrySet()) {
+                    out.write(entry.getKey().array());
+                    out.writeLong(entry.getValue().offset);
+                    out.writeInt(entry.getValue().length);
+                    out.writeInt(entry.getValue().dependencies.size());
+                    for (Map.Entry<String, ByteBuffer> dependency :
+                            entry.getValue().dependencies.entrySet()) {
+                        out.writeUTF(dependency.getKey());
+                        out.writeByte(dependency.getValue().capacity());
+                        out.write(dependency.getValue().array());
+                    }
+                }
+                out.writeLong(offset);
+                out.writeLong(MAGIC);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.report("Cannot write the instrumentation cache " + path + ": " + e.getMessage(),
+                    Logger.MSGTYPE.ERROR);
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.runtimeverification.rvpredict.instrument.transformer;
 
+import java.util.BitSet;
+
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
@@ -10,6 +12,7 @@ import org.objectweb.asm.util.CheckClassAdapter;
 
 import com.runtimeverification.rvpredict.config.Configuration;
 import com.runtimeverification.rvpredict.instrument.InstrumentUtils;
+import com.runtimeverification.rvpredict.util.Logger;
 
 public class ClassTransformer extends ClassVisitor implements Opcodes {
 
@@ -19,6 +22,11 @@ public class ClassTransformer extends ClassVisitor implements Opcodes {
 
     private final ClassLoader loader;
 
+    /**
+     * The field accesses which need not be logged, or {@code null} if not analyzed.
+     */
+    private final ThreadLocalityAnalysis locality;
+
     private String className;
     private String source;
 
@@ -28,8 +36,15 @@ public class ClassTransformer extends ClassVisitor implements Opcodes {
             TransformStrategy strategy) {
         ClassReader cr = new ClassReader(cbuf);
         ClassWriter cw = new ClassWriter(cr, loader, cname, config.logger());
-        ClassTransformer transformer = new ClassTransformer(cw, loader, config, strategy);
+        ThreadLocalityAnalysis locality = config.thread_locality_filter && strategy.logMemoryAccess() ?
+                ThreadLocalityAnalysis.analyze(cr) : null;
+        ClassTransformer transformer = new ClassTransformer(cw, loader, config, strategy, locality);
         cr.accept(transformer, ClassReader.EXPAND_FRAMES);
+        if (locality != null && locality.getNumOfSkippedSites() > 0 && Configuration.verbose) {
+            config.logger().report(String.format("Skipped %d of %d field access sites in %s",
+                    locality.getNumOfSkippedSites(), locality.getNumOfSites(), cname),
+                    Logger.MSGTYPE.VERBOSE);
+        }
 
         byte[] result = cw.toByteArray();
         if (Configuration.debug) {
@@ -41,13 +56,14 @@ public class ClassTransformer extends ClassVisitor implements Opcodes {
     }
 
     private ClassTransformer(ClassWriter cw, ClassLoader loader, Configuration config,
-            TransformStrategy strategy) {
+            TransformStrategy strategy, ThreadLocalityAnalysis locality) {
         super(ASM5, cw);
         assert cw != null;
 
         this.loader = loader;
         this.config = config;
         this.strategy = strategy;
+        this.locality = locality;
     }
 
     private String replaceStandardLibraryClass(String literal) {
@@ -89,6 +105,10 @@ public class ClassTransformer extends ClassVisitor implements Opcodes {
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature,
             String[] exceptions) {
+        /* the JSR inliner below duplicates instructions, so the analyzed positions of the
+         * field instructions would not match */
+        BitSet skippedFieldInsns = locality != null && (version & 0xFFFF) >= Opcodes.V1_6 ?
+                locality.getSkippedSites(name, desc) : new BitSet();
         desc = replaceStandardLibraryClass(desc);
         signature = replaceStandardLibraryClass(signature);
 
@@ -103,7 +123,7 @@ public class ClassTransformer extends ClassVisitor implements Opcodes {
          * infinite recursion at runtime */
         if ((access & ACC_BRIDGE) == 0) {
             mv = new MethodTransformer(mv, source, className, version, name, desc, access,
-                    loader, config.logger(), strategy);
+                    loader, config.logger(), strategy, config.sample_accesses, skippedFieldInsns);
         }
 
         if ("<clinit>".equals(name)) {
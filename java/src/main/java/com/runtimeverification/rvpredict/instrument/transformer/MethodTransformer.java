@@ -15,6 +15,7 @@ import org.objectweb.asm.commons.GeneratorAdapter;
 import org.objectweb.asm.commons.Method;
 
 import java.util.ArrayDeque;
+import java.util.BitSet;
 import java.util.Deque;
 import java.util.Optional;
 import java.util.Stack;
@@ -37,6 +38,27 @@ public class MethodTransformer extends MethodVisitor implements Opcodes {
 
     private final TransformStrategy strategy;
 
+    /**
+     * Specifies whether only some executions of the visited method log their memory accesses.
+     */
+    private final boolean sampleAccesses;
+
+    /**
+     * Local variable holding whether the current execution logs its memory accesses, or
+     * {@code -1} if every execution does.
+     */
+    private int sampled = -1;
+
+    /**
+     * Positions, among the field instructions of the visited method, of the ones which
+     * need not be logged.
+     *
+     * @see ThreadLocalityAnalysis
+     */
+    private final BitSet skippedFieldInsns;
+
+    private int fieldInsnIndex = 0;
+
     /**
      * Specifies whether the visited method is synchronized.
      */
@@ -59,7 +81,7 @@ public class MethodTransformer extends MethodVisitor implements Opcodes {
 
     public MethodTransformer(MethodVisitor mv, String source, String className, int version,
             String name, String desc, int access, ClassLoader loader, Logger logger,
-            TransformStrategy strategy) {
+            TransformStrategy strategy, boolean sampleAccesses, BitSet skippedFieldInsns) {
         super(Opcodes.ASM5, new GeneratorAdapter(mv, access, name, desc));
         this.mv = (GeneratorAdapter) super.mv;
         this.className = className;
@@ -71,6 +93,8 @@ public class MethodTransformer extends MethodVisitor implements Opcodes {
         this.loader = loader;
         this.logger = logger;
         this.strategy = strategy;
+        this.sampleAccesses = sampleAccesses;
+        this.skippedFieldInsns = skippedFieldInsns;
         this.locIdPrefix = String.format("%s(%s:", className.replace("/", ".") + "." + name,
                 source == null ? "Unknown" : source);
         if ("<init>".equals(name)) {
@@ -90,6 +114,14 @@ public class MethodTransformer extends MethodVisitor implements Opcodes {
     public void visitCode() {
         mv.visitCode();
 
+        if (sampleAccesses && strategy.logMemoryAccess()) {
+            /* decide once per execution whether its memory accesses are logged */
+            push(RVPredictRuntime.metadata.getMethodId(
+                    className.replace("/", ".") + "." + methodName + methodDesc));
+            invokeRtnMethod(SAMPLE_METHOD);
+            sampled = storeNewLocal(Type.BOOLEAN_TYPE);
+        }
+
         if (isSynchronized && strategy.logMonitorEvent()) {
             methodStart = mv.mark();
             /* log a MONITOR_ENTER at the start of a synchronized method */
@@ -156,6 +188,7 @@ public class MethodTransformer extends MethodVisitor implements Opcodes {
 
     @Override
     public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+        boolean isThreadLocal = skippedFieldInsns.get(fieldInsnIndex++);
         owner = replaceStandardLibraryClass(owner);
         desc = replaceStandardLibraryClass(desc);
         ClassFile classFile = resolveDeclaringClass(loader, owner, name);
@@ -168,7 +201,7 @@ public class MethodTransformer extends MethodVisitor implements Opcodes {
 
         /* Optimization: https://github.com/runtimeverification/rv-predict/issues/314 */
         if (!strategy.logMemoryAccess() || (classFile.getFieldAccess(name) & ACC_FINAL) != 0
-                || !needToInstrument(classFile)) {
+                || isThreadLocal || !needToInstrument(classFile)) {
             mv.visitFieldInsn(opcode, owner, name, desc);
             return;
         }
@@ -213,7 +246,19 @@ public class MethodTransformer extends MethodVisitor implements Opcodes {
 
         int varId = RVPredictRuntime.metadata.getVariableId(classFile.getClassName(), name);
         int locId = getCrntLocId();
+        if ((classFile.getFieldAccess(name) & ACC_VOLATILE) != 0) {
+            /* volatile accesses are synchronization events, logged in every execution */
+            logFieldInsn(opcode, owner, name, desc, varId, locId);
+        } else {
+            String fieldOwner = owner;
+            String fieldDesc = desc;
+            sampleOrLog(() -> logFieldInsn(opcode, fieldOwner, name, fieldDesc, varId, locId),
+                    () -> mv.visitFieldInsn(opcode, fieldOwner, name, fieldDesc));
+        }
+    }
 
+    private void logFieldInsn(int opcode, String owner, String name, String desc, int varId,
+            int locId) {
         Type valueType = Type.getType(desc);
         switch (opcode) {
         case GETSTATIC:
@@ -379,11 +424,11 @@ public class MethodTransformer extends MethodVisitor implements Opcodes {
         switch (opcode) {
         case AALOAD: case BALOAD: case CALOAD: case SALOAD:
         case IALOAD: case FALOAD: case DALOAD: case LALOAD:
-            logArrayLoad(opcode);
+            sampleOrLog(() -> logArrayLoad(opcode), () -> mv.visitInsn(opcode));
             break;
         case AASTORE: case BASTORE: case CASTORE: case SASTORE:
         case IASTORE: case FASTORE: case DASTORE: case LASTORE:
-            logArrayStore(opcode);
+            sampleOrLog(() -> logArrayStore(opcode), () -> mv.visitInsn(opcode));
             break;
         case MONITORENTER:
             if (strategy.logMonitorEvent()) {
@@ -488,6 +533,32 @@ public class MethodTransformer extends MethodVisitor implements Opcodes {
         mv.visitInsn(arrayStoreOpcode); // <--- array store happens
     }
 
+    /**
+     * Emits a memory access with its logging code. When sampling, the logging code only
+     * runs in the executions selected by {@link RVPredictRuntime#sampleMethod}, and the
+     * others branch to the plain access.
+     *
+     * @param loggedAccess
+     *            emits the access with its logging code
+     * @param plainAccess
+     *            emits the access alone; it must leave the same operand stack
+     */
+    private void sampleOrLog(Runnable loggedAccess, Runnable plainAccess) {
+        if (sampled < 0) {
+            loggedAccess.run();
+            return;
+        }
+        Label plain = mv.newLabel();
+        Label end = mv.newLabel();
+        mv.loadLocal(sampled, Type.BOOLEAN_TYPE);
+        mv.ifZCmp(GeneratorAdapter.EQ, plain);
+        loggedAccess.run();
+        mv.goTo(end);
+        mv.mark(plain);
+        plainAccess.run();
+        mv.mark(end);
+    }
+
     private void push(int... ints) {
         for (int i : ints) {
             mv.push(i);
@@ -550,7 +621,7 @@ public class MethodTransformer extends MethodVisitor implements Opcodes {
             break;
         case Type.OBJECT:
         case Type.ARRAY:
-            mv.invokeStatic(JL_SYSTEM_TYPE, Method.getMethod("int identityHashCode(Object)"));
+            mv.invokeStatic(RVPREDICT_OBJECT_IDS_TYPE, Method.getMethod("int of(Object)"));
             mv.visitInsn(I2L);
             break;
         case Type.FLOAT:
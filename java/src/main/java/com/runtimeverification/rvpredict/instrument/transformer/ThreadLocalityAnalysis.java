@@ -0,0 +1,366 @@
+package com.runtimeverification.rvpredict.instrument.transformer;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+/**
+ * Load-time analysis of a class finding the field access sites which cannot take part in
+ * a race, so that {@link MethodTransformer} does not log them. These are the accesses to:
+ * <ul>
+ * <li>the private non-volatile instance fields written only through {@code this} in the
+ * constructors of the class, and the private non-volatile static fields written only in
+ * its class initializer; like final fields, they do not change once the object or the
+ * class is initialized;</li>
+ * <li>the fields of {@code this} in a constructor which does not let {@code this} escape,
+ * since no other thread can reach the object yet.</li>
+ * </ul>
+ * As with the final fields, the races caused by publishing an object without
+ * synchronization are missed.
+ */
+final class ThreadLocalityAnalysis implements Opcodes {
+
+    private static final BitSet NONE = new BitSet();
+
+    private static final String JL_OBJECT = "java/lang/Object";
+
+    private final ClassNode classNode;
+
+    /**
+     * Frames of the constructors indexed by descriptor; {@code null} if the analysis failed.
+     */
+    private final Map<String, Frame<SourceValue>[]> ctorFrames = new HashMap<>();
+
+    /**
+     * Specifies whether each constructor, indexed by descriptor, keeps {@code this} to itself.
+     */
+    private final Map<String, Boolean> confinedCtors = new HashMap<>();
+
+    /**
+     * Field access sites which need not be logged, indexed by method name and descriptor.
+     * Each site is identified by its position among the field instructions of the method.
+     */
+    private final Map<String, BitSet> skippedSites = new HashMap<>();
+
+    private int numOfSites;
+
+    private int numOfSkippedSites;
+
+    private ThreadLocalityAnalysis(ClassNode classNode) {
+        this.classNode = classNode;
+    }
+
+    static ThreadLocalityAnalysis analyze(ClassReader cr) {
+        ClassNode classNode = new ClassNode();
+        cr.accept(classNode, ClassReader.SKIP_FRAMES);
+        ThreadLocalityAnalysis analysis = new ThreadLocalityAnalysis(classNode);
+        analysis.run();
+        return analysis;
+    }
+
+    /**
+     * @return the positions, among the field instructions of the given method in visiting
+     *         order, of the ones which need not be logged
+     */
+    BitSet getSkippedSites(String methodName, String methodDesc) {
+        return skippedSites.getOrDefault(methodName + methodDesc, NONE);
+    }
+
+    int getNumOfSites() {
+        return numOfSites;
+    }
+
+    int getNumOfSkippedSites() {
+        return numOfSkippedSites;
+    }
+
+    private void run() {
+        for (MethodNode m : classNode.methods) {
+            if ("<init>".equals(m.name)) {
+                ctorFrames.put(m.desc, analyzeFrames(m));
+            }
+        }
+
+        /* private fields which are only initialized; a volatile read also synchronizes
+         * with the initializing write, so it stays logged */
+        Set<String> initOnlyFields = new HashSet<>();
+        Set<String> initOnlyStaticFields = new HashSet<>();
+        for (FieldNode f : classNode.fields) {
+            if ((f.access & ACC_PRIVATE) != 0 && (f.access & (ACC_FINAL | ACC_VOLATILE)) == 0) {
+                ((f.access & ACC_STATIC) != 0 ? initOnlyStaticFields : initOnlyFields).add(f.name);
+            }
+        }
+        for (MethodNode m : classNode.methods) {
+            Frame<SourceValue>[] frames = "<init>".equals(m.name) ? ctorFrames.get(m.desc) : null;
+            for (int i = 0; i < m.instructions.size(); i++) {
+                AbstractInsnNode insn = m.instructions.get(i);
+                if (!(insn instanceof FieldInsnNode)
+                        || !((FieldInsnNode) insn).owner.equals(classNode.name)) {
+                    continue;
+                }
+                String name = ((FieldInsnNode) insn).name;
+                if (insn.getOpcode() == PUTSTATIC && !"<clinit>".equals(m.name)) {
+                    initOnlyStaticFields.remove(name);
+                } else if (insn.getOpcode() == PUTFIELD
+                        && (frames == null || frames[i] == null || !isThis(stack(frames[i], 1), frames, m))) {
+                    initOnlyFields.remove(name);
+                }
+            }
+        }
+
+        for (MethodNode m : classNode.methods) {
+            Frame<SourceValue>[] frames = "<init>".equals(m.name) && isConfined(m.desc) ?
+                    ctorFrames.get(m.desc) : null;
+            BitSet skipped = new BitSet();
+            int site = 0;
+            for (int i = 0; i < m.instructions.size(); i++) {
+                AbstractInsnNode insn = m.instructions.get(i);
+                if (!(insn instanceof FieldInsnNode)) {
+                    continue;
+                }
+                FieldInsnNode fieldInsn = (FieldInsnNode) insn;
+                boolean ownField = fieldInsn.owner.equals(classNode.name);
+                boolean skip;
+                switch (insn.getOpcode()) {
+                case GETSTATIC:
+                case PUTSTATIC:
+                    skip = ownField && initOnlyStaticFields.contains(fieldInsn.name);
+                    break;
+                case GETFIELD:
+                    skip = ownField && initOnlyFields.contains(fieldInsn.name)
+                            || frames != null && frames[i] != null && isThis(stack(frames[i], 0), frames, m);
+                    break;
+                default:
+                    skip = ownField && initOnlyFields.contains(fieldInsn.name)
+                            || frames != null && frames[i] != null && isThis(stack(frames[i], 1), frames, m);
+                    break;
+                }
+                if (skip) {
+                    skipped.set(site);
+                    numOfSkippedSites++;
+                }
+                site++;
+                numOfSites++;
+            }
+            if (!skipped.isEmpty()) {
+                skippedSites.put(m.name + m.desc, skipped);
+            }
+        }
+    }
+
+    private Frame<SourceValue>[] analyzeFrames(MethodNode m) {
+        for (int i = 0; i < m.instructions.size(); i++) {
+            AbstractInsnNode insn = m.instructions.get(i);
+            if (insn.getOpcode() == ASTORE && ((VarInsnNode) insn).var == 0) {
+                /* local variable 0 does not always hold this */
+                return null;
+            }
+        }
+        try {
+            return new Analyzer<>(new SourceInterpreter()).analyze(classNode.name, m);
+        } catch (AnalyzerException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks if a constructor never lets {@code this} escape, including through the
+     * constructor it delegates to.
+     */
+    private boolean isConfined(String ctorDesc) {
+        Boolean confined = confinedCtors.get(ctorDesc);
+        if (confined == null) {
+            /* assume the worst on cyclic delegation */
+            confinedCtors.put(ctorDesc, false);
+            confined = computeConfined(ctorDesc);
+            confinedCtors.put(ctorDesc, confined);
+        }
+        return confined;
+    }
+
+    private boolean computeConfined(String ctorDesc) {
+        Frame<SourceValue>[] frames = ctorFrames.get(ctorDesc);
+        if (frames == null) {
+            return false;
+        }
+        MethodNode ctor = null;
+        for (MethodNode m : classNode.methods) {
+            if ("<init>".equals(m.name) && m.desc.equals(ctorDesc)) {
+                ctor = m;
+            }
+        }
+        for (int i = 0; i < ctor.instructions.size(); i++) {
+            AbstractInsnNode insn = ctor.instructions.get(i);
+            Frame<SourceValue> frame = frames[i];
+            if (frame == null) {
+                continue;
+            }
+            int numOfOperands = numOfConsumedValues(insn);
+            for (int k = 0; k < numOfOperands; k++) {
+                if (mayBeThis(stack(frame, k), frames, ctor)
+                        && !isHarmlessUseOfThis(insn, k)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if consuming {@code this} as the {@code k}-th value from the top of the
+     * operand stack keeps it inside the constructor.
+     */
+    private boolean isHarmlessUseOfThis(AbstractInsnNode insn, int k) {
+        switch (insn.getOpcode()) {
+        case GETFIELD:
+        case DUP:
+        case DUP_X1:
+        case DUP_X2:
+        case POP:
+        case IFNULL:
+        case IFNONNULL:
+        case IF_ACMPEQ:
+        case IF_ACMPNE:
+        case INSTANCEOF:
+            return true;
+        case PUTFIELD:
+            /* as the receiver, not the value */
+            return k == 1;
+        case INVOKESPECIAL:
+            MethodInsnNode methodInsn = (MethodInsnNode) insn;
+            if (!"<init>".equals(methodInsn.name)
+                    || k != Type.getArgumentTypes(methodInsn.desc).length) {
+                return false;
+            }
+            if (methodInsn.owner.equals(classNode.name)) {
+                return isConfined(methodInsn.desc);
+            }
+            return methodInsn.owner.equals(JL_OBJECT) && methodInsn.owner.equals(classNode.superName);
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of operand stack values popped by an instruction which may
+     *         be object references
+     */
+    private static int numOfConsumedValues(AbstractInsnNode insn) {
+        switch (insn.getOpcode()) {
+        case INVOKEVIRTUAL:
+        case INVOKESPECIAL:
+        case INVOKEINTERFACE:
+            return Type.getArgumentTypes(((MethodInsnNode) insn).desc).length + 1;
+        case INVOKESTATIC:
+            return Type.getArgumentTypes(((MethodInsnNode) insn).desc).length;
+        case INVOKEDYNAMIC:
+            return Type.getArgumentTypes(((InvokeDynamicInsnNode) insn).desc).length;
+        case ASTORE: case ARETURN: case ATHROW: case MONITORENTER: case MONITOREXIT:
+        case CHECKCAST: case INSTANCEOF: case ARRAYLENGTH: case PUTSTATIC: case GETFIELD:
+        case IFNULL: case IFNONNULL: case POP: case DUP:
+            return 1;
+        case PUTFIELD: case IF_ACMPEQ: case IF_ACMPNE: case SWAP: case POP2: case DUP2:
+        case DUP_X1:
+            return 2;
+        case AASTORE: case DUP_X2: case DUP2_X1:
+            return 3;
+        case DUP2_X2:
+            return 4;
+        default:
+            return 0;
+        }
+    }
+
+    private static SourceValue stack(Frame<SourceValue> frame, int k) {
+        return frame.getStack(frame.getStackSize() - 1 - k);
+    }
+
+    private boolean isThis(SourceValue value, Frame<SourceValue>[] frames, MethodNode m) {
+        if (value.insns.isEmpty()) {
+            return false;
+        }
+        for (AbstractInsnNode source : value.insns) {
+            if (!isThisSource(source, frames, m, true, new HashSet<>())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean mayBeThis(SourceValue value, Frame<SourceValue>[] frames, MethodNode m) {
+        for (AbstractInsnNode source : value.insns) {
+            if (isThisSource(source, frames, m, false, new HashSet<>())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the value produced by an instruction is {@code this}: either loaded
+     * from local variable 0, or copied from {@code this} by a {@code DUP} or {@code SWAP}
+     * instruction.
+     * <p>
+     * The analysis does not tell which of the values moved by such an instruction a copy
+     * comes from, so it may be any of them.
+     *
+     * @param must
+     *            whether all the possible values copied by the instruction must be {@code this}
+     */
+    private boolean isThisSource(AbstractInsnNode source, Frame<SourceValue>[] frames, MethodNode m,
+            boolean must, Set<AbstractInsnNode> visited) {
+        switch (source.getOpcode()) {
+        case ALOAD:
+            return ((VarInsnNode) source).var == 0;
+        case DUP:
+        case DUP_X1:
+        case DUP_X2:
+        case DUP2:
+        case DUP2_X1:
+        case DUP2_X2:
+        case SWAP:
+            Frame<SourceValue> frame = frames[m.instructions.indexOf(source)];
+            if (frame == null || !visited.add(source)) {
+                return !must;
+            }
+            int numOfMoved = Math.min(numOfConsumedValues(source), frame.getStackSize());
+            for (int k = 0; k < numOfMoved; k++) {
+                SourceValue copied = stack(frame, k);
+                if (must && copied.insns.isEmpty()) {
+                    return false;
+                }
+                for (AbstractInsnNode s : copied.insns) {
+                    boolean isThis = isThisSource(s, frames, m, must, visited);
+                    if (must && !isThis) {
+                        return false;
+                    } else if (!must && isThis) {
+                        return true;
+                    }
+                }
+            }
+            return must;
+        default:
+            return false;
+        }
+    }
+
+}
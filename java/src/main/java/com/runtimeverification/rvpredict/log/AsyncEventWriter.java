@@ -0,0 +1,244 @@
+package com.runtimeverification.rvpredict.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Event writer which only stores the events of its thread in a single-producer
+ * single-consumer ring buffer; the events are compressed and written to disk by
+ * an {@link EventWriterThreads} draining the buffer.
+ * <p>
+ * When the buffer is full, the application thread either waits for the writer
+ * thread to make room or, if spilling is enabled, appends the events uncompressed
+ * to a spill file. A marker pushed to the buffer once there is room again tells the
+ * writer thread how many events to copy back from the spill file at that point, so
+ * the trace file still holds the events in the order they were logged.
+ */
+public class AsyncEventWriter implements IEventWriter {
+
+    /**
+     * Value of {@link #types} marking a slot which holds the number of events spilled
+     * since the previous marker.
+     */
+    private static final byte SPILL_MARKER = -1;
+
+    private static final long PARK_NANOS = 1000;
+
+    /**
+     * Decodes {@link #types}; cached because each call to {@code values()} returns a new array.
+     */
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    private final IEventWriter out;
+
+    private final Path spillPath;
+
+    private final int mask;
+
+    private final long[] gids;
+
+    private final int[] locIds;
+
+    private final long[] addrs;
+
+    private final long[] values;
+
+    private final byte[] types;
+
+    /**
+     * Index of the next slot to be read by the writer thread.
+     */
+    private final AtomicLong head = new AtomicLong(0);
+
+    /**
+     * Index of the next slot to be written by the application thread.
+     */
+    private final AtomicLong tail = new AtomicLong(0);
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    /*
+     * Fields accessed only by the application thread.
+     */
+    private boolean isWriting;
+
+    private long cachedHead = 0;
+
+    private DataOutputStream spillOut;
+
+    private long spilled = 0;
+
+    /**
+     * Id of the thread writing the events, set before its first event is published.
+     */
+    private long tid;
+
+    /*
+     * Fields accessed only by the writer thread.
+     */
+    private DataInputStream spillIn;
+
+    /**
+     * @param out the writer receiving the events drained from the buffer; owned by this object
+     * @param capacity minimum number of events held in the buffer, rounded up to a power of two
+     * @param spillPath the spill file to use when the buffer is full, or {@code null} to wait
+     *                  for the writer thread instead
+     */
+    public AsyncEventWriter(IEventWriter out, int capacity, Path spillPath) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.out = out;
+        this.spillPath = spillPath;
+        this.mask = size - 1;
+        this.gids = new long[size];
+        this.locIds = new int[size];
+        this.addrs = new long[size];
+        this.values = new long[size];
+        this.types = new byte[size];
+    }
+
+    @Override
+    public void write(long gid, long tid, int locId, long addr, long value,
+            EventType eventType) throws IOException {
+        if (isWriting) {
+            throw new RuntimeException("This method is not supposed to be reentrant!");
+        }
+
+        if (closed.get()) {
+            return;
+        }
+
+        isWriting = true;
+        try {
+            this.tid = tid;
+            if (spilled > 0 && hasRoom()) {
+                // the spilled events must reach the writer thread before any event logged after them
+                spillOut.flush();
+                publish(0, 0, 0, spilled, SPILL_MARKER);
+                spilled = 0;
+            }
+            while (!hasRoom()) {
+                if (spillPath != null) {
+                    spill(gid, tid, locId, addr, value, eventType);
+                    return;
+                }
+                LockSupport.parkNanos(PARK_NANOS);
+                if (closed.get()) {
+                    return;
+                }
+            }
+            publish(gid, locId, addr, value, (byte) eventType.ordinal());
+        } finally {
+            isWriting = false;
+        }
+    }
+
+    private boolean hasRoom() {
+        long t = tail.get();
+        if (t - cachedHead <= mask) {
+            return true;
+        }
+        cachedHead = head.get();
+        return t - cachedHead <= mask;
+    }
+
+    private void publish(long gid, int locId, long addr, long value, byte type) {
+        long t = tail.get();
+        int i = (int) t & mask;
+        gids[i] = gid;
+        locIds[i] = locId;
+        addrs[i] = addr;
+        values[i] = value;
+        types[i] = type;
+        tail.lazySet(t + 1);
+    }
+
+    private void spill(long gid, long tid, int locId, long addr, long value,
+            EventType eventType) throws IOException {
+        if (spillOut == null) {
+            spillOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillPath.toFile())));
+        }
+        spillOut.writeLong(gid);
+        spillOut.writeLong(tid);
+        spillOut.writeInt(locId);
+        spillOut.writeLong(addr);
+        spillOut.writeLong(value);
+        spillOut.writeByte(eventType.ordinal());
+        spilled++;
+    }
+
+    /**
+     * Writes the events available in the buffer to the underlying writer. Must be called
+     * from a single writer thread at a time.
+     *
+     * @return the number of slots drained
+     */
+    int drain() throws IOException {
+        long h = head.get();
+        long t = tail.get();
+        for (long k = h; k < t; k++) {
+            int i = (int) k & mask;
+            if (types[i] == SPILL_MARKER) {
+                copySpilledEvents(values[i]);
+            } else {
+                out.write(gids[i], tid, locIds[i], addrs[i], values[i], EVENT_TYPES[types[i]]);
+            }
+        }
+        head.lazySet(t);
+        return (int) (t - h);
+    }
+
+    /**
+     * Copies the given number of events from the spill file, or all the remaining ones if
+     * {@code count} is negative.
+     */
+    private void copySpilledEvents(long count) throws IOException {
+        if (spillIn == null) {
+            spillIn = new DataInputStream(new BufferedInputStream(new FileInputStream(spillPath.toFile())));
+        }
+        try {
+            for (long k = 0; count < 0 || k < count; k++) {
+                out.write(spillIn.readLong(), spillIn.readLong(), spillIn.readInt(), spillIn.readLong(),
+                        spillIn.readLong(), EVENT_TYPES[spillIn.readByte()]);
+            }
+        } catch (EOFException e) {
+            if (count >= 0) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stops accepting events, writes the events still buffered or spilled and closes the
+     * underlying writer. Must be called once the {@link EventWriterThreads} draining this
+     * writer have stopped.
+     */
+    @Override
+    public void close() throws IOException {
+        closed.set(true);
+        LockSupport.parkNanos(1);
+        try {
+            drain();
+            if (spillOut != null) {
+                // events spilled after the last marker are the most recent ones
+                spillOut.close();
+                copySpilledEvents(-1);
+                spillIn.close();
+                Files.deleteIfExists(spillPath);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+}
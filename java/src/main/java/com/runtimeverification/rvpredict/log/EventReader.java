@@ -10,6 +10,9 @@ import net.jpountz.lz4.LZ4BlockInputStream;
 /**
  * An event input stream lets an application to read {@link Event} from an
  * underlying input stream in a portable way.
+ * <p>
+ * Reads both the block format described by {@link TraceFormat} and the older
+ * format made of fixed size records.
  *
  * @author TraianSF
  * @author YilongL
@@ -20,27 +23,58 @@ public class EventReader implements IEventReader {
 
     private final ByteBuffer byteBuffer = ByteBuffer.allocate(Event.SIZEOF);
 
+    private final boolean blockFormat;
+
+    /**
+     * Number of bytes of the first fixed size record already read while looking for
+     * the header of the block format.
+     */
+    private int legacyPrefix = 0;
+
+    private long tid;
+
+    private ByteBuffer block = ByteBuffer.allocate(0);
+
+    private int remainingInBlock = 0;
+
+    private long blockMaxGid;
+
+    private long lastGid;
+
     private Event lastReadEvent;
 
     public EventReader(Path path) throws IOException {
         in = LZ4Utils.createDecompressionStream(path);
+        TraceFormat.readFully(in, byteBuffer.array(), 0, Long.BYTES);
+        blockFormat = byteBuffer.getLong(0) == TraceFormat.MAGIC;
+        if (blockFormat) {
+            TraceFormat.readFully(in, byteBuffer.array(), 0, TraceFormat.HEADER_SIZE - Long.BYTES);
+            byte version = byteBuffer.get(0);
+            if (version != TraceFormat.VERSION) {
+                throw new IOException("Unsupported trace format version: " + version);
+            }
+            tid = byteBuffer.getLong(1);
+        } else {
+            legacyPrefix = Long.BYTES;
+        }
         readEvent();
     }
 
     @Override
     public ReadonlyEventInterface readEvent() throws IOException {
-        int bytes;
-        int off = 0;
-        int len = Event.SIZEOF;
-        while ((bytes = in.read(byteBuffer.array(), off, len)) != len) {
-            if (bytes == -1) {
-                lastReadEvent = null;
-                throw new EOFException();
-            }
-            off += bytes;
-            len -= bytes;
+        try {
+            lastReadEvent = blockFormat ? readBlockEvent() : readLegacyEvent();
+        } catch (EOFException e) {
+            lastReadEvent = null;
+            throw e;
         }
-        lastReadEvent = new Event(
+        return lastReadEvent;
+    }
+
+    private Event readLegacyEvent() throws IOException {
+        TraceFormat.readFully(in, byteBuffer.array(), legacyPrefix, Event.SIZEOF - legacyPrefix);
+        legacyPrefix = 0;
+        Event event = new Event(
                 byteBuffer.getLong(),
                 byteBuffer.getLong(),
                 byteBuffer.getInt(),
@@ -48,7 +82,51 @@ public class EventReader implements IEventReader {
                 byteBuffer.getLong(),
                 EventType.values()[byteBuffer.get()]);
         byteBuffer.clear();
-        return lastReadEvent;
+        return event;
+    }
+
+    private Event readBlockEvent() throws IOException {
+        if (remainingInBlock == 0) {
+            readBlock();
+        }
+        EventType type = EventType.values()[block.get()];
+        long gid = lastGid + TraceFormat.getVarLong(block);
+        int locId = TraceFormat.getSignedVarInt(block);
+        long addr = (long) TraceFormat.getSignedVarInt(block) << 32
+                | TraceFormat.getSignedVarInt(block) & 0xFFFFFFFFL;
+        long value = TraceFormat.getSignedVarLong(block);
+        lastGid = gid;
+        if (--remainingInBlock == 0) {
+            assert gid == blockMaxGid : "Corrupted trace block: last global id " + gid
+                    + " instead of " + blockMaxGid;
+        }
+        return new Event(gid, tid, locId, addr, value, type);
+    }
+
+    private void readBlock() throws IOException {
+        long count = TraceFormat.readVarLong(in);
+        if (count == -1) {
+            throw new EOFException();
+        }
+        TraceFormat.readFully(in, byteBuffer.array(), 0, Long.BYTES);
+        long minGid = byteBuffer.getLong(0);
+        long gidRange = TraceFormat.readVarLong(in);
+        long size = TraceFormat.readVarLong(in);
+        if (gidRange == -1 || size == -1) {
+            throw new EOFException("Truncated trace block header.");
+        }
+        blockMaxGid = minGid + gidRange;
+        readBlockRecords(Math.toIntExact(size));
+        remainingInBlock = Math.toIntExact(count);
+        lastGid = minGid;
+    }
+
+    private void readBlockRecords(int size) throws IOException {
+        if (block.capacity() < size) {
+            block = ByteBuffer.allocate(size);
+        }
+        TraceFormat.readFully(in, block.array(), 0, size);
+        block.clear().limit(size);
     }
 
     @Override
@@ -1,57 +1,107 @@
 package com.runtimeverification.rvpredict.log;
 
-import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.LockSupport;
 
 import net.jpountz.lz4.LZ4BlockOutputStream;
 
-public class EventWriter implements Closeable {
+/**
+ * Writes the events of a single thread to a trace file, in blocks of varint
+ * encoded records described by {@link TraceFormat}.
+ * <p>
+ * The writer may be closed by another thread while its own thread is still logging, so
+ * {@link #write} and {@link #close} synchronize on the writer: the pending block is then
+ * flushed once, after any write in progress. The lock is only contended at the end of the
+ * execution.
+ */
+public class EventWriter implements IEventWriter {
 
     private final LZ4BlockOutputStream out;
 
     private boolean isWriting;
 
-    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private boolean closed = false;
 
-    private final ByteBuffer byteBuffer = ByteBuffer.allocate(Event.SIZEOF);
+    private final ByteBuffer header = ByteBuffer.allocate(
+            TraceFormat.HEADER_SIZE + TraceFormat.MAX_BLOCK_HEADER_SIZE);
+
+    private final ByteBuffer block = ByteBuffer.allocate(
+            TraceFormat.BLOCK_CAPACITY * TraceFormat.MAX_RECORD_SIZE);
+
+    private boolean headerWritten = false;
+
+    private int blockCount = 0;
+
+    private long minGid;
+
+    private long lastGid;
 
     public EventWriter(Path path) throws IOException {
         this.out = LZ4Utils.createCompressionStream(path);
     }
 
-    public void write(long gid, long tid, int locId, long addr, long value,
+    @Override
+    public synchronized void write(long gid, long tid, int locId, long addr, long value,
             EventType eventType) throws IOException {
         if (isWriting) {
             throw new RuntimeException("This method is not supposed to be reentrant!");
         }
 
-        if (closed.get()) {
+        if (closed) {
             return;
         }
 
         isWriting = true;
         try {
-            byteBuffer.putLong(gid)
-                .putLong(tid)
-                .putInt(locId)
-                .putLong(addr)
-                .putLong(value)
-                .put((byte) eventType.ordinal());
-            out.write(byteBuffer.array());
-            byteBuffer.clear();
+            if (!headerWritten) {
+                // all the events of a file come from the thread which created it
+                header.putLong(TraceFormat.MAGIC)
+                    .put(TraceFormat.VERSION)
+                    .putLong(tid);
+                headerWritten = true;
+            }
+            if (blockCount == 0) {
+                minGid = lastGid = gid;
+            }
+            assert gid >= lastGid : "Global ids of a thread must not decrease.";
+            block.put((byte) eventType.ordinal());
+            TraceFormat.putVarLong(block, gid - lastGid);
+            TraceFormat.putSignedVarInt(block, locId);
+            TraceFormat.putSignedVarInt(block, (int) (addr >> 32));
+            TraceFormat.putSignedVarInt(block, (int) addr);
+            TraceFormat.putSignedVarLong(block, value);
+            lastGid = gid;
+            if (++blockCount == TraceFormat.BLOCK_CAPACITY) {
+                flushBlock();
+            }
         } finally {
             isWriting = false;
         }
     }
 
+    private void flushBlock() throws IOException {
+        if (blockCount == 0) {
+            return;
+        }
+        TraceFormat.putVarLong(header, blockCount);
+        header.putLong(minGid);
+        TraceFormat.putVarLong(header, lastGid - minGid);
+        TraceFormat.putVarLong(header, block.position());
+        out.write(header.array(), 0, header.position());
+        out.write(block.array(), 0, block.position());
+        header.clear();
+        block.clear();
+        blockCount = 0;
+    }
+
     @Override
-    public void close() throws IOException {
-        closed.set(true);
-        LockSupport.parkNanos(1);
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flushBlock();
         out.close();
     }
 
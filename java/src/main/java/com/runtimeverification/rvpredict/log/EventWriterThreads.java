@@ -0,0 +1,71 @@
+package com.runtimeverification.rvpredict.log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background threads draining the buffers of {@link AsyncEventWriter}s, so that the
+ * compression and the file writes of the trace do not run on the application threads.
+ * <p>
+ * Each writer is drained by a single thread, picked by its registration order.
+ */
+public class EventWriterThreads {
+
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final List<AsyncEventWriter> writers = new CopyOnWriteArrayList<>();
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private volatile boolean shutdown = false;
+
+    public EventWriterThreads(int numThreads) {
+        for (int k = 0; k < numThreads; k++) {
+            int index = k;
+            Thread thread = new Thread(() -> drainLoop(index, numThreads), "RV-Predict event writer " + k);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+    }
+
+    public void register(AsyncEventWriter writer) {
+        writers.add(writer);
+    }
+
+    private void drainLoop(int index, int numThreads) {
+        while (!shutdown) {
+            int drained = 0;
+            for (int i = index; i < writers.size(); i += numThreads) {
+                try {
+                    drained += writers.get(i).drain();
+                } catch (IOException e) {
+                    System.err.println("Warning: I/O Error while logging the execution. The log might be unreadable.");
+                    System.err.println(e.getMessage());
+                }
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Stops the threads; the events left in the buffers are written when the writers are closed.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.runtimeverification.rvpredict.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * An interface for writing the events of a single thread; to be used in
+ * {@link PersistentLoggingEngine}.
+ */
+public interface IEventWriter extends Closeable {
+
+    void write(long gid, long tid, int locId, long addr, long value, EventType eventType)
+            throws IOException;
+
+}
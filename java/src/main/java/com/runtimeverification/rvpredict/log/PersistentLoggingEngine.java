@@ -34,7 +34,6 @@ import com.runtimeverification.rvpredict.util.Constants;
 
 import java.io.IOException;
 import java.io.ObjectOutputStream;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
@@ -59,21 +58,39 @@ public class PersistentLoggingEngine implements ILoggingEngine, Constants {
 
     private final Metadata metadata;
 
-    private final List<EventWriter> eventWriters = new ArrayList<>();
+    private final List<IEventWriter> eventWriters = new ArrayList<>();
 
     private final ThreadLocalEventWriter threadLocalEventWriter = new ThreadLocalEventWriter();
 
+    /**
+     * GID sources of the threads, if {@link Configuration#sync_only_gids} is set.
+     */
+    private final ThreadLocal<ThreadEventClock> threadEventClock;
+
+    /**
+     * Threads writing the trace files in the background, if {@link Configuration#async_log_writers} is set.
+     */
+    private final EventWriterThreads writerThreads;
+
     public PersistentLoggingEngine(Configuration config, Metadata metadata) {
         this.config = config;
         this.metadata = metadata;
+        this.threadEventClock = config.sync_only_gids ?
+                ThreadLocal.withInitial(() -> new ThreadEventClock(globalEventID)) : null;
+        this.writerThreads = config.async_log_writers > 0 ?
+                new EventWriterThreads(config.async_log_writers) : null;
     }
 
     @Override
     public void finishLogging() throws IOException {
         shutdown = true;
 
+        if (writerThreads != null) {
+            writerThreads.shutdown();
+        }
+
         synchronized (eventWriters) {
-            for (EventWriter writer : eventWriters) {
+            for (IEventWriter writer : eventWriters) {
                 writer.close();
             }
         }
@@ -96,6 +113,9 @@ public class PersistentLoggingEngine implements ILoggingEngine, Constants {
         switch (eventType) {
         case READ:
         case WRITE:
+            gid = claimAccessGID(addr1, addr2);
+            log(eventType, gid, tid, locId, addr1, addr2, value1);
+            break;
         case WRITE_LOCK:
         case WRITE_UNLOCK:
         case READ_LOCK:
@@ -106,30 +126,30 @@ public class PersistentLoggingEngine implements ILoggingEngine, Constants {
         case JOIN_THREAD:
         case CLINIT_ENTER:
         case CLINIT_EXIT:
-            gid = globalEventID.getAndIncrement();
+            gid = claimGID(1);
             log(eventType, gid, tid, locId, addr1, addr2, value1);
             break;
         case INVOKE_METHOD:
         case FINISH_METHOD:
-            gid = globalEventID.get();
+            gid = peekGID();
             log(eventType, gid, tid, locId, addr1, addr2, value1);
             break;
         case ATOMIC_READ:
-            gid = globalEventID.getAndAdd(3);
+            gid = claimGID(3);
             atomLock = extra > 0 ? extra : addr1;
             log(EventType.WRITE_LOCK,   gid,     tid, locId, ATOMIC_LOCK_C, atomLock, 0);
             log(EventType.READ,         gid + 1, tid, locId, addr1, addr2, value1);
             log(EventType.WRITE_UNLOCK, gid + 2, tid, locId, ATOMIC_LOCK_C, atomLock, 0);
             break;
         case ATOMIC_WRITE:
-            gid = globalEventID.getAndAdd(3);
+            gid = claimGID(3);
             atomLock = extra > 0 ? extra : addr1;
             log(EventType.WRITE_LOCK,   gid,     tid, locId, ATOMIC_LOCK_C, atomLock, 0);
             log(EventType.WRITE,        gid + 1, tid, locId, addr1, addr2, value1);
             log(EventType.WRITE_UNLOCK, gid + 2, tid, locId, ATOMIC_LOCK_C, atomLock, 0);
             break;
         case ATOMIC_READ_THEN_WRITE:
-            gid = globalEventID.getAndAdd(4);
+            gid = claimGID(4);
             atomLock = extra > 0 ? extra : addr1;
             log(EventType.WRITE_LOCK,   gid,     tid, locId, ATOMIC_LOCK_C, atomLock, 0);
             log(EventType.READ,         gid + 1, tid, locId, addr1, addr2, value1);
@@ -141,9 +161,37 @@ public class PersistentLoggingEngine implements ILoggingEngine, Constants {
         }
     }
 
+    /**
+     * Claims {@code n} consecutive GIDs for synchronization events.
+     *
+     * @return the first GID claimed
+     */
+    private long claimGID(int n) {
+        return threadEventClock == null ? globalEventID.getAndAdd(n) : threadEventClock.get().claimSync(n);
+    }
+
+    /**
+     * Claims the GID of a read or write access, which is a synchronization event only
+     * if the address is volatile.
+     */
+    private long claimAccessGID(int addr1, int addr2) {
+        if (threadEventClock == null) {
+            return globalEventID.getAndIncrement();
+        }
+        ThreadEventClock clock = threadEventClock.get();
+        return addr2 < 0 && metadata.isVolatile(addr2) ? clock.claimSync(1) : clock.claimPlain();
+    }
+
+    /**
+     * Returns the GID of the next event of the current thread, without claiming it.
+     */
+    private long peekGID() {
+        return threadEventClock == null ? globalEventID.get() : threadEventClock.get().peek();
+    }
+
     private void log(EventType eventType, long gid, long tid, int locId, int addr1, int addr2,
             long value) {
-        EventWriter writer = threadLocalEventWriter.get();
+        IEventWriter writer = threadLocalEventWriter.get();
         if (writer != null) {
             try {
                 writer.write(gid, tid, locId, (long) addr1 << 32 | addr2 & 0xFFFFFFFFL, value, eventType);
@@ -153,9 +201,9 @@ public class PersistentLoggingEngine implements ILoggingEngine, Constants {
         }
     }
 
-    private class ThreadLocalEventWriter extends ThreadLocal<EventWriter> {
+    private class ThreadLocalEventWriter extends ThreadLocal<IEventWriter> {
         @Override
-        protected EventWriter initialValue() {
+        protected IEventWriter initialValue() {
             synchronized (eventWriters) {
                 if (shutdown) {
                     System.err.printf("[Warning] JVM exits before %s finishes;"
@@ -164,8 +212,15 @@ public class PersistentLoggingEngine implements ILoggingEngine, Constants {
                     return null;
                 } else {
                     try {
-                        Path path = config.getTraceFilePath(eventWriters.size());
-                        EventWriter eventWriter = new EventWriter(path);
+                        int id = eventWriters.size();
+                        IEventWriter eventWriter = new EventWriter(config.getTraceFilePath(id));
+                        if (writerThreads != null) {
+                            AsyncEventWriter asyncEventWriter = new AsyncEventWriter(eventWriter,
+                                    config.async_log_buffer,
+                                    config.async_log_spill ? config.getSpillFilePath(id) : null);
+                            writerThreads.register(asyncEventWriter);
+                            eventWriter = asyncEventWriter;
+                        }
                         eventWriters.add(eventWriter);
                         return eventWriter;
                     } catch (IOException e) {
@@ -0,0 +1,156 @@
+package com.runtimeverification.rvpredict.log;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An {@link IEventReader} decorator that decodes the events of another reader
+ * ahead of time on a shared pool of decoder threads.
+ * <p>
+ * Decoded events are handed over in chunks through a bounded queue holding at
+ * most {@code depth} events. When the queue is full no decoding task is
+ * scheduled for this reader, so a slow consumer never makes the decoders hold
+ * more than {@code depth} events per reader, and a pool smaller than the number
+ * of readers cannot be starved by a single reader. At most one decoding task
+ * per reader is in flight at any time, so the underlying reader is never
+ * accessed concurrently.
+ */
+public class PrefetchingEventReader implements IEventReader {
+
+    private static final int MAX_CHUNK_SIZE = 1024;
+
+    private static class Chunk {
+        private final ReadonlyEventInterface[] events;
+        private final boolean last;
+        private final IOException failure;
+
+        private Chunk(ReadonlyEventInterface[] events, boolean last, IOException failure) {
+            this.events = events;
+            this.last = last;
+            this.failure = failure;
+        }
+    }
+
+    private final IEventReader source;
+
+    private final Executor decoders;
+
+    private final int chunkSize;
+
+    private final BlockingQueue<Chunk> chunks;
+
+    private final AtomicBoolean decoding = new AtomicBoolean(false);
+
+    /**
+     * Set once the decoder has reached the end of the source or the reader is
+     * closed; no more decoding tasks are scheduled afterwards.
+     */
+    private volatile boolean finished = false;
+
+    private Chunk currentChunk;
+
+    private int index;
+
+    private ReadonlyEventInterface lastReadEvent;
+
+    /**
+     * Wraps the given reader, which must already be positioned at its first
+     * event, like all {@link IEventReader}s after construction.
+     *
+     * @param source the reader to decode events from; owned by this object
+     * @param decoders the executor running the decoding tasks
+     * @param depth maximum number of events decoded ahead of the consumer
+     */
+    public PrefetchingEventReader(IEventReader source, Executor decoders, int depth) {
+        this.source = source;
+        this.decoders = decoders;
+        this.chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, depth));
+        this.chunks = new ArrayBlockingQueue<>(Math.max(1, depth / chunkSize));
+        this.lastReadEvent = source.lastReadEvent();
+        this.currentChunk = new Chunk(new ReadonlyEventInterface[0], lastReadEvent == null, null);
+        if (lastReadEvent == null) {
+            finished = true;
+        } else {
+            schedule();
+        }
+    }
+
+    @Override
+    public ReadonlyEventInterface readEvent() throws IOException {
+        while (index >= currentChunk.events.length) {
+            if (currentChunk.failure != null) {
+                lastReadEvent = null;
+                throw currentChunk.failure;
+            }
+            if (currentChunk.last) {
+                lastReadEvent = null;
+                throw new EOFException();
+            }
+            try {
+                currentChunk = chunks.take();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            index = 0;
+            schedule();
+        }
+        lastReadEvent = currentChunk.events[index++];
+        return lastReadEvent;
+    }
+
+    @Override
+    public ReadonlyEventInterface lastReadEvent() {
+        return lastReadEvent;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        synchronized (source) {
+            source.close();
+        }
+    }
+
+    private void schedule() {
+        if (!finished && chunks.remainingCapacity() > 0 && decoding.compareAndSet(false, true)) {
+            decoders.execute(this::decode);
+        }
+    }
+
+    private void decode() {
+        ReadonlyEventInterface[] events = new ReadonlyEventInterface[chunkSize];
+        int size = 0;
+        boolean last = false;
+        IOException failure = null;
+        synchronized (source) {
+            try {
+                while (size < chunkSize) {
+                    ReadonlyEventInterface event = source.readEvent();
+                    if (event == null) {
+                        last = true;
+                        break;
+                    }
+                    events[size++] = event;
+                }
+            } catch (EOFException e) {
+                last = true;
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException(e);
+            }
+        }
+        if (last || failure != null) {
+            finished = true;
+        }
+        chunks.add(new Chunk(size == chunkSize ? events : Arrays.copyOf(events, size), last, failure));
+        decoding.set(false);
+        schedule();
+    }
+}
@@ -0,0 +1,70 @@
+package com.runtimeverification.rvpredict.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-thread source of global event ids in which only the synchronization events
+ * take a number from the shared counter.
+ * <p>
+ * The id of a synchronization event is the number it takes, shifted left by
+ * {@link #PLAIN_ACCESS_BITS}. The plain accesses which follow it in the same thread
+ * get the next ids, so they are ordered after the synchronization event and before
+ * any event which takes a later number, in any thread. Since each number is taken by
+ * a single thread, the ids stay unique. A thread with more than
+ * {@code 2^PLAIN_ACCESS_BITS - 1} consecutive plain accesses takes a new number.
+ * <p>
+ * The resulting order is consistent with the synchronization order and the order of
+ * each thread, but plain accesses of different threads between the same
+ * synchronization events are not ordered as they happened.
+ */
+final class ThreadEventClock {
+
+    static final int PLAIN_ACCESS_BITS = 16;
+
+    private static final int MAX_PLAIN_ACCESSES = (1 << PLAIN_ACCESS_BITS) - 1;
+
+    private final AtomicLong counter;
+
+    private long base;
+
+    /**
+     * Number of ids used after {@link #base}; no number has been taken yet when it is
+     * {@link #MAX_PLAIN_ACCESSES}.
+     */
+    private int used = MAX_PLAIN_ACCESSES;
+
+    ThreadEventClock(AtomicLong counter) {
+        this.counter = counter;
+    }
+
+    /**
+     * Claims {@code n} consecutive ids for synchronization events.
+     *
+     * @return the first id claimed
+     */
+    long claimSync(int n) {
+        assert n <= MAX_PLAIN_ACCESSES;
+        base = counter.getAndIncrement() << PLAIN_ACCESS_BITS;
+        used = n - 1;
+        return base;
+    }
+
+    /**
+     * Claims the id of a plain access, without touching the shared counter unless
+     * the ids following the last number taken are exhausted.
+     */
+    long claimPlain() {
+        if (used == MAX_PLAIN_ACCESSES) {
+            return claimSync(1);
+        }
+        return base + ++used;
+    }
+
+    /**
+     * Returns the id of the next event, without claiming it.
+     */
+    long peek() {
+        return base + used + 1;
+    }
+
+}
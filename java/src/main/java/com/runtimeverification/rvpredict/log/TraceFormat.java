@@ -0,0 +1,139 @@
+package com.runtimeverification.rvpredict.log;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Describes the block format of the trace files written by {@link EventWriter}.
+ * <p>
+ * A trace file holds the events of a single thread. After the LZ4 decompression it
+ * starts with a header made of {@link #MAGIC}, the format {@link #VERSION} and the
+ * thread id, all fixed size. It is followed by blocks made of:
+ * <ul>
+ * <li>the number of events in the block, as a varint;</li>
+ * <li>the smallest global id in the block, as a fixed size long;</li>
+ * <li>the difference between the largest and the smallest global ids, as a varint;</li>
+ * <li>the size in bytes of the records, as a varint;</li>
+ * <li>the records themselves.</li>
+ * </ul>
+ * Each record holds the event type as one byte, the difference between its global id
+ * and the one of the previous record of the block (or the smallest global id for the
+ * first record) as a varint, then the location id, the two halves of the address and
+ * the value as zigzag varints.
+ * <p>
+ * Files written before this format, made of fixed {@link Event#SIZEOF} byte records,
+ * are told apart by their first long, which is the (non-negative) global id of their
+ * first event and thus never equal to {@link #MAGIC}.
+ *
+ * @see EventReader
+ */
+final class TraceFormat {
+
+    static final long MAGIC = 0xF2E7_5250_5452_4332L;
+
+    static final byte VERSION = 2;
+
+    /**
+     * Size of the file header: the magic number, the version and the thread id.
+     */
+    static final int HEADER_SIZE = 8 + 1 + 8;
+
+    /**
+     * Maximum number of events in a block.
+     */
+    static final int BLOCK_CAPACITY = 1024;
+
+    private static final int MAX_VARINT_INT_SIZE = 5;
+
+    private static final int MAX_VARINT_LONG_SIZE = 10;
+
+    /**
+     * Maximum size of a record: type, global id delta, location id, address halves and value.
+     */
+    static final int MAX_RECORD_SIZE =
+            1 + MAX_VARINT_LONG_SIZE + 3 * MAX_VARINT_INT_SIZE + MAX_VARINT_LONG_SIZE;
+
+    /**
+     * Maximum size of a block header: count, smallest global id, global id range and size.
+     */
+    static final int MAX_BLOCK_HEADER_SIZE =
+            MAX_VARINT_INT_SIZE + 8 + MAX_VARINT_LONG_SIZE + MAX_VARINT_INT_SIZE;
+
+    private TraceFormat() { }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void putSignedVarLong(ByteBuffer buffer, long value) {
+        putVarLong(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    static void putSignedVarInt(ByteBuffer buffer, int value) {
+        putVarLong(buffer, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static long getSignedVarLong(ByteBuffer buffer) {
+        long value = getVarLong(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int getSignedVarInt(ByteBuffer buffer) {
+        int value = (int) getVarLong(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a varint directly from the given stream.
+     *
+     * @return the value read, or {@code -1} if the stream ends before its first byte
+     */
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                if (shift == 0) {
+                    return -1;
+                }
+                throw new EOFException("Truncated trace block header.");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Reads exactly {@code len} bytes from the given stream into {@code array}.
+     */
+    static void readFully(InputStream in, byte[] array, int off, int len) throws IOException {
+        int bytes;
+        while ((bytes = in.read(array, off, len)) != len) {
+            if (bytes == -1) {
+                throw new EOFException();
+            }
+            off += bytes;
+            len -= bytes;
+        }
+    }
+
+}
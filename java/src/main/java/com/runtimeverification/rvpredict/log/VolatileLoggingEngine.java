@@ -28,10 +28,13 @@
  * *****************************************************************************/
 package com.runtimeverification.rvpredict.log;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.runtimeverification.rvpredict.config.Configuration;
 import com.runtimeverification.rvpredict.engine.main.MaximalRaceDetector;
 import com.runtimeverification.rvpredict.engine.main.RaceDetector;
 import com.runtimeverification.rvpredict.metadata.Metadata;
+import com.runtimeverification.rvpredict.order.FastTrackRaceDetector;
 import com.runtimeverification.rvpredict.order.JavaHappensBeforeRaceDetector;
 import com.runtimeverification.rvpredict.performance.AnalysisLimit;
 import com.runtimeverification.rvpredict.smt.RaceSolver;
@@ -47,6 +50,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
@@ -63,6 +69,11 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
 
     private static final int INFINITY = Integer.MAX_VALUE / 2;
 
+    /**
+     * The event types indexed by ordinal; {@link EventType#values()} copies the array.
+     */
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
     private final Configuration config;
 
     private volatile boolean closed = false;
@@ -113,6 +124,12 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
 
     private final Thread bufferCleaner;
 
+    /**
+     * Thread analyzing the closed windows while the application keeps logging, if
+     * {@link Configuration#online_windows_in_flight} is set.
+     */
+    private final WindowAnalyzer windowAnalyzer;
+
     private final RaceDetector detector;
 
     public VolatileLoggingEngine(Configuration config, Metadata metadata) {
@@ -122,12 +139,20 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
         globalAnalysisLimit =
                 new AnalysisLimit(Clock.systemUTC(),"Global", Optional.empty(), config.global_timeout, config.logger());
         if (config.isHappensBefore()) {
-            this.detector = new JavaHappensBeforeRaceDetector(config, metadata);
+            this.detector = config.isFastTrack() ?
+                    new FastTrackRaceDetector(config, metadata) :
+                    new JavaHappensBeforeRaceDetector(config, metadata);
         } else {
             this.detector = new MaximalRaceDetector(config, RaceSolver.create(config));
         }
         bufferCleaner = new BufferCleaner();
         bufferCleaner.start();
+        if (config.online_windows_in_flight > 0) {
+            windowAnalyzer = new WindowAnalyzer(config.online_windows_in_flight, config.online_drop_windows);
+            windowAnalyzer.start();
+        } else {
+            windowAnalyzer = null;
+        }
     }
 
     @Override
@@ -151,6 +176,9 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
                 LockSupport.parkNanos(1);
             }
         }
+        if (windowAnalyzer != null) {
+            windowAnalyzer.finish();
+        }
 
         List<String> reports = detector.getRaceReports();
         if (reports.isEmpty()) {
@@ -212,29 +240,44 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
         while (finalized.sum() < numOfEvents) {
             LockSupport.parkNanos(1);
         }
-        Buffer[] activeBuffersCopy = activeBuffers.toArray(new Buffer[0]);
+        List<FrozenBuffer> window = new ArrayList<>();
         try {
-            crntState.preStartWindow();
-            List<RawTrace> rawTraces = new ArrayList<>();
-            for (Buffer b : activeBuffersCopy) {
+            for (Buffer b : activeBuffers.toArray(new Buffer[0])) {
                 if (!b.isEmpty()) {
-                    if (b.start < b.cursor) {
-                        TraceCache.registerNewThreads(Arrays.asList(b.events).subList(b.start, b.cursor), crntState);
-                    } else {
-                        TraceCache.registerNewThreads(Arrays.asList(b.events).subList(b.start, b.length), crntState);
-                        TraceCache.registerNewThreads(Arrays.asList(b.events).subList(0, b.cursor), crntState);
-                    }
+                    window.add(new FrozenBuffer(b.tid, b.materializeFinalizedEvents(), b.numOfFinalizedEvents()));
                 }
             }
-            for (Buffer b : activeBuffersCopy) {
-                if (!b.isEmpty()) {
-                    Event oneEvent = b.events[b.start];
-                    long otid = oneEvent.getOriginalThreadId();
-                    rawTraces.add(TraceCache.tidSpanToRawTrace(b.events, b.start, b.cursor, 0, otid, crntState));
-                }
+        } catch (Throwable e) {
+            config.logger().debug(e);
+            /* cannot use System.exit because it may lead to deadlock */
+            Runtime.getRuntime().halt(1);
+        }
+        if (windowAnalyzer == null) {
+            analyzeWindow(window, true);
+        } else {
+            windowAnalyzer.submit(window);
+        }
+    }
+
+    /**
+     * Updates the trace state with the events of a closed window and, if {@code detectRaces}
+     * is set, runs the race detection on them. Windows must be analyzed one at a time, in order.
+     */
+    @VisibleForTesting
+    void analyzeWindow(List<FrozenBuffer> window, boolean detectRaces) {
+        try {
+            crntState.preStartWindow();
+            List<RawTrace> rawTraces = new ArrayList<>();
+            for (FrozenBuffer b : window) {
+                TraceCache.registerNewThreads(Arrays.asList(b.events).subList(0, b.size), crntState);
+            }
+            for (FrozenBuffer b : window) {
+                rawTraces.add(TraceCache.tidSpanToRawTrace(b.events, 0, b.size, 0, b.tid, crntState));
             }
             if (rawTraces.size() == 1) {
                 crntState.fastProcess(rawTraces.iterator().next());
+            } else if (!detectRaces) {
+                rawTraces.forEach(crntState::fastProcess);
             } else {
                 AnalysisLimit windowAnalysisLimit =
                         new AnalysisLimit(
@@ -297,10 +340,19 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
 
         final int mask;
 
-        /**
-         * Circular array used to store events.
+        /*
+         * Circular arrays used to store the fields of the events; the events
+         * themselves are only created for the race detection.
          */
-        final Event[] events;
+        final long[] gids;
+
+        final int[] locIds;
+
+        final long[] addrs;
+
+        final long[] values;
+
+        final byte[] types;
 
         /**
          * The (inclusive) start index of the events in circular array.
@@ -336,18 +388,18 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
             tid = owner.getId();
             length = getCircularArrayLength(bound);
             mask = length - 1;
-            events = new Event[length];
-            for (int i = 0; i < length; i++) {
-                events[i] = new Event();
-                events[i].setOriginalThreadId(tid);
-            }
+            gids = new long[length];
+            locIds = new int[length];
+            addrs = new long[length];
+            values = new long[length];
+            types = new byte[length];
         }
 
         private int getCircularArrayLength(int bound) {
             // reserve extra slots for call stack events
             // TODO(YilongL): how to determine the number of extra slots?
             int x = (config.stacks() ? bound << 4 : bound) + THRESHOLD;
-            return Math.max(1 << (32 - Integer.numberOfLeadingZeros(x)), 1024);
+            return Math.max(TraceCache.getNextPowerOfTwo(x), 1024);
         }
 
         /**
@@ -357,6 +409,26 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
             return cursor == start;
         }
 
+        int numOfFinalizedEvents() {
+            return (cursor - start + length) & mask;
+        }
+
+        /**
+         * Creates the finalized events, in an array whose length is a power of two.
+         */
+        Event[] materializeFinalizedEvents() {
+            int n = numOfFinalizedEvents();
+            Event[] events = new Event[TraceCache.getNextPowerOfTwo(n)];
+            for (int i = 0, p = start; i < n; i++, p = next(p)) {
+                events[i] = new Event(gids[p], tid, locIds[p], addrs[p], values[p], type(p));
+            }
+            return events;
+        }
+
+        EventType type(int p) {
+            return EVENT_TYPES[types[p]];
+        }
+
         /**
          * Consumes all finalized events.
          */
@@ -415,7 +487,7 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
                 break;
             case FINISH_METHOD:
                 int last = prev(end);
-                if (cursor != end && events[last].isInvokeMethod()) {
+                if (cursor != end && type(last) == EventType.INVOKE_METHOD) {
                     numOfCallStackEvents--;
                     end = last;
                     break;
@@ -460,12 +532,11 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
         }
 
         private void log(EventType eventType, int locId, int addr1, int addr2, long value) {
-            Event event = events[end];
+            locIds[end] = locId;
+            addrs[end] = (long) addr1 << 32 | addr2 & 0xFFFFFFFFL;
+            values[end] = value;
+            types[end] = (byte) eventType.ordinal();
             end = next(end);
-            event.setLocationId(locId);
-            event.setAddress((long) addr1 << 32 | addr2 & 0xFFFFFFFFL);
-            event.setDataValue(value);
-            event.setType(eventType);
         }
 
         void finalizeEvents() {
@@ -475,14 +546,15 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
             cursor = end;
             if (numOfCallStackEvents == 0) {
                 for (int i = 0; i < d; i++) {
-                    events[p].setEventId(gid++);
+                    gids[p] = gid++;
                     p = next(p);
                 }
             } else {
                 for (int i = 0; i < d + numOfCallStackEvents; i++) {
                     /* a dirty hack based on the fact that we never use the GID
                      * of a MetaEvent */
-                    events[p].setEventId(events[p].isCallStackEvent() ? gid : gid++);
+                    EventType type = type(p);
+                    gids[p] = type == EventType.INVOKE_METHOD || type == EventType.FINISH_METHOD ? gid : gid++;
                     p = next(p);
                 }
             }
@@ -521,6 +593,130 @@ public class VolatileLoggingEngine implements ILoggingEngine, Constants {
         }
     }
 
+    /**
+     * The finalized events of a {@link Buffer} when its window was closed.
+     */
+    @VisibleForTesting
+    static class FrozenBuffer {
+        final long tid;
+
+        final Event[] events;
+
+        final int size;
+
+        FrozenBuffer(long tid, Event[] events, int size) {
+            this.tid = tid;
+            this.events = events;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Thread analyzing the closed windows in order, so that the thread closing a window
+     * does not stall the other application threads during the race detection.
+     * <p>
+     * At most {@code maxInFlight} windows are waiting for or undergoing race detection.
+     * When another window is closed, the closing thread either waits or, if windows may
+     * be dropped, submits it for updating the trace state only, which is fast enough
+     * not to fall behind.
+     * <p>
+     * The dropped windows still keep their events until the trace state is updated with
+     * them, after the windows ahead of them. So at most {@code 2 * maxInFlight} windows
+     * may be waiting in all; the thread closing one more waits for the analyzer to catch up.
+     */
+    private class WindowAnalyzer extends Thread {
+
+        private final BlockingQueue<Window> windows;
+
+        private final Semaphore inFlight;
+
+        private final boolean dropWindows;
+
+        private int droppedWindows = 0;
+
+        private class Window {
+            /**
+             * The buffers of the window, or {@code null} to stop the analyzer.
+             */
+            final List<FrozenBuffer> buffers;
+
+            final boolean detectRaces;
+
+            Window(List<FrozenBuffer> buffers, boolean detectRaces) {
+                this.buffers = buffers;
+                this.detectRaces = detectRaces;
+            }
+        }
+
+        WindowAnalyzer(int maxInFlight, boolean dropWindows) {
+            super("RV-Predict window analyzer");
+            setDaemon(true);
+            this.inFlight = new Semaphore(maxInFlight);
+            this.dropWindows = dropWindows;
+            this.windows = new LinkedBlockingQueue<>(dropWindows ? 2 * maxInFlight : maxInFlight);
+        }
+
+        /**
+         * Submits a closed window; only called from the critical section of {@link #claimGID}.
+         */
+        void submit(List<FrozenBuffer> buffers) {
+            boolean detectRaces;
+            if (dropWindows) {
+                detectRaces = inFlight.tryAcquire();
+                if (!detectRaces) {
+                    droppedWindows++;
+                }
+            } else {
+                inFlight.acquireUninterruptibly();
+                detectRaces = true;
+            }
+            Uninterruptibles.putUninterruptibly(windows, new Window(buffers, detectRaces));
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Window window;
+                try {
+                    window = windows.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (window.buffers == null) {
+                    return;
+                }
+                analyzeWindow(window.buffers, window.detectRaces);
+                if (window.detectRaces) {
+                    inFlight.release();
+                }
+            }
+        }
+
+        /**
+         * Waits for the analysis of the windows submitted so far.
+         */
+        void finish() {
+            Uninterruptibles.putUninterruptibly(windows, new Window(null, false));
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (droppedWindows > 0) {
+                config.logger().report(droppedWindows + " windows were not checked for races"
+                        + " because the analysis fell behind the application.", Logger.MSGTYPE.INFO);
+            }
+        }
+    }
+
+    /**
+     * @return the number of closed windows waiting for the {@link WindowAnalyzer}
+     */
+    @VisibleForTesting
+    int numOfQueuedWindows() {
+        return windowAnalyzer.windows.size();
+    }
+
     private class BufferCleaner extends Thread {
 
         BufferCleaner() {
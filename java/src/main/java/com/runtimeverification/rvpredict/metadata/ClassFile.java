@@ -3,17 +3,19 @@ package com.runtimeverification.rvpredict.metadata;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Opcodes;
 
-import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Table;
 
 /**
  * Stores information of a (non-array) class.
@@ -26,11 +28,21 @@ public class ClassFile implements Opcodes {
     /**
      * Global cache table of all created class files. The table is indexed by
      * {@link #urlString} and {@link #cname} respectively.
+     * <p>
+     * Looked up without locking since classes are transformed concurrently, and
+     * {@link com.runtimeverification.rvpredict.instrument.transformer.ClassWriter#getCommonSuperClass}
+     * walks the class hierarchy through it.
      */
-    private static final Table<String, String, ClassFile> classFileTable = HashBasedTable.create();
+    private static final ConcurrentMap<String, ConcurrentMap<String, ClassFile>> classFileTable =
+            new ConcurrentHashMap<>();
 
     private static final Metadata metadata = Metadata.singleton();
 
+    /**
+     * Class files looked up by name in the current thread, see {@link #recordLookups}.
+     */
+    private static final ThreadLocal<Map<String, ClassFile>> lookups = new ThreadLocal<>();
+
     /**
      * {@code String} representation of the {@link URL} used to locate this class file.
      */
@@ -223,10 +235,35 @@ public class ClassFile implements Opcodes {
      *         unable to locate the class file
      */
     public static ClassFile getInstance(ClassLoader loader, String cname) {
+        ClassFile classFile;
         try {
-            return getInstance0(loader, cname, null);
+            classFile = getInstance0(loader, cname, null);
         } catch (IOException e) {
-            return null;
+            classFile = null;
+        }
+        Map<String, ClassFile> recorded = lookups.get();
+        if (recorded != null) {
+            recorded.put(cname, classFile);
+        }
+        return classFile;
+    }
+
+    /**
+     * Runs an action and records the class files it looks up by name in the current thread,
+     * i.e. the other classes that the result of the action may depend on.
+     *
+     * @param recorded
+     *            the map receiving the class files by name, or {@code null} for the
+     *            classes which cannot be located
+     * @return the result of the action
+     */
+    public static <T> T recordLookups(Map<String, ClassFile> recorded, Supplier<T> action) {
+        Map<String, ClassFile> outer = lookups.get();
+        lookups.set(recorded);
+        try {
+            return action.get();
+        } finally {
+            lookups.set(outer);
         }
     }
 
@@ -237,10 +274,11 @@ public class ClassFile implements Opcodes {
         String urlString = url != null ? url.toString() : ""; // generated class may not have a URL
 
         /* check if we already have the class file created */
-        ClassFile classFile;
-        synchronized (classFileTable) {
-            classFile = classFileTable.get(urlString, cname);
+        ConcurrentMap<String, ClassFile> row = classFileTable.get(urlString);
+        if (row == null) {
+            row = classFileTable.computeIfAbsent(urlString, k -> new ConcurrentHashMap<>());
         }
+        ClassFile classFile = row.get(cname);
         if (classFile != null) {
             return classFile;
         }
@@ -255,8 +293,10 @@ public class ClassFile implements Opcodes {
         }
 
         classFile = ClassFile.create(loader, urlString, cr);
-        synchronized (classFileTable) {
-            classFileTable.put(urlString, cname, classFile);
+        ClassFile existing = row.putIfAbsent(cname, classFile);
+        if (existing != null) {
+            /* created by another thread meanwhile */
+            return existing;
         }
 
         /* record volatile variables */
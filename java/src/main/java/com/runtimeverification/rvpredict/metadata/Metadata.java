@@ -29,10 +29,14 @@ public class Metadata implements MetadataInterface, Serializable {
 
     private transient final AtomicInteger nextLocId = new AtomicInteger(1);
 
+    private transient final AtomicInteger nextMethodId = new AtomicInteger(1);
+
     private transient final ConcurrentHashMap<String, Integer> varSigToVarId = new ConcurrentHashMap<>();
 
     private transient final ConcurrentHashMap<String, Integer> locSigToLocId = new ConcurrentHashMap<>();
 
+    private transient final ConcurrentHashMap<String, Integer> methodSigToMethodId = new ConcurrentHashMap<>();
+
     private final String[] varIdToVarSig = new String[MAX_NUM_OF_VARIABLES];
 
     private final String[] locIdToLocSig = new String[MAX_NUM_OF_LOCATIONS];
@@ -42,6 +46,13 @@ public class Metadata implements MetadataInterface, Serializable {
 
     private final Map<Long, Pair<Long, Long>> otidToCreationInfo = new ConcurrentHashMap<>();
 
+    private final Map<Integer, String> methodIdToMethodSig = new ConcurrentHashMap<>();
+
+    /**
+     * Number of executions and number of logged executions of each sampled method.
+     */
+    private final Map<Integer, Pair<Long, Long>> methodIdToSamplingCounts = new ConcurrentHashMap<>();
+
     private static final Metadata instance = new Metadata();
 
     /**
@@ -151,6 +162,104 @@ public class Metadata implements MetadataInterface, Serializable {
         locIdToLocSig[locId] = sig;
     }
 
+    public int getMethodId(String methodSig) {
+        Integer methodId = methodSigToMethodId.get(methodSig);
+        if (methodId == null) {
+            methodSigToMethodId.putIfAbsent(methodSig, nextMethodId.getAndIncrement());
+            methodId = methodSigToMethodId.get(methodSig);
+            methodIdToMethodSig.put(methodId, methodSig);
+        }
+        return methodId;
+    }
+
+    public String getMethodSig(int methodId) {
+        return methodIdToMethodSig.get(methodId);
+    }
+
+    public void setSamplingCounts(int methodId, long executions, long sampled) {
+        methodIdToSamplingCounts.put(methodId, Pair.of(executions, sampled));
+    }
+
+    /**
+     * @return the fraction of the executions of the given method which logged their
+     *         memory accesses, or {@code 1} if the method was not sampled
+     */
+    public double getSamplingRate(int methodId) {
+        Pair<Long, Long> counts = methodIdToSamplingCounts.get(methodId);
+        return counts == null || counts.getLeft() == 0 ? 1 : (double) counts.getRight() / counts.getLeft();
+    }
+
+    public Map<String, Integer> getVariableIds() {
+        return Collections.unmodifiableMap(varSigToVarId);
+    }
+
+    public Map<String, Integer> getLocationIds() {
+        return Collections.unmodifiableMap(locSigToLocId);
+    }
+
+    public Map<String, Integer> getMethodIds() {
+        return Collections.unmodifiableMap(methodSigToMethodId);
+    }
+
+    public Set<Integer> getVolatileVariableIds() {
+        return Collections.unmodifiableSet(volatileVarIds);
+    }
+
+    /**
+     * Registers the identifiers assigned in a previous execution, so that the code
+     * instrumented then can be reused. Nothing is registered if any of them was already
+     * assigned differently in this execution.
+     *
+     * @return {@code true} if the identifiers were registered
+     */
+    public synchronized boolean restoreIds(Map<String, Integer> varIds, Map<String, Integer> locIds,
+            Map<String, Integer> methodIds, Set<Integer> volatileIds) {
+        if (!canRestore(varIds, varSigToVarId, varIdToVarSig)
+                || !canRestore(locIds, locSigToLocId, locIdToLocSig)) {
+            return false;
+        }
+        for (Map.Entry<String, Integer> entry : methodIds.entrySet()) {
+            Integer methodId = methodSigToMethodId.get(entry.getKey());
+            String methodSig = methodIdToMethodSig.get(entry.getValue());
+            if (methodId != null && !methodId.equals(entry.getValue())
+                    || methodSig != null && !methodSig.equals(entry.getKey())) {
+                return false;
+            }
+        }
+
+        varIds.forEach((varSig, varId) -> {
+            varSigToVarId.put(varSig, varId);
+            varIdToVarSig[varId] = varSig;
+            nextVarId.accumulateAndGet(varId + 1, Math::max);
+        });
+        locIds.forEach((locSig, locId) -> {
+            locSigToLocId.put(locSig, locId);
+            locIdToLocSig[locId] = locSig;
+            nextLocId.accumulateAndGet(locId + 1, Math::max);
+        });
+        methodIds.forEach((methodSig, methodId) -> {
+            methodSigToMethodId.put(methodSig, methodId);
+            methodIdToMethodSig.put(methodId, methodSig);
+            nextMethodId.accumulateAndGet(methodId + 1, Math::max);
+        });
+        volatileVarIds.addAll(volatileIds);
+        return true;
+    }
+
+    private static boolean canRestore(Map<String, Integer> ids, Map<String, Integer> sigToId,
+            String[] idToSig) {
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            int id = entry.getValue();
+            Integer assignedId = sigToId.get(entry.getKey());
+            if (id <= 0 || id >= idToSig.length
+                    || assignedId != null && assignedId != id
+                    || idToSig[id] != null && !idToSig[id].equals(entry.getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     void addVolatileVariable(String cname, String fname) {
         volatileVarIds.add(getVariableId(cname, fname));
     }
@@ -0,0 +1,145 @@
+package com.runtimeverification.rvpredict.order;
+
+import com.runtimeverification.rvpredict.config.Configuration;
+import com.runtimeverification.rvpredict.metadata.MetadataInterface;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@see OrderedRaceDetector} implementing the {@see JavaHappensBefore} ordering with the epoch-based
+ * race checks of FastTrack (Flanagan and Freund, PLDI 2009).
+ *
+ * For each address only the last write and the last read are kept, and the accesses are ordered by comparing
+ * their epochs. The reads are inflated to one read per thread only while they are concurrent. As in FastTrack,
+ * at least one race is reported for each racy address, but an earlier access of a thread racing with the same
+ * access as a later one may not be reported.
+ */
+public class FastTrackRaceDetector extends OrderedRaceDetector {
+    private final ShadowMemory shadowMemory = new ShadowMemory();
+
+    public FastTrackRaceDetector(Configuration config, MetadataInterface metadata) {
+        super(config, metadata, new JavaHappensBefore(metadata));
+    }
+
+    @Override
+    protected Collection<ReadonlyOrderedEvent> findEventsUnorderedWith(ReadonlyOrderedEvent orderedEvent) {
+        assert orderedEvent.getEvent().isReadOrWrite();
+        VectorClock clock = orderedEvent.getVectorClock();
+        int thread = clock.getThread();
+        assert thread >= 0;
+        VariableState state = shadowMemory.computeIfAbsent(orderedEvent.getEvent().getDataInternalIdentifier());
+        List<ReadonlyOrderedEvent> unordered = Collections.emptyList();
+        if (state.lastWrite != null && !state.lastWrite.getVectorClock().happensBefore(clock)) {
+            unordered = add(unordered, state.lastWrite);
+        }
+        if (orderedEvent.getEvent().isRead()) {
+            if (state.lastReadOfThread != null) {
+                state.setLastReadOfThread(thread, orderedEvent);
+            } else if (state.lastRead == null || state.lastRead.getVectorClock().happensBefore(clock)) {
+                state.lastRead = orderedEvent;
+            } else {
+                // concurrent reads, switch to one read per thread
+                state.setLastReadOfThread(state.lastRead.getVectorClock().getThread(), state.lastRead);
+                state.setLastReadOfThread(thread, orderedEvent);
+                state.lastRead = null;
+            }
+        } else { // event.isWrite()
+            if (state.lastReadOfThread != null) {
+                for (ReadonlyOrderedEvent read : state.lastReadOfThread) {
+                    if (read != null && !read.getVectorClock().happensBefore(clock)) {
+                        unordered = add(unordered, read);
+                    }
+                }
+            } else if (state.lastRead != null && !state.lastRead.getVectorClock().happensBefore(clock)) {
+                unordered = add(unordered, state.lastRead);
+            }
+            state.lastWrite = orderedEvent;
+            state.lastRead = null;
+            state.lastReadOfThread = null;
+        }
+        return unordered;
+    }
+
+    private static List<ReadonlyOrderedEvent> add(List<ReadonlyOrderedEvent> events, ReadonlyOrderedEvent event) {
+        if (events.isEmpty()) {
+            events = new ArrayList<>();
+        }
+        events.add(event);
+        return events;
+    }
+
+    /**
+     * The accesses to an address which later accesses are checked against.
+     */
+    private static class VariableState {
+        private ReadonlyOrderedEvent lastWrite;
+        /**
+         * The last read since the last write, if all the reads since the last write are ordered.
+         */
+        private ReadonlyOrderedEvent lastRead;
+        /**
+         * The last read of each thread since the last write, indexed by thread, once reads are concurrent.
+         */
+        private ReadonlyOrderedEvent[] lastReadOfThread;
+
+        private void setLastReadOfThread(int thread, ReadonlyOrderedEvent read) {
+            if (lastReadOfThread == null) {
+                lastReadOfThread = new ReadonlyOrderedEvent[thread + 1];
+            } else if (lastReadOfThread.length <= thread) {
+                lastReadOfThread = Arrays.copyOf(lastReadOfThread, thread + 1);
+            }
+            lastReadOfThread[thread] = read;
+        }
+    }
+
+    /**
+     * Open addressing map from address to {@link VariableState}, which avoids boxing the addresses.
+     */
+    private static class ShadowMemory {
+        private long[] keys = new long[1024];
+        private VariableState[] values = new VariableState[1024];
+        private int size;
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            int mask = keys.length - 1;
+            int p = (int) (h ^ (h >>> 32)) & mask;
+            while (values[p] != null && keys[p] != key) {
+                p = (p + 1) & mask;
+            }
+            return p;
+        }
+
+        private VariableState computeIfAbsent(long address) {
+            int p = slot(address);
+            if (values[p] == null) {
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    p = slot(address);
+                }
+                keys[p] = address;
+                values[p] = new VariableState();
+                size++;
+            }
+            return values[p];
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            VariableState[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new VariableState[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int p = slot(oldKeys[i]);
+                    keys[p] = oldKeys[i];
+                    values[p] = oldValues[i];
+                }
+            }
+        }
+    }
+}
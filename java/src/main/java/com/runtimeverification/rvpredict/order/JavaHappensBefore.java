@@ -14,10 +14,19 @@ import java.util.Map;
  * @author TraianSF
  */
 public class JavaHappensBefore implements VectorClockOrderInterface {
-    private Map<Long, Map<Integer,VectorClock>> unlocks = new HashMap<>();
-    private Map<Long, Map<Integer, VectorClock>> volatileWrites = new HashMap<>();
+    /**
+     * The join of the clocks at all the releases of an object so far, which is what a subsequent acquire of the
+     * object synchronizes with.
+     */
+    private Map<Long, VectorClock> unlocks = new HashMap<>();
+    private Map<Long, VectorClock> volatileWrites = new HashMap<>();
     private Map<Integer, VectorClock> threadStarts = new HashMap<>();
     private Map<Integer, VectorClock> threadCurrent = new HashMap<>();
+    /**
+     * The index of each thread in the vector clocks, in order of appearance, so that the clocks stay as small as
+     * the number of threads rather than the largest thread id.
+     */
+    private Map<Integer, Integer> threadIndices = new HashMap<>();
 
     private final MetadataInterface metadata;
 
@@ -27,41 +36,44 @@ public class JavaHappensBefore implements VectorClockOrderInterface {
 
     private VectorClock getClock(int tid) {
         // An action that starts a thread synchronizes-with the first action in the thread it starts.
-        return threadCurrent.computeIfAbsent(tid, k -> new VectorClock(threadStarts.get(k)));
+        return threadCurrent.computeIfAbsent(tid, k -> new VectorClock(getThreadIndex(k), threadStarts.get(k)));
+    }
+
+    private int getThreadIndex(int tid) {
+        return threadIndices.computeIfAbsent(tid, k -> threadIndices.size());
     }
 
     @Override
     public VectorClock updateVectorClockForEvent(ReadonlyEventInterface event) {
         int tid = Math.toIntExact(event.getOriginalThreadId());
         VectorClock clock = getClock(tid);
-        clock.increment(tid);
+        clock.increment(clock.getThread());
         switch (event.getType()) {
         case READ:
             if (metadata.isVolatile(event.getDataInternalIdentifier())) {
                 // A write to a volatile variable v (§8.3.1.4) synchronizes-with all subsequent reads of v by any thread
-                updateReadClock(event.getDataInternalIdentifier(), tid, clock, volatileWrites);
+                clock.update(volatileWrites.get(event.getDataInternalIdentifier()));
             }
             break;
         case WRITE:
             if (metadata.isVolatile(event.getDataInternalIdentifier())) {
-                volatileWrites.computeIfAbsent(event.getDataInternalIdentifier(), (k) -> new HashMap<>())
-                        .put(tid, new VectorClock(clock));
+                updateReleaseClock(event.getDataInternalIdentifier(), clock, volatileWrites);
             }
             break;
         case WRITE_LOCK:
         case READ_LOCK:
             // An unlock action on monitor m synchronizes-with all subsequent lock actions on m
-            updateReadClock(event.getSyncObject(), tid, clock, unlocks);
+            clock.update(unlocks.get(event.getSyncObject()));
             break;
         case WRITE_UNLOCK:
         case READ_UNLOCK:
-            unlocks.computeIfAbsent(event.getSyncObject(), (k) -> new HashMap<>()).put(tid, new VectorClock(clock));
+            updateReleaseClock(event.getSyncObject(), clock, unlocks);
             break;
         case WAIT_ACQUIRE:
         case WAIT_RELEASE:
             break;
         case START_THREAD:
-            threadStarts.put(Math.toIntExact(event.getSyncedThreadId()), new VectorClock(clock));
+            threadStarts.put(Math.toIntExact(event.getSyncedThreadId()), clock.snapshot());
             break;
         case JOIN_THREAD:
             // The final action in a thread T1 synchronizes-with any action in another thread T2 that detects that
@@ -81,11 +93,14 @@ public class JavaHappensBefore implements VectorClockOrderInterface {
         return clock;
     }
 
-    private void updateReadClock(
-            long object, int tid, VectorClock clock, Map<Long, Map<Integer, VectorClock>> writeClocks) {
-        writeClocks.computeIfAbsent(object, (k) -> new HashMap<>()).forEach((writeTid, writeClock) -> {
-            if (tid != writeTid) clock.update(writeClock);
-        });
+    private void updateReleaseClock(long object, VectorClock clock, Map<Long, VectorClock> releaseClocks) {
+        VectorClock releaseClock = releaseClocks.get(object);
+        if (releaseClock == null) {
+            // shares the clock of the thread until either of them changes
+            releaseClocks.put(object, clock.snapshot());
+        } else {
+            releaseClock.update(clock);
+        }
     }
 
 }
@@ -1,8 +1,10 @@
 package com.runtimeverification.rvpredict.order;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.runtimeverification.rvpredict.config.Configuration;
 import com.runtimeverification.rvpredict.engine.main.RaceDetector;
+import com.runtimeverification.rvpredict.log.IEventReader;
 import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
 import com.runtimeverification.rvpredict.metadata.MetadataInterface;
 import com.runtimeverification.rvpredict.performance.AnalysisLimit;
@@ -23,10 +25,16 @@ public class OrderedRaceDetector implements RaceDetector {
     protected final List<String> reports;
     protected final Configuration config;
     private final MetadataInterface metadata;
+    private final VectorClockOrderInterface happensBefore;
     private final OrderedTraceReader traceReader;
     private final VectorClockTraceReader vectorClockReader;
     final Map<String, Race> races;
     private Map<Long,ReadonlyOrderedEvent> lastWrites = new HashMap<>();
+    /**
+     * The reads of each address since its last write. A read ordered before a later read at the same location is
+     * dropped: a write racing with it also races with the later read, which has the same race signature. The reads
+     * kept for an address are thus those at distinct locations or unordered with each other.
+     */
     private Map<Long,Collection<ReadonlyOrderedEvent>> lastReads = new HashMap<>();
 
     protected OrderedRaceDetector(
@@ -34,36 +42,50 @@ public class OrderedRaceDetector implements RaceDetector {
         this.config = config;
         this.metadata = metadata;
         reports = new ArrayList<>();
+        this.happensBefore = happensBefore;
         traceReader = new OrderedTraceReader();
         vectorClockReader = new VectorClockTraceReader(traceReader, happensBefore);
         races = new HashMap<>();
     }
 
-    private Collection<ReadonlyOrderedEvent> findEventsUnorderedWith(ReadonlyOrderedEvent orderedEvent) {
+    /**
+     * Records an access and finds the previous conflicting accesses which are not ordered before it.
+     */
+    protected Collection<ReadonlyOrderedEvent> findEventsUnorderedWith(ReadonlyOrderedEvent orderedEvent) {
         ReadonlyEventInterface event = orderedEvent.getEvent();
         VectorClock clock = orderedEvent.getVectorClock();
         assert event.isReadOrWrite();
         ImmutableList.Builder<ReadonlyOrderedEvent> builder = new ImmutableList.Builder<>();
         long address = event.getDataInternalIdentifier();
         ReadonlyOrderedEvent lastWrite = lastWrites.get(address);
-        if (lastWrite != null
-                && lastWrite.getVectorClock().compareTo(clock) != VectorClock.Comparison.BEFORE) {
+        if (lastWrite != null && !lastWrite.getVectorClock().happensBefore(clock)) {
             builder.add(lastWrite);
         }
-        Collection<ReadonlyOrderedEvent> lastRead = lastReads.computeIfAbsent(address, k -> new ArrayList<>());
         if (event.isRead()) {
+            Collection<ReadonlyOrderedEvent> lastRead = lastReads.computeIfAbsent(address, k -> new ArrayList<>());
+            lastRead.removeIf((read) -> read.getEvent().getLocationId() == event.getLocationId()
+                    && read.getVectorClock().happensBefore(clock));
             lastRead.add(orderedEvent);
         } else { // event.isWrite()
             lastWrites.put(address, orderedEvent);
-            lastRead.stream()
-                    .filter((read) -> read.getVectorClock().compareTo(clock)
-                            != VectorClock.Comparison.BEFORE)
-                    .forEach(builder::add);
-            lastRead.clear();
+            Collection<ReadonlyOrderedEvent> lastRead = lastReads.remove(address);
+            if (lastRead != null) {
+                lastRead.stream()
+                        .filter((read) -> !read.getVectorClock().happensBefore(clock))
+                        .forEach(builder::add);
+            }
         }
         return builder.build();
     }
 
+    /**
+     * @return the number of reads kept to be checked against the next write of their address
+     */
+    @VisibleForTesting
+    int numOfPendingReads() {
+        return lastReads.values().stream().mapToInt(Collection::size).sum();
+    }
+
     @Override
     public void close() {}
 
@@ -75,9 +97,27 @@ public class OrderedRaceDetector implements RaceDetector {
     @Override
     public void run(Trace trace, AnalysisLimit analysisLimit) {
         traceReader.reset(trace);
+        detectRaces(vectorClockReader, trace);
+    }
+
+    /**
+     * Analyzes all the events of the given reader in a single pass, without building trace windows.
+     *
+     * The events must be sorted by their ids. Since their stack traces are not known, the races found are
+     * reported only with the locations of the accesses.
+     */
+    public void run(IEventReader events) {
+        try (VectorClockTraceReader reader = new VectorClockTraceReader(events, happensBefore)) {
+            detectRaces(reader, null);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void detectRaces(VectorClockTraceReader reader, Trace trace) {
         try {
             while (true) {
-                ReadonlyOrderedEvent orderedEvent = vectorClockReader.readEvent();
+                ReadonlyOrderedEvent orderedEvent = reader.readEvent();
                 ReadonlyEventInterface event = orderedEvent.getEvent();
                 if (!event.isReadOrWrite()) {
                     continue;
@@ -94,7 +134,8 @@ public class OrderedRaceDetector implements RaceDetector {
                     String raceSig = race.toString();
                     if (!races.containsKey(raceSig)) {
                         races.put(raceSig, race);
-                        String report = race.generateRaceReport();
+                        String report = trace != null ?
+                                race.generateRaceReport() : race.generateLocationReport(metadata);
                         reports.add(report);
                         config.logger().reportRace(report);
                     }
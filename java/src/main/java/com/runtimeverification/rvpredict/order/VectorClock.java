@@ -2,12 +2,16 @@ package com.runtimeverification.rvpredict.order;
 
 import com.google.common.annotations.VisibleForTesting;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * A Vector of clocks. Supports clock increment, update and comparison.
  *
+ * The clocks are stored in an array indexed by thread, so the threads should be numbered densely, as
+ * {@link JavaHappensBefore} does. Copies share the array until one of them is modified, so publishing a thread clock
+ * at a release or a thread start copies it at most once. Events are timestamped with a {@link #timestamp} of the
+ * thread clock, which does not copy it at all.
+ *
  * @author TraianSF
  */
 public class VectorClock {
@@ -40,70 +44,250 @@ public class VectorClock {
         }
     }
 
-    @VisibleForTesting
-    Map<Integer, Integer> clocks;
+    private static final int[] NO_CLOCKS = new int[0];
+
+    private static final int NO_THREAD = -1;
+
+    /**
+     * The clocks of the {@link #timestamp}s taken from a thread clock since it last changed the clock of another
+     * thread. They are read from the thread clock until it is about to make such a change, when it hands them over.
+     */
+    private static final class Timestamps {
+        private int[] clocks;
+    }
+
+    private int[] clocks;
+
+    /**
+     * Whether {@link #clocks} may be shared with another vector clock and must be copied before being modified.
+     */
+    private boolean shared;
+
+    /**
+     * The thread whose clock this is, or which executed the event timestamped by this clock, if known.
+     */
+    private final int thread;
+
+    /**
+     * For a {@link #timestamp}, the clock of its thread, which holds its clocks until it hands them over to
+     * {@link #timestamps}; {@code null} otherwise, including once the timestamp is modified.
+     */
+    private VectorClock owner;
+
+    /**
+     * For a {@link #timestamp}, where its clocks are handed over; for a thread clock, the same for the timestamps
+     * taken since it last changed the clock of another thread, if any.
+     */
+    private Timestamps timestamps;
+
+    /**
+     * For a {@link #timestamp}, the clock of its thread, i.e. its epoch.
+     */
+    private int epoch;
+
     public VectorClock() {
-        clocks = new HashMap<>();
+        this(NO_THREAD, null);
     }
+
     public VectorClock(VectorClock c) {
+        this(NO_THREAD, c);
+    }
+
+    /**
+     * Creates the clock of a thread, starting from the given clock.
+     */
+    public VectorClock(int thread, VectorClock c) {
+        this.thread = thread;
         if (c == null) {
-            clocks = new HashMap<>();
+            clocks = NO_CLOCKS;
+        } else if (c.owner == null) {
+            clocks = c.clocks;
+            shared = c.shared = true;
         } else {
-            clocks = new HashMap<>(c.clocks);
+            clocks = c.ownClocks();
+        }
+    }
+
+    private VectorClock(VectorClock owner, Timestamps timestamps, int epoch) {
+        clocks = NO_CLOCKS;
+        thread = owner.thread;
+        this.owner = owner;
+        this.timestamps = timestamps;
+        this.epoch = epoch;
+    }
+
+    /**
+     * @return a copy of this clock which keeps the epoch of its thread
+     */
+    public VectorClock snapshot() {
+        return new VectorClock(thread, this);
+    }
+
+    /**
+     * Returns the timestamp of the event which the thread of this clock just executed, without copying the clocks.
+     * <p>
+     * The timestamp keeps the epoch of the thread, which is all that {@link #happensBefore} reads from the
+     * earlier event, and reads its other clocks from this clock. An {@link #increment} of the thread only changes
+     * the epoch; before this clock changes the clock of another thread, e.g. when it is {@link #update}d, it hands
+     * its clocks over to the timestamps, sharing them until either side is modified.
+     */
+    public VectorClock timestamp() {
+        if (thread == NO_THREAD || owner != null) {
+            return snapshot();
+        }
+        if (timestamps == null) {
+            timestamps = new Timestamps();
+        }
+        return new VectorClock(this, timestamps, get(thread));
+    }
+
+    /**
+     * @return the array holding the clocks of this one, except the epoch of a {@link #timestamp}
+     */
+    private int[] clocks() {
+        if (owner == null) {
+            return clocks;
+        }
+        return timestamps.clocks != null ? timestamps.clocks : owner.clocks;
+    }
+
+    /**
+     * @return a new array with the clocks of this timestamp
+     */
+    private int[] ownClocks() {
+        int[] source = clocks();
+        int[] copy = Arrays.copyOf(source, Math.max(source.length, thread + 1));
+        copy[thread] = epoch;
+        return copy;
+    }
+
+    /**
+     * Makes {@link #clocks} writable, up to the given length, before the clock of the given thread is changed.
+     */
+    private void prepareWrite(int length, int k) {
+        if (owner != null) {
+            /* a modified timestamp becomes a plain clock */
+            clocks = ownClocks();
+            shared = false;
+            owner = null;
+            timestamps = null;
+        } else if (k != thread && timestamps != null) {
+            timestamps.clocks = clocks;
+            timestamps = null;
+            shared = true;
+        }
+        if (shared || clocks.length < length) {
+            clocks = Arrays.copyOf(clocks, Math.max(clocks.length, length));
+            shared = false;
         }
     }
 
     public void increment(int clock) {
-        clocks.merge(clock, 1, (oldValue, newValue) -> oldValue + 1);
+        prepareWrite(clock + 1, clock);
+        clocks[clock]++;
     }
 
+    /**
+     * Joins the given clock into this one, in place.
+     */
     public void update(VectorClock c) {
-        if (c != null) {
-            c.clocks.forEach((clock, value) -> clocks.merge(clock, value, Integer::max));
+        if (c == null) {
+            return;
+        }
+        int[] other = c.clocks();
+        if (other == clocks() && c.owner == null && owner == null) {
+            return;
+        }
+        int length = Math.max(other.length, c.owner == null ? 0 : c.thread + 1);
+        for (int i = 0; i < length; i++) {
+            int value = c.get(i);
+            if (value > get(i)) {
+                prepareWrite(length, i);
+                clocks[i] = value;
+            }
         }
     }
 
+    /**
+     * Checks whether the event timestamped with this clock happens before the event timestamped with the given
+     * one. When the thread of this clock is known, only its epoch, i.e. the clock of this thread, is compared.
+     */
+    public boolean happensBefore(VectorClock c) {
+        if (thread == NO_THREAD) {
+            return compareTo(c) == Comparison.BEFORE;
+        }
+        return c != null && get(thread) <= c.get(thread);
+    }
+
     public Comparison compareTo(VectorClock to) {
         if (to == null) return Comparison.NOT_COMPARABLE;
-        if (clocks.size() > to.clocks.size()) return to.compareTo(this).reverse();
         Comparison c = Comparison.EQUAL;
-        for (Map.Entry<Integer, Integer> entry : clocks.entrySet()) {
-            Integer toValue = to.clocks.get(entry.getKey());
-            if (toValue == null) {
-                /*
-                If we got here, it must be that clocks.size() <= to.clocks.size(), thus we expect that this <= to;
-                however, toValue == null implies that this has a clock that to doesn't which, given the above,
-                could only happen if they are uncomparable.
-                 */
-                return Comparison.NOT_COMPARABLE;
-            }
-            switch (Long.signum(entry.getValue().compareTo(toValue))) {
-                case -1:
-                    c = c.and(Comparison.BEFORE);
-                    break;
-                case 1:
-                    c = c.and(Comparison.AFTER);
-                    break;
+        for (int i = Math.max(length(), to.length()) - 1; i >= 0; i--) {
+            int value = get(i);
+            int toValue = to.get(i);
+            if (value < toValue) {
+                c = c.and(Comparison.BEFORE);
+            } else if (value > toValue) {
+                c = c.and(Comparison.AFTER);
             }
             if (c == Comparison.NOT_COMPARABLE) return Comparison.NOT_COMPARABLE;
         }
-        if (clocks.size() < to.clocks.size()) return c.and(Comparison.BEFORE);
         return c;
     }
 
+    /**
+     * @return the thread whose clock this is, or which executed the event timestamped by this clock, or -1 if
+     *         unknown
+     */
+    public int getThread() {
+        return thread;
+    }
+
+    public int get(int k) {
+        if (owner != null && k == thread) {
+            return epoch;
+        }
+        int[] clocks = clocks();
+        return k < clocks.length ? clocks[k] : 0;
+    }
+
+    /**
+     * @return the number of threads which may have a non-zero clock
+     */
+    private int length() {
+        return owner == null ? clocks.length : Math.max(clocks().length, thread + 1);
+    }
+
     @VisibleForTesting
-    VectorClock put(Integer k, Integer v) {
-        clocks.put(k,v);
+    VectorClock put(int k, int v) {
+        prepareWrite(k + 1, k);
+        clocks[k] = v;
         return this;
     }
 
     @VisibleForTesting
-    Integer get(Integer k) {
-        return clocks.get(k);
+    int size() {
+        int size = 0;
+        for (int i = 0; i < length(); i++) {
+            if (get(i) != 0) {
+                size++;
+            }
+        }
+        return size;
     }
 
     @Override
     public String toString() {
-        return clocks.toString();
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < length(); i++) {
+            int value = get(i);
+            if (value != 0) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(i).append('=').append(value);
+            }
+        }
+        return sb.append('}').toString();
     }
 }
@@ -25,7 +25,8 @@ public class VectorClockTraceReader implements Closeable {
 
     public ReadonlyOrderedEvent readEvent() throws IOException {
         ReadonlyEventInterface event = reader.readEvent();
-        lastEvent = new ReadonlyOrderedEvent(event, order.updateVectorClockForEvent(event));
+        // the clock of the thread keeps changing, but only the epoch of an earlier event is compared
+        lastEvent = new ReadonlyOrderedEvent(event, order.updateVectorClockForEvent(event).timestamp());
         return lastEvent;
     }
 
@@ -12,7 +12,11 @@ public class AnalysisLimit {
     private final String name;
     private final Optional<AnalysisLimit> innerTimer;
     private final OptionalInt timeSeconds;
-    private long usedTimeMillis;
+    /**
+     * Volatile and updated under the object's lock because the global limit is shared by the windows which are
+     * analyzed in parallel.
+     */
+    private volatile long usedTimeMillis;
     private Logger logger;
 
     public interface RunnableWithException {
@@ -44,7 +48,7 @@ public class AnalysisLimit {
         }
     }
 
-    private void updateUsedTime(long start) {
+    private synchronized void updateUsedTime(long start) {
         usedTimeMillis += clock.millis() - start;
         if (timeout()) {
             logger.report(name + " timeout.", Logger.MSGTYPE.ERROR);
@@ -0,0 +1,194 @@
+package com.runtimeverification.rvpredict.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.runtimeverification.rvpredict.metadata.Metadata;
+
+/**
+ * Decides which executions of the instrumented methods log their memory accesses
+ * under {@link com.runtimeverification.rvpredict.config.Configuration#sample_accesses}.
+ * <p>
+ * As in LiteRace, each thread logs the executions of a method in bursts of
+ * {@link #BURST_LENGTH}, and logs the method ten times less often after each burst, down
+ * to one execution out of {@code 10^MAX_LEVEL}. Cold code, where the races that testing
+ * misses tend to hide, is thus logged in full, while hot code costs little. The
+ * synchronization events are logged in every execution.
+ */
+public final class MethodSampler {
+
+    private static final int BURST_LENGTH = 10;
+
+    private static final int MAX_LEVEL = 3;
+
+    /**
+     * Number of executions skipped after each burst, indexed by the number of bursts
+     * logged so far.
+     */
+    private static final int[] SKIPPED_AFTER_BURST = new int[MAX_LEVEL + 1];
+
+    static {
+        int period = 1;
+        for (int level = 1; level <= MAX_LEVEL; level++) {
+            period *= 10;
+            SKIPPED_AFTER_BURST[level] = (period - 1) * BURST_LENGTH;
+        }
+    }
+
+    private static final Queue<Counters> allCounters = new ConcurrentLinkedQueue<>();
+
+    private static final ThreadLocal<Counters> counters = ThreadLocal.withInitial(() -> {
+        Counters c = new Counters();
+        allCounters.add(c);
+        return c;
+    });
+
+    private MethodSampler() { } // forbid instantiation
+
+    /**
+     * Decides whether the current execution of a method logs its memory accesses.
+     *
+     * @param methodId
+     *            the identifier of the method assigned by {@link Metadata#getMethodId}
+     */
+    static boolean sample(int methodId) {
+        return counters.get().sample(methodId);
+    }
+
+    /**
+     * Records in the metadata how many executions of each method ran and how many of
+     * them were logged.
+     *
+     * @return the total numbers of executions and of logged executions
+     */
+    public static long[] recordSamplingRates(Metadata metadata) {
+        Map<Integer, long[]> methodIdToCounts = new HashMap<>();
+        for (Counters c : allCounters) {
+            /* read without synchronization, but the arrays of a table are consistent */
+            Table t = c.table;
+            for (int i = 0; i < t.keys.length; i++) {
+                if (t.keys[i] != 0) {
+                    long[] counts = methodIdToCounts.computeIfAbsent(t.keys[i] - 1, m -> new long[2]);
+                    counts[0] += t.executions[i];
+                    counts[1] += t.sampled[i];
+                }
+            }
+        }
+
+        long[] totals = new long[2];
+        methodIdToCounts.forEach((m, counts) -> {
+            if (counts[0] > 0) {
+                metadata.setSamplingCounts(m, counts[0], counts[1]);
+                totals[0] += counts[0];
+                totals[1] += counts[1];
+            }
+        });
+        return totals;
+    }
+
+    /**
+     * Sampling state of the methods executed by one thread.
+     * <p>
+     * A thread usually runs a small part of the instrumented methods, so the state is
+     * kept in an open-addressing table keyed by method id rather than in arrays indexed
+     * by it, whose size would grow with all the methods loaded.
+     */
+    private static class Counters {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private Table table = new Table(INITIAL_CAPACITY);
+
+        private int size = 0;
+
+        boolean sample(int m) {
+            Table t = table;
+            int i = t.slot(m);
+            if (i < 0) {
+                if (2 * (size + 1) > t.keys.length) {
+                    t = grow();
+                    i = t.slot(m);
+                }
+                i = -1 - i;
+                t.keys[i] = m + 1;
+                size++;
+            }
+            t.executions[i]++;
+            if (t.skipped[i] > 0) {
+                t.skipped[i]--;
+                return false;
+            }
+            t.sampled[i]++;
+            if (++t.inBurst[i] == BURST_LENGTH) {
+                t.inBurst[i] = 0;
+                t.bursts[i] = Math.min(t.bursts[i] + 1, MAX_LEVEL);
+                t.skipped[i] = SKIPPED_AFTER_BURST[t.bursts[i]];
+            }
+            return true;
+        }
+
+        private Table grow() {
+            Table old = table;
+            Table t = new Table(old.keys.length << 1);
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.keys[i] != 0) {
+                    int j = -1 - t.slot(old.keys[i] - 1);
+                    t.keys[j] = old.keys[i];
+                    t.executions[j] = old.executions[i];
+                    t.sampled[j] = old.sampled[i];
+                    t.skipped[j] = old.skipped[i];
+                    t.inBurst[j] = old.inBurst[i];
+                    t.bursts[j] = old.bursts[i];
+                }
+            }
+            /* read without synchronization by recordSamplingRates */
+            table = t;
+            return t;
+        }
+    }
+
+    /**
+     * Linear-probing table of the sampling state of methods, indexed by slot.
+     */
+    private static final class Table {
+        /**
+         * The method id plus one of each slot, or {@code 0} for a free slot.
+         */
+        final int[] keys;
+        final long[] executions;
+        final long[] sampled;
+        final int[] skipped;
+        final int[] inBurst;
+        final int[] bursts;
+
+        private final int shift;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            executions = new long[capacity];
+            sampled = new long[capacity];
+            skipped = new int[capacity];
+            inBurst = new int[capacity];
+            bursts = new int[capacity];
+            shift = 32 - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        /**
+         * @return the slot of the given method, or {@code -1 - slot} of the free slot
+         *         where it belongs if it is not in the table
+         */
+        int slot(int m) {
+            int key = m + 1;
+            int mask = keys.length - 1;
+            for (int i = (key * 0x9E3779B9) >>> shift; ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                } else if (keys[i] == 0) {
+                    return -1 - i;
+                }
+            }
+        }
+    }
+
+}
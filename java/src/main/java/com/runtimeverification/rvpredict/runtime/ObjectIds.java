@@ -0,0 +1,91 @@
+package com.runtimeverification.rvpredict.runtime;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Identifies the objects referred to by the logged events.
+ * <p>
+ * By default the identity of an object is its {@link System#identityHashCode}, which
+ * may be shared by unrelated objects. With
+ * {@link com.runtimeverification.rvpredict.config.Configuration#unique_object_ids}, each
+ * object gets a distinct positive 32-bit id instead, kept in a weak identity map. Ids are
+ * handed out from per-thread blocks claimed without locking, and each thread remembers
+ * the last object it looked up, which makes the loops over an array cheap.
+ * <p>
+ * Fields cannot be added to the classes retransformed after they are loaded, hence the
+ * map rather than an id field injected at instrumentation time.
+ */
+public final class ObjectIds {
+
+    private static final int ID_BLOCK_SIZE = 1024;
+
+    private static final long NUM_ID_BLOCKS = (Integer.MAX_VALUE + 1L) / ID_BLOCK_SIZE;
+
+    private static volatile boolean unique = false;
+
+    private static final ConcurrentMap<Object, Integer> ids = new MapMaker()
+            .weakKeys().concurrencyLevel(64).makeMap();
+
+    private static final AtomicLong nextIdBlock = new AtomicLong(0);
+
+    private static final ThreadLocal<LocalIds> localIds = ThreadLocal.withInitial(LocalIds::new);
+
+    private ObjectIds() { } // forbid instantiation
+
+    static void init(boolean uniqueIds) {
+        unique = uniqueIds;
+    }
+
+    /**
+     * Returns the identity of the given object, {@code 0} for {@code null}.
+     */
+    public static int of(Object object) {
+        if (!unique || object == null) {
+            return System.identityHashCode(object);
+        }
+        LocalIds local = localIds.get();
+        if (local.lastObject == object) {
+            return local.lastId;
+        }
+        Integer id = ids.get(object);
+        if (id == null) {
+            Integer newId = local.nextId();
+            id = ids.putIfAbsent(object, newId);
+            if (id == null) {
+                id = newId;
+            }
+        }
+        local.lastObject = object;
+        local.lastId = id;
+        return id;
+    }
+
+    private static class LocalIds {
+        Object lastObject;
+
+        int lastId;
+
+        private int next;
+
+        private int remaining = 0;
+
+        int nextId() {
+            if (remaining == 0) {
+                /* ids wrap around after 2^31 objects */
+                next = (int) (nextIdBlock.getAndIncrement() % NUM_ID_BLOCKS) * ID_BLOCK_SIZE;
+                remaining = ID_BLOCK_SIZE;
+                if (next == 0) {
+                    /* 0 stands for null */
+                    next++;
+                    remaining--;
+                }
+            }
+            remaining--;
+            return next++;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.runtimeverification.rvpredict.runtime;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the thread owning each object accessed by the instrumented program, so that the
+ * accesses to an object which only one thread has touched so far need not be logged.
+ * <p>
+ * The table is split into stripes of open-addressing slots, each slot packing an object id
+ * in its high 32 bits and the id of the owning thread, or {@link #SHARED}, in its low 32
+ * bits. Slots are claimed and marked shared with a single compare-and-set, and objects
+ * with the same id share a slot.
+ * <p>
+ * Most objects die without ever being shared, so a slot is never emptied but is recycled:
+ * a new object whose {@link #MAX_PROBES} probes find no free slot takes over a random one
+ * of them. The object evicted is forgotten and, like a new object, is owned by the next
+ * thread accessing it until another thread does. An object thus always gets a slot, and
+ * the table only grows less precise, rather than slower, when the program keeps far more
+ * objects than it has slots.
+ */
+final class OwnershipTable {
+
+    private static final int NUM_OF_STRIPES = 64;
+
+    private static final int MAX_PROBES = 16;
+
+    private static final long SHARED = 0xFFFF_FFFFL;
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[NUM_OF_STRIPES];
+
+    OwnershipTable(int capacity) {
+        int stripeCapacity = Integer.highestOneBit(Math.max(capacity / NUM_OF_STRIPES, MAX_PROBES));
+        for (int i = 0; i < NUM_OF_STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(stripeCapacity);
+        }
+    }
+
+    /**
+     * Checks if the current thread is the only one which has accessed an object, making
+     * it the owner of the object if no thread has.
+     *
+     * @param objectId
+     *            the object identifier given by {@link ObjectIds#of}
+     * @return {@code true} if the access need not be logged
+     */
+    boolean isOwnedByCurrentThread(int objectId) {
+        long owner = Thread.currentThread().getId();
+        if (objectId == 0 || owner >= SHARED) {
+            return false;
+        }
+
+        int hash = objectId * 0x9E3779B9;
+        AtomicLongArray stripe = stripes[hash >>> 26];
+        int mask = stripe.length() - 1;
+        int start = hash & mask;
+        long key = (long) objectId << 32;
+        while (true) {
+            int free = -1;
+            for (int i = 0, idx = start; i < MAX_PROBES; i++, idx = (idx + 1) & mask) {
+                long slot = stripe.get(idx);
+                if ((slot & ~SHARED) == key) {
+                    return isOwnedBy(stripe, idx, slot, owner);
+                } else if (slot == 0) {
+                    /* slots are never emptied, so the object is not further */
+                    free = idx;
+                    break;
+                }
+            }
+            if (free < 0) {
+                free = (start + ThreadLocalRandom.current().nextInt(MAX_PROBES)) & mask;
+            }
+            long victim = stripe.get(free);
+            if ((victim & ~SHARED) != key && stripe.compareAndSet(free, victim, key | owner)) {
+                /* another thread may have claimed the object in another slot at the same
+                 * time; the last of them to get here sees the other slot */
+                for (int i = 0, idx = start; i < MAX_PROBES; i++, idx = (idx + 1) & mask) {
+                    long slot = stripe.get(idx);
+                    if (idx != free && (slot & ~SHARED) == key && (slot & SHARED) != owner) {
+                        isOwnedBy(stripe, idx, slot, owner);
+                        stripe.compareAndSet(free, key | owner, key | SHARED);
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+    }
+
+    private static boolean isOwnedBy(AtomicLongArray stripe, int idx, long slot, long owner) {
+        if ((slot & SHARED) == owner) {
+            return true;
+        } else if ((slot & SHARED) != SHARED) {
+            /* fails only if another thread has already marked it shared or evicted it */
+            stripe.compareAndSet(idx, slot, (slot & ~SHARED) | SHARED);
+        }
+        return false;
+    }
+
+}
@@ -160,11 +160,18 @@ public final class RVPredictRuntime implements Constants {
 
     private static Configuration config;
 
+    /**
+     * The owning thread of each object, or {@code null} if all accesses are logged.
+     */
+    private static OwnershipTable ownership;
+
     private RVPredictRuntime() { } // forbid instantiation
 
     public static void init(Configuration config, ILoggingEngine logger) {
         RVPredictRuntime.config = config;
         RVPredictRuntime.logger = logger;
+        ObjectIds.init(config.unique_object_ids);
+        ownership = config.ownership_filter ? new OwnershipTable(config.ownership_table_size) : null;
     }
 
     public static void logClassInitializerEnter() {
@@ -187,6 +194,17 @@ public final class RVPredictRuntime implements Constants {
         }
     }
 
+    /**
+     * Decides whether the current execution of a method logs its memory accesses.
+     *
+     * @param methodId
+     *            the method identifier
+     * @return {@code true} if the memory accesses are to be logged
+     */
+    public static boolean sampleMethod(int methodId) {
+        return MethodSampler.sample(methodId);
+    }
+
     /**
      * Logs events produced by invoking {@code object.wait()}.
      *
@@ -294,8 +312,13 @@ public final class RVPredictRuntime implements Constants {
      */
     public static void logFieldAcc(Object object, long value, int variableId, boolean isWrite,
             int locId) {
+        int objectId = ObjectIds.of(object);
+        if (ownership != null && ownership.isOwnedByCurrentThread(objectId)
+                && !metadata.isVolatile(-variableId)) {
+            return;
+        }
         saveMemAccEvent(isWrite ? EventType.WRITE : EventType.READ, locId,
-                System.identityHashCode(object), -variableId, value);
+                objectId, -variableId, value);
     }
 
     /**
@@ -314,8 +337,12 @@ public final class RVPredictRuntime implements Constants {
      *            the location identifier of the event
      */
     public static void logArrayAcc(Object array, int index, long value, boolean isWrite, int locId) {
+        int arrayId = ObjectIds.of(array);
+        if (ownership != null && ownership.isOwnedByCurrentThread(arrayId)) {
+            return;
+        }
         saveMemAccEvent(isWrite ? EventType.WRITE : EventType.READ, locId,
-                System.identityHashCode(array), index, value);
+                arrayId, index, value);
     }
 
     /**
@@ -442,12 +469,12 @@ public final class RVPredictRuntime implements Constants {
     }
 
     private static void setInterruptedStatus(Thread t, int locId) {
-        saveAtomicEvent(EventType.ATOMIC_WRITE, locId, System.identityHashCode(t),
+        saveAtomicEvent(EventType.ATOMIC_WRITE, locId, ObjectIds.of(t),
                 -THREAD_INTERRUPTED_STATUS_VAR_ID, 1, 0);
     }
 
     private static void clearInterruptedStatus(Thread t, int locId) {
-        saveAtomicEvent(EventType.ATOMIC_WRITE, locId, System.identityHashCode(t),
+        saveAtomicEvent(EventType.ATOMIC_WRITE, locId, ObjectIds.of(t),
                 -THREAD_INTERRUPTED_STATUS_VAR_ID, 0, 0);
     }
 
@@ -456,13 +483,13 @@ public final class RVPredictRuntime implements Constants {
         if (clearInterrupted) {
             if (isInterrupted) {
                 saveAtomicEvent(EventType.ATOMIC_READ_THEN_WRITE, locId,
-                        System.identityHashCode(t), -THREAD_INTERRUPTED_STATUS_VAR_ID, 1, 0);
+                        ObjectIds.of(t), -THREAD_INTERRUPTED_STATUS_VAR_ID, 1, 0);
             } else {
-                saveAtomicEvent(EventType.ATOMIC_READ, locId, System.identityHashCode(t),
+                saveAtomicEvent(EventType.ATOMIC_READ, locId, ObjectIds.of(t),
                         -THREAD_INTERRUPTED_STATUS_VAR_ID, 0, 0);
             }
         } else {
-            saveAtomicEvent(EventType.ATOMIC_READ, locId, System.identityHashCode(t),
+            saveAtomicEvent(EventType.ATOMIC_READ, locId, ObjectIds.of(t),
                     -THREAD_INTERRUPTED_STATUS_VAR_ID, bool2int(isInterrupted), 0);
         }
     }
@@ -486,7 +513,7 @@ public final class RVPredictRuntime implements Constants {
                             if (srcObj == null
                                     || dest.getClass().getComponentType()
                                             .isAssignableFrom(srcObj.getClass())) {
-                                logArrayAcc(src, srcPos + i, System.identityHashCode(srcObj),
+                                logArrayAcc(src, srcPos + i, ObjectIds.of(srcObj),
                                         false, locId);
                             } else {
                                 k = i;
@@ -494,7 +521,7 @@ public final class RVPredictRuntime implements Constants {
                             }
                         }
                         for (int i = 0; i < k; i++) {
-                            logArrayAcc(dest, destPos + i, System.identityHashCode(((Object[]) src)[i + srcPos]),
+                            logArrayAcc(dest, destPos + i, ObjectIds.of(((Object[]) src)[i + srcPos]),
                                     true, locId);
                         }
                     }
@@ -1306,7 +1333,7 @@ public final class RVPredictRuntime implements Constants {
         }
 
         MutableInt state = collectionToState.computeIfAbsent(backingColl, x -> new MutableInt(0));
-        int addrl = System.identityHashCode(backingColl);
+        int addrl = ObjectIds.of(backingColl);
         int addrr = -metadata.getVariableId(backingColl.getClass().getName(), MOCK_STATE_FIELD);
         if (mutex != null) {
             synchronized (mutex) {
@@ -1336,7 +1363,7 @@ public final class RVPredictRuntime implements Constants {
                     state.increment();
                     if (isThreadSafe) {
                         saveAtomicEvent(EventType.ATOMIC_READ_THEN_WRITE, locId, addrl, addrr,
-                                value, value + 1, System.identityHashCode(state));
+                                value, value + 1, ObjectIds.of(state));
                     } else {
                         saveMemAccEvent(EventType.READ, locId, addrl, addrr, value);
                         saveMemAccEvent(EventType.WRITE, locId, addrl, addrr, value + 1);
@@ -1349,7 +1376,7 @@ public final class RVPredictRuntime implements Constants {
                     int value = state.intValue();
                     if (isThreadSafe) {
                         saveAtomicEvent(EventType.ATOMIC_READ, locId, addrl, addrr,
-                                value, 0, System.identityHashCode(state));
+                                value, 0, ObjectIds.of(state));
                     } else {
                         saveMemAccEvent(EventType.READ, locId, addrl, addrr, value);
                     }
@@ -1423,7 +1450,7 @@ public final class RVPredictRuntime implements Constants {
         if (lock == null) {
             throw new NullPointerException();
         }
-        logger.log(eventType, locId, LOCK_TYPE, System.identityHashCode(lock), 0, 0);
+        logger.log(eventType, locId, LOCK_TYPE, ObjectIds.of(lock), 0, 0);
     }
 
     private static void saveMetaEvent(EventType eventType, int locId) {
@@ -43,6 +43,7 @@ import java.util.*;
 import java.lang.ref.WeakReference;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 /**
@@ -146,23 +147,23 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         // assert lock.isHeldByCurrentThread();
         elem_id[idx] = elem_id_counter++;
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_ABQ_LOC_ID,
-                System.identityHashCode(this), elem_id[idx], 0);
+                ObjectIds.of(this), elem_id[idx], 0);
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_ABQ_LOC_ID,
-                System.identityHashCode(this), elem_id[idx], 1);
+                ObjectIds.of(this), elem_id[idx], 1);
     }
 
     private void _rvpredict_access_element(int idx) {
         // assert lock.isHeldByCurrentThread();
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_ABQ_LOC_ID,
-                System.identityHashCode(this), elem_id[idx], 1);
+                ObjectIds.of(this), elem_id[idx], 1);
     }
 
     private void _rvpredict_remove_element(int idx) {
         // assert lock.isHeldByCurrentThread();
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_ABQ_LOC_ID,
-                System.identityHashCode(this), elem_id[idx], 1);
+                ObjectIds.of(this), elem_id[idx], 1);
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_ABQ_LOC_ID,
-                System.identityHashCode(this), elem_id[idx], 0);
+                ObjectIds.of(this), elem_id[idx], 0);
     }
 
     // Internal helper methods
@@ -41,6 +41,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 /**
@@ -376,7 +377,7 @@ public class Exchanger<V> {
     }
 
     private int calcChannelId(long threadID, Object item) {
-        return Long.hashCode(threadID) ^ System.identityHashCode(item);
+        return Long.hashCode(threadID) ^ ObjectIds.of(item);
     }
 
     private void _rvpredict_exchange(Object exchange, Object receive) {
@@ -400,12 +401,12 @@ public class Exchanger<V> {
         }
 
         try {
-            long value = System.identityHashCode(barrier);
+            long value = ObjectIds.of(barrier);
             RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_EXCHANGER_LOC_ID,
-                    System.identityHashCode(this), calcChannelId(self, exchange), value);
+                    ObjectIds.of(this), calcChannelId(self, exchange), value);
             barrier.await();
             RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_EXCHANGER_LOC_ID,
-                    System.identityHashCode(this), calcChannelId(partner, receive), value);
+                    ObjectIds.of(this), calcChannelId(partner, receive), value);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -44,6 +44,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.LockSupport;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 /**
@@ -127,12 +128,12 @@ public class FutureTask<V> implements RunnableFuture<V> {
 
     private void _rvpredict_set_completion() {
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_FUTURE_TASK_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_FUTURE_TASK_COMPLETION, 1);
+                ObjectIds.of(this), -RVPREDICT_FUTURE_TASK_COMPLETION, 1);
     }
 
     private void _rvpredict_get_completion() {
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_FUTURE_TASK_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_FUTURE_TASK_COMPLETION, 1);
+                ObjectIds.of(this), -RVPREDICT_FUTURE_TASK_COMPLETION, 1);
     }
 
     /**
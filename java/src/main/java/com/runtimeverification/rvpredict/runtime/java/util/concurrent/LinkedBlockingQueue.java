@@ -44,6 +44,7 @@ import java.util.function.Consumer;
 import java.util.*;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 /**
@@ -199,29 +200,29 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
      * identity hashcode to uniquely identify an element in the queue.
      */
     private int calcElementId(Node<E> node) {
-        return System.identityHashCode(node);
+        return ObjectIds.of(node);
     }
 
     private void _rvpredict_add_element(Node<E> node) {
         // assert putLock.isHeldByCurrentThread();
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_LBQ_LOC_ID,
-                System.identityHashCode(this), calcElementId(node), 0);
+                ObjectIds.of(this), calcElementId(node), 0);
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_LBQ_LOC_ID,
-                System.identityHashCode(this), calcElementId(node), 1);
+                ObjectIds.of(this), calcElementId(node), 1);
     }
 
     private void _rvpredict_access_elememt(Node<E> node) {
         // assert isFullyLocked();
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_LBQ_LOC_ID,
-                System.identityHashCode(this), calcElementId(node), 1);
+                ObjectIds.of(this), calcElementId(node), 1);
     }
 
     private void _rvpredict_remove_element(Node<E> node) {
         // assert takeLock.isHeldByCurrentThread();
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_LBQ_LOC_ID,
-                System.identityHashCode(this), calcElementId(node), 1);
+                ObjectIds.of(this), calcElementId(node), 1);
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_LBQ_LOC_ID,
-                System.identityHashCode(this), calcElementId(node), 0);
+                ObjectIds.of(this), calcElementId(node), 0);
     }
 
     /**
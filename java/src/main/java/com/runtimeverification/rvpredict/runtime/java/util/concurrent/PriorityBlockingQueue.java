@@ -52,6 +52,7 @@ import java.util.Spliterator;
 import java.util.function.Consumer;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 /**
@@ -309,21 +310,21 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
     private void _rvpredict_add_elem_id(int elem_id) {
         // assert lock.isHeldByCurrentThread();
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_PBQ_LOC_ID,
-                System.identityHashCode(this), elem_id, 1);
+                ObjectIds.of(this), elem_id, 1);
     }
 
     private void _rvpredict_access_element(int idx) {
         // assert lock.isHeldByCurrentThread();
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_PBQ_LOC_ID,
-                System.identityHashCode(this), elem_id[idx], 1);
+                ObjectIds.of(this), elem_id[idx], 1);
     }
 
     private void _rvpredict_remove_element(int idx) {
         // assert lock.isHeldByCurrentThread();
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_PBQ_LOC_ID,
-                System.identityHashCode(this), elem_id[idx], 1);
+                ObjectIds.of(this), elem_id[idx], 1);
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_PBQ_LOC_ID,
-                System.identityHashCode(this), elem_id[idx], 0);
+                ObjectIds.of(this), elem_id[idx], 0);
     }
 
     /**
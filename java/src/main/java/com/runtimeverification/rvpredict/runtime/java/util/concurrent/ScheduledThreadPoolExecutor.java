@@ -49,6 +49,7 @@ import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 import java.util.*;
@@ -890,21 +891,21 @@ public class ScheduledThreadPoolExecutor
         private void _rvpredict_add_elem_id(int elem_id) {
             // assert lock.isHeldByCurrentThread();
             RVPredictRuntime.saveMemAccEvent(EventType.WRITE, DELAYED_WORK_QUEUE_LOC_ID,
-                    System.identityHashCode(this), elem_id, 1);
+                    ObjectIds.of(this), elem_id, 1);
         }
 
 //        private void _rvpredict_access_element(int idx) {
 //            // assert lock.isHeldByCurrentThread();
 //            RVPredictRuntime.saveMemAccEvent(EventType.READ, DELAYED_WORK_QUEUE_LOC_ID,
-//                    System.identityHashCode(this), elem_id[idx], 1);
+//                    ObjectIds.of(this), elem_id[idx], 1);
 //        }
 
         private void _rvpredict_remove_element(int idx) {
             // assert lock.isHeldByCurrentThread();
             RVPredictRuntime.saveMemAccEvent(EventType.READ, DELAYED_WORK_QUEUE_LOC_ID,
-                    System.identityHashCode(this), elem_id[idx], 1);
+                    ObjectIds.of(this), elem_id[idx], 1);
             RVPredictRuntime.saveMemAccEvent(EventType.WRITE, DELAYED_WORK_QUEUE_LOC_ID,
-                    System.identityHashCode(this), elem_id[idx], 0);
+                    ObjectIds.of(this), elem_id[idx], 0);
         }
 
         /**
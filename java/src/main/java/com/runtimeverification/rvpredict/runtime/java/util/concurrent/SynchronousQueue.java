@@ -44,6 +44,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.*;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 /**
@@ -100,7 +101,7 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
     private static int calcElementId(Object e) {
         if (e == null)
             throw new NullPointerException();
-        return System.identityHashCode(e);
+        return ObjectIds.of(e);
     }
 
     private void _rvpredict_add_element(E e) {
@@ -108,8 +109,8 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
         while (_rvpredict_transfer_elem_map.putIfAbsent(e, elemAdded) != null)
             Thread.yield();
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_SYNCQ_LOC_ID,
-                System.identityHashCode(this), calcElementId(e),
-                System.identityHashCode(elemAdded));
+                ObjectIds.of(this), calcElementId(e),
+                ObjectIds.of(elemAdded));
         elemAdded.set(true);
     }
 
@@ -120,8 +121,8 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
         while (!elemAdded.get())
             Thread.yield();
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_SYNCQ_LOC_ID,
-                System.identityHashCode(this), calcElementId(e),
-                System.identityHashCode(elemAdded));
+                ObjectIds.of(this), calcElementId(e),
+                ObjectIds.of(elemAdded));
     }
 
     /*
@@ -47,6 +47,7 @@ import java.util.*;
 
 import com.google.common.collect.MapMaker;
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 /**
@@ -631,15 +632,15 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         Runnable _rvpredict_get_firstTask() {
             Runnable firstTask = this.firstTask;
             RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_THREAD_POOL_EXECUTOR_LOC_ID,
-                    System.identityHashCode(this), RVPREDICT_FIRST_TASK,
-                    System.identityHashCode(firstTask));
+                    ObjectIds.of(this), RVPREDICT_FIRST_TASK,
+                    ObjectIds.of(firstTask));
             return firstTask;
         }
 
         void _rvpredict_set_firstTask(Runnable firstTask) {
             RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_THREAD_POOL_EXECUTOR_LOC_ID,
-                    System.identityHashCode(this), RVPREDICT_FIRST_TASK,
-                    System.identityHashCode(firstTask));
+                    ObjectIds.of(this), RVPREDICT_FIRST_TASK,
+                    ObjectIds.of(firstTask));
             this.firstTask = firstTask;
         }
 
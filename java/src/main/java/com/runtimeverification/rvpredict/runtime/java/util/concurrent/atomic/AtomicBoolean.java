@@ -37,6 +37,7 @@ package com.runtimeverification.rvpredict.runtime.java.util.concurrent.atomic;
 import sun.misc.Unsafe;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 /**
@@ -82,17 +83,17 @@ public class AtomicBoolean implements java.io.Serializable {
 
     private void _rvpredict_atomic_read(int value) {
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_READ, RVPREDICT_ATOMIC_BOOL_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_ATOMIC_BOOL_VALUE_ID, value, 0);
+                ObjectIds.of(this), -RVPREDICT_ATOMIC_BOOL_VALUE_ID, value, 0);
     }
 
     private void _rvpredict_atomic_write(int value) {
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_WRITE, RVPREDICT_ATOMIC_BOOL_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_ATOMIC_BOOL_VALUE_ID, value, 0);
+                ObjectIds.of(this), -RVPREDICT_ATOMIC_BOOL_VALUE_ID, value, 0);
     }
 
     private void _rvpredict_atomic_read_then_write(int oldValue, int newValue) {
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_READ_THEN_WRITE, RVPREDICT_ATOMIC_BOOL_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_ATOMIC_BOOL_VALUE_ID, oldValue, newValue);
+                ObjectIds.of(this), -RVPREDICT_ATOMIC_BOOL_VALUE_ID, oldValue, newValue);
     }
 
     private int _rvpredict_get_value() {
@@ -37,6 +37,7 @@ package com.runtimeverification.rvpredict.runtime.java.util.concurrent.atomic;
 import java.util.function.IntUnaryOperator;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 import java.util.function.IntBinaryOperator;
@@ -114,7 +115,7 @@ public class AtomicIntegerArray implements java.io.Serializable {
     }
 
     private void _rvpredict_atomic_read(long offset, int value) {
-        int addrl = System.identityHashCode(array);
+        int addrl = ObjectIds.of(array);
         int addrr = arrayIndex(offset);
         int atomLock = addrl ^ addrr;
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_READ,
@@ -122,7 +123,7 @@ public class AtomicIntegerArray implements java.io.Serializable {
     }
 
     private void _rvpredict_atomic_write(long offset, int value) {
-        int addrl = System.identityHashCode(array);
+        int addrl = ObjectIds.of(array);
         int addrr = arrayIndex(offset);
         int atomLock = addrl ^ addrr;
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_WRITE,
@@ -130,7 +131,7 @@ public class AtomicIntegerArray implements java.io.Serializable {
     }
 
     private void _rvpredict_atomic_read_then_write(long offset, int oldValue, int newValue) {
-        int addrl = System.identityHashCode(array);
+        int addrl = ObjectIds.of(array);
         int addrr = arrayIndex(offset);
         int atomLock = addrl ^ addrr;
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_READ_THEN_WRITE,
@@ -37,6 +37,7 @@ package com.runtimeverification.rvpredict.runtime.java.util.concurrent.atomic;
 import java.util.function.IntUnaryOperator;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 import java.util.function.IntBinaryOperator;
@@ -453,21 +454,21 @@ public abstract class AtomicIntegerFieldUpdater<T> {
 
         private void _rvpredict_atomic_read(T obj, int value) {
             RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_READ,
-                    RVPREDICT_ATOMIC_INTEGER_FIELD_UPDATER_LOC_ID, System.identityHashCode(obj),
-                    -_rvpredict_atom_int_field_id, value, 0, System.identityHashCode(this));
+                    RVPREDICT_ATOMIC_INTEGER_FIELD_UPDATER_LOC_ID, ObjectIds.of(obj),
+                    -_rvpredict_atom_int_field_id, value, 0, ObjectIds.of(this));
         }
 
         private void _rvpredict_atomic_write(T obj, int value) {
             RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_WRITE,
-                    RVPREDICT_ATOMIC_INTEGER_FIELD_UPDATER_LOC_ID, System.identityHashCode(obj),
-                    -_rvpredict_atom_int_field_id, value, 0, System.identityHashCode(this));
+                    RVPREDICT_ATOMIC_INTEGER_FIELD_UPDATER_LOC_ID, ObjectIds.of(obj),
+                    -_rvpredict_atom_int_field_id, value, 0, ObjectIds.of(this));
         }
 
         private void _rvpredict_atomic_read_then_write(T obj, int oldValue, int newValue) {
             RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_READ_THEN_WRITE,
-                    RVPREDICT_ATOMIC_INTEGER_FIELD_UPDATER_LOC_ID, System.identityHashCode(obj),
+                    RVPREDICT_ATOMIC_INTEGER_FIELD_UPDATER_LOC_ID, ObjectIds.of(obj),
                     -_rvpredict_atom_int_field_id, oldValue, newValue,
-                    System.identityHashCode(this));
+                    ObjectIds.of(this));
         }
 
         private int _rvpredict_get_value(T obj) {
@@ -43,6 +43,7 @@ import java.util.Collection;
 import java.util.Date;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 import sun.misc.Unsafe;
@@ -333,17 +334,17 @@ public abstract class AbstractQueuedLongSynchronizer
 
     private void _rvpredict_atomic_read(long value) {
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_READ, RVPREDICT_AQLS_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_AQLS_STATE_ID, value, 0);
+                ObjectIds.of(this), -RVPREDICT_AQLS_STATE_ID, value, 0);
     }
 
     private void _rvpredict_atomic_write(long value) {
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_WRITE, RVPREDICT_AQLS_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_AQLS_STATE_ID, value, 0);
+                ObjectIds.of(this), -RVPREDICT_AQLS_STATE_ID, value, 0);
     }
 
     private void _rvpredict_atomic_read_then_write(long oldValue, long newValue) {
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_READ_THEN_WRITE, RVPREDICT_AQLS_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_AQLS_STATE_ID, oldValue, newValue);
+                ObjectIds.of(this), -RVPREDICT_AQLS_STATE_ID, oldValue, newValue);
     }
 
     private long _rvpredict_get_state() {
@@ -43,6 +43,7 @@ import java.util.Collection;
 import java.util.Date;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 import sun.misc.Unsafe;
@@ -555,17 +556,17 @@ public abstract class AbstractQueuedSynchronizer
 
     private void _rvpredict_atomic_read(int value) {
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_READ, RVPREDICT_AQS_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_AQS_STATE_ID, value, 0);
+                ObjectIds.of(this), -RVPREDICT_AQS_STATE_ID, value, 0);
     }
 
     private void _rvpredict_atomic_write(int value) {
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_WRITE, RVPREDICT_AQS_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_AQS_STATE_ID, value, 0);
+                ObjectIds.of(this), -RVPREDICT_AQS_STATE_ID, value, 0);
     }
 
     private void _rvpredict_atomic_read_then_write(int oldValue, int newValue) {
         RVPredictRuntime.saveAtomicEvent(EventType.ATOMIC_READ_THEN_WRITE, RVPREDICT_AQS_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_AQS_STATE_ID, oldValue, newValue);
+                ObjectIds.of(this), -RVPREDICT_AQS_STATE_ID, oldValue, newValue);
     }
 
     private int _rvpredict_get_state() {
@@ -0,0 +1,103 @@
+package com.runtimeverification.rvpredict.smt;
+
+import com.runtimeverification.rvpredict.config.Configuration;
+import com.runtimeverification.rvpredict.performance.Profiler;
+import com.runtimeverification.rvpredict.performance.ProfilerToken;
+import com.runtimeverification.rvpredict.smt.formula.BoolFormula;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Race checker running the {@link DifferenceLogicSolver} in the analysis thread instead of
+ * calling Z3.
+ * <p>
+ * All the constraints of the maximal causal model are difference logic constraints, which
+ * the solver decides exactly, so it can replace Z3 entirely. Like
+ * {@link SingleThreadedRaceSolver}, a race is first checked against the unsound but fast
+ * constraints, then against the sound ones, each set asserted in its own solver for the
+ * whole window so that only the race assertions are propagated again for each race, and
+ * the clauses learned for a race are kept for the next ones.
+ */
+public class DifferenceLogicRaceSolver implements RaceSolver {
+
+    private final long fastTimeoutNanos;
+    private final long soundTimeoutNanos;
+
+    private Optional<WindowData> currentWindowData = Optional.empty();
+
+    private DifferenceLogicSolver fastSolver;
+
+    private DifferenceLogicSolver soundSolver;
+
+    public DifferenceLogicRaceSolver(Configuration config) {
+        /* same split of the timeout as for Z3 */
+        this.fastTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.solver_timeout * 900L);
+        this.soundTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.solver_timeout * 100L);
+    }
+
+    @Override
+    public void checkRace(
+            WindowData windowData,
+            BoolFormula assertion,
+            SolutionReporter solutionReporter) {
+        try (ProfilerToken ignored1 =
+                     Profiler.instance().start("Preparing the window " + Thread.currentThread().getName())) {
+            startWindowIfNeeded(windowData);
+        }
+        try (ProfilerToken ignored1 =
+                     Profiler.instance().start("Main solver loop " + Thread.currentThread().getName())) {
+            if (fastSolver.check(fastTimeoutNanos, fastSolver.literal(assertion))
+                    == DifferenceLogicSolver.Result.SATISFIABLE) {
+                try (ProfilerToken ignored2 =
+                             Profiler.instance().start(
+                                     "Secondary solver loop " + Thread.currentThread().getName())) {
+                    if (soundSolver.check(soundTimeoutNanos, soundSolver.literal(assertion))
+                            == DifferenceLogicSolver.Result.SATISFIABLE) {
+                        solutionReporter.solution(soundSolver.getModel());
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void generateSolution(WindowData windowData, SolutionReporter solutionReporter) {
+        startWindowIfNeeded(windowData);
+        if (soundSolver.check(soundTimeoutNanos) == DifferenceLogicSolver.Result.SATISFIABLE) {
+            solutionReporter.solution(soundSolver.getModel());
+        }
+    }
+
+    @Override
+    public void finishAllWork() {
+    }
+
+    @Override
+    public void close() {
+        endWindow();
+    }
+
+    private void startWindowIfNeeded(WindowData windowData) {
+        if (currentWindowData.isPresent()
+                && currentWindowData.get().getWindowId() == windowData.getWindowId()) {
+            return;
+        }
+        endWindow();
+        currentWindowData = Optional.of(windowData);
+        fastSolver = new DifferenceLogicSolver();
+        soundSolver = new DifferenceLogicSolver();
+        fastSolver.assertFormula(windowData.getUnsoundButFastPhiTau());
+        soundSolver.assertFormula(windowData.getSoundPhiTau());
+        for (BoolFormula entry : windowData.getPhiConc()) {
+            fastSolver.assertFormula(entry);
+            soundSolver.assertFormula(entry);
+        }
+    }
+
+    private void endWindow() {
+        fastSolver = null;
+        soundSolver = null;
+        currentWindowData = Optional.empty();
+    }
+}
@@ -0,0 +1,949 @@
+package com.runtimeverification.rvpredict.smt;
+
+import com.runtimeverification.rvpredict.smt.formula.BooleanConstant;
+import com.runtimeverification.rvpredict.smt.formula.BooleanOperation;
+import com.runtimeverification.rvpredict.smt.formula.BooleanVariable;
+import com.runtimeverification.rvpredict.smt.formula.FormulaTerm;
+import com.runtimeverification.rvpredict.smt.formula.IntConstant;
+import com.runtimeverification.rvpredict.smt.formula.SMTFormula;
+import com.runtimeverification.rvpredict.smt.formula.SMTVariable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Solver for the quantifier-free integer difference logic formulas of the
+ * {@link MaximalCausalModel}, i.e. the Boolean combinations of {@code x < y} and
+ * {@code x = y} over integer variables and constants.
+ * <p>
+ * The formulas are turned into clauses by the Tseitin transformation, each comparison
+ * becoming one or two atoms {@code x - y <= k}. The clauses are solved by a CDCL SAT
+ * solver with watched literals, VSIDS and Luby restarts. The atoms assigned by the SAT
+ * solver are the edges of a constraint graph, {@code x - y <= k} being an edge from
+ * {@code y} to {@code x} of weight {@code k}, and the assignment is consistent as long as
+ * the graph has no negative cycle. The graph keeps a potential function which is a
+ * solution of its constraints, so that adding an edge only updates the potentials
+ * reachable from it and finds a negative cycle on the way if there is one [Cotton and
+ * Maler, Fast and Flexible Difference Constraint Propagation for DPLL(T)]. The cycle is
+ * returned to the SAT solver as a conflict clause.
+ * <p>
+ * Formulas are asserted once and checked under assumptions, so that the clauses learned
+ * while checking one race are kept for the next ones. Not thread safe.
+ */
+public class DifferenceLogicSolver {
+
+    public enum Result {
+        SATISFIABLE, UNSATISFIABLE, UNKNOWN
+    }
+
+    private static final int FALSE = 0;
+    private static final int TRUE = 1;
+    private static final int UNDEF = 2;
+
+    private static final int POSITIVE = 1;
+    private static final int NEGATIVE = 2;
+
+    private static final int RESTART_BASE = 100;
+    private static final double VAR_DECAY = 0.95;
+
+    /**
+     * Node of the constant {@code 0}, so that a constant {@code c} is the node {@code 0}
+     * plus the offset {@code c}.
+     */
+    private static final int ZERO = 0;
+
+    private static final class Clause {
+        final int[] lits;
+
+        Clause(int[] lits) {
+            this.lits = lits;
+        }
+    }
+
+    /**
+     * Atom {@code x - y <= k}, with {@code x < y} so that an atom and its negation
+     * {@code y - x <= -k - 1} are the two literals of the same variable.
+     */
+    private static final class Atom {
+        final int x;
+        final int y;
+        final long k;
+
+        Atom(int x, int y, long k) {
+            this.x = x;
+            this.y = y;
+            this.k = k;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Atom)) {
+                return false;
+            }
+            Atom atom = (Atom) o;
+            return x == atom.x && y == atom.y && k == atom.k;
+        }
+
+        @Override
+        public int hashCode() {
+            return (x * 31 + y) * 31 + Long.hashCode(k);
+        }
+    }
+
+    /* Boolean variables; literal 2v is v and literal 2v+1 is not v */
+    private int numVars = 0;
+    private int[] assigns = new int[0];
+    private int[] levels = new int[0];
+    private Clause[] reasons = new Clause[0];
+    private boolean[] phases = new boolean[0];
+    private boolean[] seen = new boolean[0];
+    private double[] activities = new double[0];
+    private Atom[] atoms = new Atom[0];
+    private boolean[] inGraph = new boolean[0];
+    /**
+     * The polarities a variable is encoded for; see {@link #encode}.
+     */
+    private int[] polarities = new int[0];
+    private ClauseList[] watches = new ClauseList[0];
+    private final IntHeap order = new IntHeap((v, w) -> activities[v] > activities[w]);
+    private double varInc = 1;
+
+    private int[] trail = new int[0];
+    private int trailSize = 0;
+    private int qhead = 0;
+    private final IntList trailLims = new IntList();
+
+    /**
+     * {@code false} once the asserted formulas are known to be unsatisfiable.
+     */
+    private boolean ok = true;
+
+    private int[] assumptions = new int[0];
+    private long deadline;
+    private boolean timedOut;
+    private long conflicts = 0;
+
+    /* Integer variables and the constraint graph of the assigned atoms */
+    private final List<SMTVariable> nodeVariables = new ArrayList<>();
+    private final Map<SMTVariable, Integer> variableToNode = new HashMap<>();
+    private IntList[] outEdges = new IntList[0];
+    private long[] potentials = new long[0];
+    private long[] gammas = new long[0];
+    private int[] predecessors = new int[0];
+    private boolean[] relaxed = new boolean[0];
+    private final IntHeap relaxQueue = new IntHeap((n, m) -> gammas[n] < gammas[m]);
+    private final IntList touchedNodes = new IntList();
+    private final IntList relaxedNodes = new IntList();
+
+    /* Translation of formulas to literals */
+    private final Map<SMTFormula, Integer> formulaToLiteral = new IdentityHashMap<>();
+    private final Map<BooleanVariable, Integer> booleanVariables = new HashMap<>();
+    private final Map<Atom, Integer> atomToVar = new HashMap<>();
+    private final int trueLiteral;
+
+    public DifferenceLogicSolver() {
+        nodeVariables.add(null);
+        newNode();
+        trueLiteral = 2 * newVar();
+        addClause(trueLiteral);
+    }
+
+    /**
+     * Asserts a formula for all the subsequent checks.
+     */
+    public void assertFormula(SMTFormula formula) {
+        addClause(literal(formula));
+    }
+
+    /**
+     * @return a literal implying the formula, to be passed as an assumption to
+     *         {@link #check}
+     */
+    public int literal(SMTFormula formula) {
+        return encode(formula, POSITIVE);
+    }
+
+    /**
+     * Translates a formula occurring with the given polarities.
+     * <p>
+     * Only the implications needed by the polarities are encoded [Plaisted and Greenbaum],
+     * so that the variables of the formulas which are not assumed, such as the assertions
+     * of the races checked before, can be left false without constraining anything. For
+     * the same reason, an atom only adds its edge to the graph when assigned the value it
+     * has in the clauses.
+     *
+     * @return the literal of the formula
+     */
+    private int encode(SMTFormula formula, int polarity) {
+        if (formula instanceof FormulaTerm
+                && ((FormulaTerm) formula).getOperation() == BooleanOperation.NOT) {
+            return encode(((FormulaTerm) formula).getTerms().get(0), flip(polarity)) ^ 1;
+        }
+
+        Integer literal = formulaToLiteral.get(formula);
+        if (literal == null) {
+            literal = newLiteral(formula);
+            formulaToLiteral.put(formula, literal);
+        }
+        int var = literal >> 1;
+        int varPolarity = (literal & 1) == 0 ? polarity : flip(polarity);
+        int missing = varPolarity & ~polarities[var];
+        if (missing != 0) {
+            polarities[var] |= missing;
+            if (formula instanceof FormulaTerm) {
+                define((FormulaTerm) formula, literal, missing);
+            }
+        }
+        return literal;
+    }
+
+    private static int flip(int polarity) {
+        return ((polarity & POSITIVE) != 0 ? NEGATIVE : 0) | ((polarity & NEGATIVE) != 0 ? POSITIVE : 0);
+    }
+
+    private int newLiteral(SMTFormula formula) {
+        if (formula == BooleanConstant.TRUE) {
+            return trueLiteral;
+        } else if (formula == BooleanConstant.FALSE) {
+            return trueLiteral ^ 1;
+        } else if (formula instanceof BooleanVariable) {
+            return booleanVariables.computeIfAbsent((BooleanVariable) formula, v -> 2 * newVar());
+        } else if (formula instanceof FormulaTerm) {
+            FormulaTerm term = (FormulaTerm) formula;
+            if (term.getOperation() == BooleanOperation.LESS_THAN) {
+                return atom(term.getTerms().get(0), term.getTerms().get(1), -1);
+            }
+            return 2 * newVar();
+        }
+        throw new UnsupportedOperationException("Unsupported formula " + formula);
+    }
+
+    /**
+     * Adds the clauses defining the literal of a term for the given polarities.
+     */
+    private void define(FormulaTerm term, int literal, int polarity) {
+        List<SMTFormula> terms = term.getTerms();
+        BooleanOperation operation = term.getOperation();
+        if (operation == BooleanOperation.LESS_THAN) {
+            /* an atom, or a constant if both sides are the same */
+            return;
+        }
+        /* the other terms have a variable of their own, which is a positive literal */
+        if (operation == BooleanOperation.AND || operation == BooleanOperation.OR) {
+            /* an OR is the negation of the AND of the negated terms */
+            int sign = operation == BooleanOperation.AND ? 0 : 1;
+            int and = literal ^ sign;
+            int andPolarity = sign == 0 ? polarity : flip(polarity);
+            int[] lits = new int[terms.size()];
+            for (int i = 0; i < lits.length; i++) {
+                lits[i] = encode(terms.get(i), polarity) ^ sign;
+            }
+            if ((andPolarity & POSITIVE) != 0) {
+                for (int lit : lits) {
+                    addClause(and ^ 1, lit);
+                }
+            }
+            if ((andPolarity & NEGATIVE) != 0) {
+                int[] clause = new int[lits.length + 1];
+                clause[0] = and;
+                for (int i = 0; i < lits.length; i++) {
+                    clause[i + 1] = lits[i] ^ 1;
+                }
+                addClause(clause);
+            }
+        } else if (operation == BooleanOperation.BOOL_EQUAL) {
+            int a = encode(terms.get(0), POSITIVE | NEGATIVE);
+            int b = encode(terms.get(1), POSITIVE | NEGATIVE);
+            if ((polarity & POSITIVE) != 0) {
+                addClause(literal ^ 1, a ^ 1, b);
+                addClause(literal ^ 1, a, b ^ 1);
+            }
+            if ((polarity & NEGATIVE) != 0) {
+                addClause(literal, a, b);
+                addClause(literal, a ^ 1, b ^ 1);
+            }
+        } else if (operation == BooleanOperation.INT_EQUAL) {
+            /* x = y is x - y <= 0 and not x - y <= -1 */
+            SMTFormula left = terms.get(0);
+            SMTFormula right = terms.get(1);
+            int le = atom(left, right, 0);
+            int lt = atom(left, right, -1);
+            if ((polarity & POSITIVE) != 0) {
+                addClause(literal ^ 1, occurs(le, POSITIVE));
+                addClause(literal ^ 1, occurs(lt, NEGATIVE) ^ 1);
+            }
+            if ((polarity & NEGATIVE) != 0) {
+                addClause(literal, occurs(le, NEGATIVE) ^ 1, occurs(lt, POSITIVE));
+            }
+        } else {
+            throw new UnsupportedOperationException("Unsupported operation " + operation);
+        }
+    }
+
+    /**
+     * Records that an atom occurs in the clauses with the given polarity.
+     */
+    private int occurs(int literal, int polarity) {
+        polarities[literal >> 1] |= (literal & 1) == 0 ? polarity : flip(polarity);
+        return literal;
+    }
+
+    /**
+     * @return the literal of the atom {@code left - right <= k}
+     */
+    private int atom(SMTFormula left, SMTFormula right, long k) {
+        int x = node(left);
+        int y = node(right);
+        k += offset(right) - offset(left);
+        if (x == y) {
+            return k >= 0 ? trueLiteral : trueLiteral ^ 1;
+        }
+        Atom atom = x < y ? new Atom(x, y, k) : new Atom(y, x, -k - 1);
+        int var = atomToVar.computeIfAbsent(atom, a -> {
+            int v = newVar();
+            atoms[v] = a;
+            return v;
+        });
+        return x < y ? 2 * var : 2 * var + 1;
+    }
+
+    private int node(SMTFormula term) {
+        if (term instanceof IntConstant) {
+            return ZERO;
+        } else if (term instanceof SMTVariable) {
+            return variableToNode.computeIfAbsent((SMTVariable) term, v -> {
+                nodeVariables.add(v);
+                return newNode();
+            });
+        }
+        throw new UnsupportedOperationException("Unsupported integer term " + term);
+    }
+
+    private static long offset(SMTFormula term) {
+        return term instanceof IntConstant ? Long.parseLong(((IntConstant) term).getValue()) : 0;
+    }
+
+    private int newNode() {
+        int node = potentials.length;
+        outEdges = Arrays.copyOf(outEdges, node + 1);
+        outEdges[node] = new IntList();
+        potentials = Arrays.copyOf(potentials, node + 1);
+        gammas = Arrays.copyOf(gammas, node + 1);
+        predecessors = Arrays.copyOf(predecessors, node + 1);
+        relaxed = Arrays.copyOf(relaxed, node + 1);
+        return node;
+    }
+
+    private int newVar() {
+        int var = numVars++;
+        if (var == assigns.length) {
+            int capacity = Math.max(16, 2 * var);
+            assigns = Arrays.copyOf(assigns, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            reasons = Arrays.copyOf(reasons, capacity);
+            phases = Arrays.copyOf(phases, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            activities = Arrays.copyOf(activities, capacity);
+            atoms = Arrays.copyOf(atoms, capacity);
+            inGraph = Arrays.copyOf(inGraph, capacity);
+            polarities = Arrays.copyOf(polarities, capacity);
+            trail = Arrays.copyOf(trail, capacity);
+            watches = Arrays.copyOf(watches, 2 * capacity);
+        }
+        assigns[var] = UNDEF;
+        watches[2 * var] = new ClauseList();
+        watches[2 * var + 1] = new ClauseList();
+        order.insert(var);
+        return var;
+    }
+
+    private int value(int lit) {
+        int assign = assigns[lit >> 1];
+        return assign == UNDEF ? UNDEF : assign ^ (lit & 1);
+    }
+
+    private int decisionLevel() {
+        return trailLims.size();
+    }
+
+    /**
+     * Adds a clause at decision level 0, where all the translation happens.
+     */
+    private void addClause(int... lits) {
+        if (!ok) {
+            return;
+        }
+        int size = 0;
+        int[] clause = new int[lits.length];
+        for (int lit : lits) {
+            int value = value(lit);
+            if (value == TRUE) {
+                return;
+            } else if (value == UNDEF) {
+                clause[size++] = lit;
+            }
+        }
+        if (size == 0) {
+            ok = false;
+        } else if (size == 1) {
+            enqueue(clause[0], null);
+            ok = propagate() == null;
+        } else {
+            attach(new Clause(Arrays.copyOf(clause, size)));
+        }
+    }
+
+    private void attach(Clause clause) {
+        watches[clause.lits[0] ^ 1].add(clause);
+        watches[clause.lits[1] ^ 1].add(clause);
+    }
+
+    private void enqueue(int lit, Clause reason) {
+        int var = lit >> 1;
+        assigns[var] = (lit & 1) ^ TRUE;
+        levels[var] = decisionLevel();
+        reasons[var] = reason;
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * Propagates the assigned literals through the clauses and the constraint graph.
+     *
+     * @return a conflicting clause whose literals are all false, or {@code null}
+     */
+    private Clause propagate() {
+        while (qhead < trailSize) {
+            int lit = trail[qhead++];
+            if (atoms[lit >> 1] != null
+                    && (polarities[lit >> 1] & ((lit & 1) == 0 ? POSITIVE : NEGATIVE)) != 0) {
+                Clause conflict = addEdge(lit);
+                if (conflict != null) {
+                    qhead = trailSize;
+                    return conflict;
+                }
+            }
+
+            ClauseList list = watches[lit];
+            Clause[] clauses = list.clauses;
+            int falseLit = lit ^ 1;
+            int i = 0;
+            int j = 0;
+            int size = list.size;
+            next:
+            while (i < size) {
+                Clause clause = clauses[i++];
+                int[] lits = clause.lits;
+                if (lits[0] == falseLit) {
+                    lits[0] = lits[1];
+                    lits[1] = falseLit;
+                }
+                if (value(lits[0]) == TRUE) {
+                    clauses[j++] = clause;
+                    continue;
+                }
+                for (int k = 2; k < lits.length; k++) {
+                    if (value(lits[k]) != FALSE) {
+                        lits[1] = lits[k];
+                        lits[k] = falseLit;
+                        watches[lits[1] ^ 1].add(clause);
+                        continue next;
+                    }
+                }
+                clauses[j++] = clause;
+                if (value(lits[0]) == FALSE) {
+                    while (i < size) {
+                        clauses[j++] = clauses[i++];
+                    }
+                    list.size = j;
+                    qhead = trailSize;
+                    return clause;
+                }
+                enqueue(lits[0], clause);
+            }
+            list.size = j;
+        }
+        return null;
+    }
+
+    /**
+     * Adds the edge of an assigned atom to the constraint graph and updates the potentials
+     * of the nodes reachable from it.
+     *
+     * @return the clause forbidding the negative cycle closed by the edge, or {@code null}
+     *         if there is none, in which case the edge is added
+     */
+    private Clause addEdge(int lit) {
+        int from = source(lit);
+        int to = target(lit);
+        long weight = weight(lit);
+        if (potentials[from] + weight >= potentials[to]) {
+            outEdges[from].add(lit);
+            inGraph[lit >> 1] = true;
+            return null;
+        }
+
+        Clause conflict = null;
+        gammas[to] = potentials[from] + weight - potentials[to];
+        predecessors[to] = lit;
+        touchedNodes.add(to);
+        relaxQueue.insert(to);
+        relax:
+        while (!relaxQueue.isEmpty()) {
+            int node = relaxQueue.removeTop();
+            relaxed[node] = true;
+            relaxedNodes.add(node);
+            potentials[node] += gammas[node];
+            IntList edges = outEdges[node];
+            for (int i = 0; i < edges.size(); i++) {
+                int edge = edges.get(i);
+                int next = target(edge);
+                if (relaxed[next]) {
+                    continue;
+                }
+                long gamma = potentials[node] + weight(edge) - potentials[next];
+                if (gamma < gammas[next]) {
+                    if (next == from) {
+                        conflict = cycle(lit, edge);
+                        break relax;
+                    }
+                    if (gammas[next] == 0) {
+                        touchedNodes.add(next);
+                    }
+                    gammas[next] = gamma;
+                    predecessors[next] = edge;
+                    relaxQueue.update(next);
+                }
+            }
+        }
+
+        if (conflict != null) {
+            /* the gamma of a relaxed node is what its potential was decreased by */
+            for (int i = 0; i < relaxedNodes.size(); i++) {
+                potentials[relaxedNodes.get(i)] -= gammas[relaxedNodes.get(i)];
+            }
+            relaxQueue.clear();
+        } else {
+            outEdges[from].add(lit);
+            inGraph[lit >> 1] = true;
+        }
+        for (int i = 0; i < touchedNodes.size(); i++) {
+            int node = touchedNodes.get(i);
+            gammas[node] = 0;
+            relaxed[node] = false;
+        }
+        touchedNodes.clear();
+        relaxedNodes.clear();
+        return conflict;
+    }
+
+    /**
+     * @return the clause negating the atoms of the cycle made of the new edge, the path of
+     *         predecessors from its target and the closing edge
+     */
+    private Clause cycle(int newEdge, int closingEdge) {
+        IntList lits = new IntList();
+        lits.add(closingEdge ^ 1);
+        int target = target(newEdge);
+        for (int node = source(closingEdge); node != target; node = source(predecessors[node])) {
+            lits.add(predecessors[node] ^ 1);
+        }
+        lits.add(newEdge ^ 1);
+        return new Clause(lits.toArray());
+    }
+
+    private int source(int lit) {
+        Atom atom = atoms[lit >> 1];
+        return (lit & 1) == 0 ? atom.y : atom.x;
+    }
+
+    private int target(int lit) {
+        Atom atom = atoms[lit >> 1];
+        return (lit & 1) == 0 ? atom.x : atom.y;
+    }
+
+    private long weight(int lit) {
+        Atom atom = atoms[lit >> 1];
+        return (lit & 1) == 0 ? atom.k : -atom.k - 1;
+    }
+
+    private void cancelUntil(int level) {
+        if (decisionLevel() <= level) {
+            return;
+        }
+        int lim = trailLims.get(level);
+        for (int i = trailSize - 1; i >= lim; i--) {
+            int lit = trail[i];
+            int var = lit >> 1;
+            if (inGraph[var]) {
+                /* the edges were added in trail order */
+                outEdges[source(lit)].pop();
+                inGraph[var] = false;
+            }
+            assigns[var] = UNDEF;
+            reasons[var] = null;
+            phases[var] = (lit & 1) == 0;
+            if (!order.contains(var)) {
+                order.insert(var);
+            }
+        }
+        trailSize = lim;
+        qhead = lim;
+        trailLims.truncate(level);
+    }
+
+    /**
+     * Derives the first-UIP clause of a conflict.
+     *
+     * @return the clause, with the literal asserted after backjumping first and a literal of
+     *         the backjump level second
+     */
+    private int[] analyze(Clause conflict) {
+        IntList learnt = new IntList();
+        learnt.add(-1);
+        int pathCount = 0;
+        int lit = -1;
+        int index = trailSize - 1;
+        Clause clause = conflict;
+        do {
+            int[] lits = clause.lits;
+            for (int j = lit == -1 ? 0 : 1; j < lits.length; j++) {
+                int var = lits[j] >> 1;
+                if (!seen[var] && levels[var] > 0) {
+                    bumpActivity(var);
+                    seen[var] = true;
+                    if (levels[var] >= decisionLevel()) {
+                        pathCount++;
+                    } else {
+                        learnt.add(lits[j]);
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            lit = trail[index--];
+            clause = reasons[lit >> 1];
+            seen[lit >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learnt.set(0, lit ^ 1);
+
+        int[] lits = learnt.toArray();
+        int max = 1;
+        for (int i = 1; i < lits.length; i++) {
+            seen[lits[i] >> 1] = false;
+            if (levels[lits[i] >> 1] > levels[lits[max] >> 1]) {
+                max = i;
+            }
+        }
+        if (lits.length > 1) {
+            int swap = lits[1];
+            lits[1] = lits[max];
+            lits[max] = swap;
+        }
+        return lits;
+    }
+
+    private void bumpActivity(int var) {
+        if ((activities[var] += varInc) > 1e100) {
+            for (int v = 0; v < numVars; v++) {
+                activities[v] *= 1e-100;
+            }
+            varInc *= 1e-100;
+        }
+        if (order.contains(var)) {
+            order.update(var);
+        }
+    }
+
+    /**
+     * Checks if the asserted formulas are satisfiable together with the given literals.
+     *
+     * @param timeoutNanos
+     *            the time after which {@link Result#UNKNOWN} is returned
+     */
+    public Result check(long timeoutNanos, int... assumptions) {
+        if (!ok) {
+            return Result.UNSATISFIABLE;
+        }
+        this.assumptions = assumptions;
+        deadline = System.nanoTime() + timeoutNanos;
+        timedOut = false;
+        Result result = null;
+        for (int restarts = 0; result == null; restarts++) {
+            result = search(luby(restarts) * RESTART_BASE);
+            if (result == null && (timedOut || System.nanoTime() > deadline)) {
+                result = Result.UNKNOWN;
+            }
+        }
+        cancelUntil(0);
+        return result;
+    }
+
+    /**
+     * @return {@link Result#SATISFIABLE} or {@link Result#UNSATISFIABLE}, or {@code null}
+     *         after the given number of conflicts or on timeout
+     */
+    private Result search(long maxConflicts) {
+        for (long searchConflicts = 0; ; ) {
+            Clause conflict = propagate();
+            if (conflict != null) {
+                conflicts++;
+                searchConflicts++;
+                if (decisionLevel() == 0) {
+                    ok = false;
+                    return Result.UNSATISFIABLE;
+                }
+                int[] learnt = analyze(conflict);
+                cancelUntil(learnt.length == 1 ? 0 : levels[learnt[1] >> 1]);
+                if (learnt.length == 1) {
+                    enqueue(learnt[0], null);
+                } else {
+                    Clause clause = new Clause(learnt);
+                    attach(clause);
+                    enqueue(learnt[0], clause);
+                }
+                varInc /= VAR_DECAY;
+                if ((conflicts & 0xFF) == 0 && System.nanoTime() > deadline) {
+                    timedOut = true;
+                    cancelUntil(0);
+                    return null;
+                }
+            } else {
+                if (searchConflicts >= maxConflicts) {
+                    cancelUntil(0);
+                    return null;
+                }
+                int next = -1;
+                while (decisionLevel() < assumptions.length) {
+                    int assumption = assumptions[decisionLevel()];
+                    if (value(assumption) == TRUE) {
+                        trailLims.add(trailSize);
+                    } else if (value(assumption) == FALSE) {
+                        return Result.UNSATISFIABLE;
+                    } else {
+                        next = assumption;
+                        break;
+                    }
+                }
+                if (next == -1) {
+                    next = pickBranchLiteral();
+                    if (next == -1) {
+                        return Result.SATISFIABLE;
+                    }
+                }
+                trailLims.add(trailSize);
+                enqueue(next, null);
+            }
+        }
+    }
+
+    /**
+     * Picks the unassigned variable of highest activity. An atom gets the value it has
+     * under the current potentials, whose edge does not change them, and other variables
+     * the value they had last.
+     */
+    private int pickBranchLiteral() {
+        while (!order.isEmpty()) {
+            int var = order.removeTop();
+            if (assigns[var] == UNDEF) {
+                Atom atom = atoms[var];
+                boolean phase = atom == null ? phases[var] : potentials[atom.x] - potentials[atom.y] <= atom.k;
+                return phase ? 2 * var : 2 * var + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the {@code i}-th element of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+     */
+    private static long luby(int i) {
+        int size = 1;
+        int seq = 0;
+        while (size < i + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            seq--;
+            i = i % size;
+        }
+        return 1L << seq;
+    }
+
+    /**
+     * @return the value of each integer variable in the solution found by the last
+     *         successful {@link #check}, by variable name
+     */
+    public Map<String, Long> getModel() {
+        /* the potentials are kept when the atoms are unassigned after the check */
+        Map<String, Long> model = new HashMap<>();
+        for (int node = 1; node < nodeVariables.size(); node++) {
+            model.put(nodeVariables.get(node).toString(), potentials[node] - potentials[ZERO]);
+        }
+        return model;
+    }
+
+    private static final class ClauseList {
+        Clause[] clauses = new Clause[4];
+        int size = 0;
+
+        void add(Clause clause) {
+            if (size == clauses.length) {
+                clauses = Arrays.copyOf(clauses, 2 * size);
+            }
+            clauses[size++] = clause;
+        }
+    }
+
+    private static final class IntList {
+        private int[] elements = new int[4];
+        private int size = 0;
+
+        void add(int element) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, 2 * size);
+            }
+            elements[size++] = element;
+        }
+
+        int get(int index) {
+            return elements[index];
+        }
+
+        void set(int index, int element) {
+            elements[index] = element;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void pop() {
+            size--;
+        }
+
+        void truncate(int newSize) {
+            size = newSize;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+    }
+
+    private interface IntOrder {
+        boolean before(int a, int b);
+    }
+
+    /**
+     * Binary heap of small non-negative integers, which can be reordered when the key of an
+     * element decreases in the given order.
+     */
+    private static final class IntHeap {
+        private final IntOrder order;
+        private int[] heap = new int[16];
+        private int size = 0;
+        private int[] positions = new int[16];
+
+        IntHeap(IntOrder order) {
+            this.order = order;
+            Arrays.fill(positions, -1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean contains(int element) {
+            return element < positions.length && positions[element] >= 0;
+        }
+
+        void insert(int element) {
+            if (element >= positions.length) {
+                int length = positions.length;
+                positions = Arrays.copyOf(positions, Math.max(2 * length, element + 1));
+                Arrays.fill(positions, length, positions.length, -1);
+            }
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, 2 * size);
+            }
+            heap[size] = element;
+            positions[element] = size;
+            siftUp(size++);
+        }
+
+        /**
+         * Inserts the element, or moves it up if it got before its parent.
+         */
+        void update(int element) {
+            if (contains(element)) {
+                siftUp(positions[element]);
+            } else {
+                insert(element);
+            }
+        }
+
+        int removeTop() {
+            int top = heap[0];
+            positions[top] = -1;
+            if (--size > 0) {
+                heap[0] = heap[size];
+                positions[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                positions[heap[i]] = -1;
+            }
+            size = 0;
+        }
+
+        private void siftUp(int i) {
+            int element = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+                if (!order.before(element, heap[parent])) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                positions[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = element;
+            positions[element] = i;
+        }
+
+        private void siftDown(int i) {
+            int element = heap[i];
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && order.before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!order.before(heap[child], element)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                positions[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = element;
+            positions[element] = i;
+        }
+    }
+
+}
@@ -29,8 +29,6 @@
 package com.runtimeverification.rvpredict.smt;
 
 import com.google.common.collect.ImmutableList;
-import com.microsoft.z3.FuncDecl;
-import com.microsoft.z3.Model;
 import com.runtimeverification.rvpredict.config.Configuration;
 import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
 import com.runtimeverification.rvpredict.performance.AnalysisLimit;
@@ -91,8 +89,6 @@ public class MaximalCausalModel {
      */
     private TransitiveClosure mhbClosure;
 
-    private final LockSetEngine locksetEngine = new LockSetEngine();
-
     /**
      * Map from read events to the corresponding concrete feasibility formulas.
      */
@@ -149,8 +145,6 @@ public class MaximalCausalModel {
         happensBeforeConstraints.forEach(source -> source.addToMhbClosure(mhbClosureBuilder));
         mhbClosure = mhbClosureBuilder.build();
 
-        trace.getLockIdToLockRegions().forEach((lockId, lockRegions) -> lockRegions.forEach(locksetEngine::add));
-
         List<Integer> allSignalTtids = trace.getMergedThreadsForCurrentWindow().stream()
                 .filter(ttid -> trace.getThreadType(ttid) == ThreadType.SIGNAL)
                 .collect(Collectors.toList());
@@ -159,7 +153,8 @@ public class MaximalCausalModel {
                 .addAll(happensBeforeConstraints)
                 .add(new DisjointLocks(
                         trace.getLockIdToLockRegions().values(),
-                        trace::threadsCanOverlap))
+                        trace::threadsCanOverlap,
+                        this::happensBefore))
                 .add(new SignalInterruptLocationsConstraintSource(
                         trace.eventsByThreadID(),
                         trace::getThreadType,
@@ -211,7 +206,7 @@ public class MaximalCausalModel {
                 readToPhiConc.put(read, null);
                 readToPhiConc.put(read, AND(getPhiAbs(block), getPhiSC(read)));
             }
-            return new ConcretePhiVariable(read);
+            return ConcretePhiVariable.get(read);
         }
     }
 
@@ -393,11 +388,7 @@ public class MaximalCausalModel {
     private boolean failPecanCheck(Race race) {
         ReadonlyEventInterface e1 = race.firstEvent();
         ReadonlyEventInterface e2 = race.secondEvent();
-        OptionalInt maybeThread1 = trace.getTraceThreadId(e1);
-        OptionalInt maybeThread2 = trace.getTraceThreadId(e2);
-        assert maybeThread1.isPresent();
-        assert maybeThread2.isPresent();
-        return locksetEngine.hasCommonLock(e1, e2, maybeThread1.getAsInt(), maybeThread2.getAsInt())
+        return trace.getLockSet(e1).hasCommonLock(trace.getLockSet(e2))
                 || happensBefore(e1, e2)
                 || happensBefore(e2, e1);
     }
@@ -497,20 +488,18 @@ public class MaximalCausalModel {
     private Collection<BoolFormula> buildPhiConc() {
         return readToPhiConc.entrySet()
                 .stream()
-                .map(entry -> BOOL_EQUAL(new ConcretePhiVariable(entry.getKey()), entry.getValue()))
+                .map(entry -> BOOL_EQUAL(ConcretePhiVariable.get(entry.getKey()), entry.getValue()))
                 .collect(Collectors.toList());
     }
 
-    private Map<Integer, Integer> extractSignalParents(Model model) {
+    private Map<Integer, Integer> extractSignalParents(Map<String, Long> model) {
         Map<Integer, Integer> signalParents = new HashMap<>();
-        for (FuncDecl f : model.getConstDecls()) {
-            String name = f.getName().toString();
-            OptionalInt maybeSignalTtid = InterruptedThreadVariable.extractSignalTtidIfPossible(name);
+        for (Map.Entry<String, Long> entry : model.entrySet()) {
+            OptionalInt maybeSignalTtid = InterruptedThreadVariable.extractSignalTtidIfPossible(entry.getKey());
             if (!maybeSignalTtid.isPresent()) {
                 continue;
             }
-            int parentTid = Integer.parseInt(model.getConstInterp(f).toString());
-            signalParents.put(maybeSignalTtid.getAsInt(), parentTid);
+            signalParents.put(maybeSignalTtid.getAsInt(), entry.getValue().intValue());
         }
         return signalParents;
     }
@@ -572,15 +561,13 @@ public class MaximalCausalModel {
     }
 
     private Map<Integer, List<EventWithOrder>> extractExecution(
-            Model model,
+            Map<String, Long> model,
             Map<String, ReadonlyEventInterface> nameToEvent) {
         Map<Integer, List<EventWithOrder>> threadToExecution = new HashMap<>();
-        for (FuncDecl f : model.getConstDecls()) {
-            String name = f.getName().toString();
-            if (nameToEvent.containsKey(name)) {
-                ReadonlyEventInterface event = nameToEvent.get(name);
-                EventWithOrder eventWithOrder =
-                        new EventWithOrder(event, Long.parseLong(model.getConstInterp(f).toString()));
+        for (Map.Entry<String, Long> entry : model.entrySet()) {
+            ReadonlyEventInterface event = nameToEvent.get(entry.getKey());
+            if (event != null) {
+                EventWithOrder eventWithOrder = new EventWithOrder(event, entry.getValue());
                 OptionalInt maybeTtid = trace.getTraceThreadId(event);
                 assert maybeTtid.isPresent();
                 threadToExecution
@@ -1,9 +1,10 @@
 package com.runtimeverification.rvpredict.smt;
 
-import com.microsoft.z3.Model;
 import com.runtimeverification.rvpredict.smt.concurrent.SingleResourceProducerTransformerConsumer;
 import com.runtimeverification.rvpredict.smt.formula.BoolFormula;
 
+import java.util.Map;
+
 /**
  * The MultithreadedRaceSolver detects races in a multi-threaded environment.
  *
@@ -19,7 +20,7 @@ public class MultithreadedRaceSolver implements RaceSolver {
         RaceData(
                 WindowData windowData,
                 BoolFormula assertion,
-                SingleThreadedRaceSolver.SolutionReporter solutionReporter) {
+                RaceSolver.SolutionReporter solutionReporter) {
             this.windowData = windowData;
             this.assertion = assertion;
             this.solutionReporter = solutionReporter;
@@ -28,14 +29,14 @@ public class MultithreadedRaceSolver implements RaceSolver {
 
     private final SingleResourceProducerTransformerConsumer.Producer<RaceData> resourceProducer;
     // Solver used to generate a solution for the window constraints, without any race constraint.
-    private final SingleThreadedRaceSolver oneRaceSolver;
+    private final RaceSolver oneRaceSolver;
 
-    MultithreadedRaceSolver(SingleThreadedRaceSolver[] solvers) {
+    MultithreadedRaceSolver(RaceSolver[] solvers) {
         // All solvers are identical, we pick any as the oneRaceSolver.
         oneRaceSolver = solvers[0];
         resourceProducer = new SingleResourceProducerTransformerConsumer.Producer<>();
-        for (SingleThreadedRaceSolver raceSolver : solvers) {
-            SingleResourceProducerTransformerConsumer.Consumer<RaceData, Model> consumer =
+        for (RaceSolver raceSolver : solvers) {
+            SingleResourceProducerTransformerConsumer.Consumer<RaceData, Map<String, Long>> consumer =
                     new SingleResourceProducerTransformerConsumer.Consumer<>(
                         resourceProducer,
                         (resource, consumerArg) ->
@@ -52,7 +53,7 @@ public class MultithreadedRaceSolver implements RaceSolver {
     public void checkRace(
             WindowData windowData,
             BoolFormula assertion,
-            SingleThreadedRaceSolver.SolutionReporter solutionReporter) throws Exception {
+            RaceSolver.SolutionReporter solutionReporter) throws Exception {
         resourceProducer.process(new RaceData(windowData, assertion, solutionReporter));
     }
 
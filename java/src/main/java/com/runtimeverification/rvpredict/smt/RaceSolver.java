@@ -4,6 +4,8 @@ import com.runtimeverification.rvpredict.config.Configuration;
 import com.runtimeverification.rvpredict.smt.formula.BoolFormula;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Generic SMT race checker.
@@ -12,7 +14,10 @@ import java.util.Collection;
  */
 public interface RaceSolver extends AutoCloseable {
     interface SolutionReporter {
-        void solution(com.microsoft.z3.Model model);
+        /**
+         * @param model the value of each integer variable of the solution, by variable name
+         */
+        void solution(Map<String, Long> model);
     }
 
     /**
@@ -24,11 +29,10 @@ public interface RaceSolver extends AutoCloseable {
         private final BoolFormula soundPhiTau;
         private final Collection<BoolFormula> phiConc;
 
-        private static int lastWindowId = 0;
+        private static final AtomicInteger lastWindowId = new AtomicInteger(0);
 
         WindowData(BoolFormula unsoundButFastPhiTau, BoolFormula soundPhiTau, Collection<BoolFormula> phiConc) {
-            lastWindowId++;
-            this.windowId = lastWindowId;
+            this.windowId = lastWindowId.incrementAndGet();
             this.unsoundButFastPhiTau = unsoundButFastPhiTau;
             this.soundPhiTau = soundPhiTau;
             this.phiConc = phiConc;
@@ -76,15 +80,12 @@ public interface RaceSolver extends AutoCloseable {
     void finishAllWork() throws Exception;
 
     static RaceSolver create(Configuration config) {
-        if (config.parallel_smt <= 1) {
-            return SingleThreadedRaceSolver.createRaceSolver(config);
-        } else {
-            SingleThreadedRaceSolver[] raceSolvers;
-            raceSolvers = new SingleThreadedRaceSolver[config.parallel_smt];
-            for (int i = 0; i < raceSolvers.length; i++) {
-                raceSolvers[i] = SingleThreadedRaceSolver.createRaceSolver(config);
-            }
-            return new MultithreadedRaceSolver(raceSolvers);
+        RaceSolver[] raceSolvers = new RaceSolver[Math.max(config.parallel_smt, 1)];
+        for (int i = 0; i < raceSolvers.length; i++) {
+            raceSolvers[i] = Configuration.SOLVER_IDL.equals(config.smt_solver)
+                    ? new DifferenceLogicRaceSolver(config)
+                    : SingleThreadedRaceSolver.createRaceSolver(config);
         }
+        return raceSolvers.length == 1 ? raceSolvers[0] : new MultithreadedRaceSolver(raceSolvers);
     }
 }
@@ -1,6 +1,10 @@
 package com.runtimeverification.rvpredict.smt;
 
 import com.microsoft.z3.Context;
+import com.microsoft.z3.Expr;
+import com.microsoft.z3.FuncDecl;
+import com.microsoft.z3.IntNum;
+import com.microsoft.z3.Model;
 import com.microsoft.z3.Params;
 import com.microsoft.z3.Solver;
 import com.microsoft.z3.Status;
@@ -23,6 +27,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 public class SingleThreadedRaceSolver implements RaceSolver {
@@ -96,7 +102,7 @@ public class SingleThreadedRaceSolver implements RaceSolver {
                     soundSolver.push();
                     soundSolver.add(z3filter.filter(assertion));
                     if (soundSolver.check() == Status.SATISFIABLE) {
-                        solutionReporter.solution(soundSolver.getModel());
+                        solutionReporter.solution(toSolution(soundSolver.getModel()));
                     }
                 } finally {
                     soundSolver.pop();
@@ -112,11 +118,22 @@ public class SingleThreadedRaceSolver implements RaceSolver {
         startWindowIfNeeded(windowData);
         soundSolver.push();
         if (soundSolver.check() == Status.SATISFIABLE) {
-            solutionReporter.solution(soundSolver.getModel());
+            solutionReporter.solution(toSolution(soundSolver.getModel()));
         }
         soundSolver.pop();
     }
 
+    private static Map<String, Long> toSolution(Model model) throws Z3Exception {
+        Map<String, Long> solution = new HashMap<>();
+        for (FuncDecl f : model.getConstDecls()) {
+            Expr value = model.getConstInterp(f);
+            if (value instanceof IntNum) {
+                solution.put(f.getName().toString(), ((IntNum) value).getInt64());
+            }
+        }
+        return solution;
+    }
+
     @Override
     public void finishAllWork() {
     }
@@ -1,32 +1,76 @@
 package com.runtimeverification.rvpredict.smt;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
-import org.apache.commons.lang3.tuple.Pair;
 
 
+/**
+ * Transitive closure of a relation between groups of events.
+ * <p>
+ * The closure is represented either as a bitset matrix indexed by group ID, or, when the groups can be covered
+ * by few chains (e.g. the groups of each thread), as a vector clock per group indexed by chain, which takes
+ * O(groups * chains) memory instead of O(groups^2). Both answer queries in constant time.
+ */
 public class TransitiveClosure {
     /**
-     * Map from event to its group ID in the contracted graph.
+     * Map from event ID to its group ID in the contracted graph.
      */
-    private final Map<ReadonlyEventInterface, Integer> eventToGroupId;
+    private final EventIdToGroupIdMap eventToGroupId;
+
+    private final GroupRelation relation;
+
+    private TransitiveClosure(EventIdToGroupIdMap eventToGroupId, GroupRelation relation) {
+        this.eventToGroupId = eventToGroupId;
+        this.relation = relation;
+    }
+
+    public boolean inRelation(ReadonlyEventInterface e1, ReadonlyEventInterface e2) {
+        return relation.inRelation(eventToGroupId.getGroupId(e1), eventToGroupId.getGroupId(e2));
+    }
+
+    private interface GroupRelation {
+        boolean inRelation(int x, int y);
+    }
 
     /**
-     * Relation matrix indexed by group ID.
+     * Relation matrix indexed by group ID; each row is a bitset of the groups reachable from its group.
      */
-    private final boolean[][] relation;
+    private static class BitsetRelation implements GroupRelation {
+        private final long[][] rows;
 
-    private TransitiveClosure(Map<ReadonlyEventInterface, Integer> eventToGroupId, boolean[][] inRelation) {
-        this.eventToGroupId = eventToGroupId;
-        this.relation = inRelation;
+        private BitsetRelation(long[][] rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean inRelation(int x, int y) {
+            return (rows[x][y >>> 6] & (1L << y)) != 0;
+        }
     }
 
-    boolean inRelation(ReadonlyEventInterface e1, ReadonlyEventInterface e2) {
-        return relation[eventToGroupId.get(e1)][eventToGroupId.get(e2)];
+    /**
+     * The groups of an acyclic relation covered by chains, i.e. sequences of groups in which each group is
+     * related to the next one. For each group and chain, the clock holds the position of the last group of the
+     * chain which is the group itself or reaches it, or -1 if there is no such group.
+     */
+    private static class VectorClockRelation implements GroupRelation {
+        private final int[] chainOf;
+        private final int[] positionOf;
+        private final int chainCount;
+        private final int[] clocks;
+
+        private VectorClockRelation(int[] chainOf, int[] positionOf, int chainCount, int[] clocks) {
+            this.chainOf = chainOf;
+            this.positionOf = positionOf;
+            this.chainCount = chainCount;
+            this.clocks = clocks;
+        }
+
+        @Override
+        public boolean inRelation(int x, int y) {
+            return x != y && clocks[y * chainCount + chainOf[x]] >= positionOf[x];
+        }
     }
 
     public static Builder builder(int size) {
@@ -35,18 +79,22 @@ public class TransitiveClosure {
 
     public static class Builder {
 
-        private final Map<ReadonlyEventInterface, Integer> eventToGroupId;
+        private final EventIdToGroupIdMap eventToGroupId;
 
         private int groupCountSize = 0;
 
-        private final List<Pair<ReadonlyEventInterface, ReadonlyEventInterface>> relations = new ArrayList<>();
+        private long[] relationSources = new long[16];
+
+        private long[] relationTargets = new long[16];
+
+        private int relationCount = 0;
 
         private Builder(int size) {
-            eventToGroupId = new HashMap<>(size);
+            eventToGroupId = new EventIdToGroupIdMap(size);
         }
 
         public void createNewGroup(ReadonlyEventInterface e) {
-            eventToGroupId.put(e, groupCountSize);
+            eventToGroupId.put(e.getEventId(), groupCountSize);
             groupCountSize++;
         }
 
@@ -54,28 +102,300 @@ public class TransitiveClosure {
          * Add event {@code y} to the group of event {@code x}.
          */
         public void addToGroup(ReadonlyEventInterface y, ReadonlyEventInterface x) {
-            eventToGroupId.put(y, eventToGroupId.get(x));
+            eventToGroupId.put(y.getEventId(), eventToGroupId.getGroupId(x));
         }
 
         public void addRelation(ReadonlyEventInterface x, ReadonlyEventInterface y) {
-            relations.add(Pair.of(x, y));
+            if (relationCount == relationSources.length) {
+                relationSources = Arrays.copyOf(relationSources, relationCount * 2);
+                relationTargets = Arrays.copyOf(relationTargets, relationCount * 2);
+            }
+            /* groups are resolved in build(), events may still be moved between groups until then */
+            relationSources[relationCount] = x.getEventId();
+            relationTargets[relationCount] = y.getEventId();
+            relationCount++;
         }
 
         public TransitiveClosure build() {
             int numOfGroups = groupCountSize;
+            int words = (numOfGroups + 63) >>> 6;
+
+            /* adjacency lists of the contracted graph, in compressed row format */
+            int[] sources = new int[relationCount];
+            int[] offsets = new int[numOfGroups + 1];
+            int[] inDegrees = new int[numOfGroups];
+            for (int i = 0; i < relationCount; i++) {
+                sources[i] = eventToGroupId.getGroupId(relationSources[i]);
+                offsets[sources[i] + 1]++;
+            }
+            for (int x = 0; x < numOfGroups; x++) {
+                offsets[x + 1] += offsets[x];
+            }
+            int[] successors = new int[relationCount];
+            int[] next = Arrays.copyOf(offsets, numOfGroups);
+            for (int i = 0; i < relationCount; i++) {
+                int y = eventToGroupId.getGroupId(relationTargets[i]);
+                successors[next[sources[i]]++] = y;
+                inDegrees[y]++;
+            }
+
+            /* Kahn's algorithm */
+            int[] order = new int[numOfGroups];
+            int sorted = 0;
+            for (int x = 0; x < numOfGroups; x++) {
+                if (inDegrees[x] == 0) {
+                    order[sorted++] = x;
+                }
+            }
+            for (int i = 0; i < sorted; i++) {
+                int x = order[i];
+                for (int j = offsets[x]; j < offsets[x + 1]; j++) {
+                    if (--inDegrees[successors[j]] == 0) {
+                        order[sorted++] = successors[j];
+                    }
+                }
+            }
+
+            if (sorted < numOfGroups) {
+                return new TransitiveClosure(
+                        eventToGroupId, buildCyclicBitsetRelation(numOfGroups, offsets, successors));
+            }
+
+            int[] chainOf = new int[numOfGroups];
+            int[] positionOf = new int[numOfGroups];
+            /* a clock takes an int per chain, a bitset row a long per 64 groups */
+            int chainCount = coverWithChains(numOfGroups, offsets, successors, order, 2 * words, chainOf, positionOf);
+            GroupRelation relation;
+            if (chainCount < 2 * words) {
+                relation = buildVectorClockRelation(
+                        numOfGroups, offsets, successors, order, chainOf, positionOf, chainCount);
+            } else {
+                relation = buildBitsetRelation(numOfGroups, offsets, successors, order);
+            }
+            return new TransitiveClosure(eventToGroupId, relation);
+        }
+
+        /**
+         * Covers the groups of an acyclic relation with as few chains as possible, i.e. finds a maximum matching
+         * between the groups and their successors, so that the groups of each thread end up on the same chain.
+         *
+         * @return the number of chains, or {@code maxChains} if there are at least that many; in the latter
+         *         case {@code chainOf} and {@code positionOf} are left incomplete
+         */
+        private static int coverWithChains(int numOfGroups, int[] offsets, int[] successors, int[] order,
+                int maxChains, int[] chainOf, int[] positionOf) {
+            int[] next = new int[numOfGroups];
+            int[] previous = new int[numOfGroups];
+            Arrays.fill(next, -1);
+            Arrays.fill(previous, -1);
+            /* greedy matching first, preferring the next group created, which is usually in the same thread */
+            for (int x = 0; x < numOfGroups; x++) {
+                for (int j = offsets[x]; j < offsets[x + 1]; j++) {
+                    int y = successors[j];
+                    if (previous[y] == -1 && (next[x] == -1 || y == x + 1)) {
+                        if (next[x] != -1) {
+                            previous[next[x]] = -1;
+                        }
+                        next[x] = y;
+                        previous[y] = x;
+                    }
+                }
+            }
+
+            /* then augmenting paths; a group which cannot be matched now never will, and ends a chain */
+            int[] stack = new int[numOfGroups];
+            int[] edge = new int[numOfGroups];
+            int[] visited = new int[numOfGroups];
+            int chainEnds = 0;
+            for (int root = 0; root < numOfGroups; root++) {
+                if (next[root] != -1) {
+                    continue;
+                }
+                int top = 0;
+                stack[0] = root;
+                edge[root] = offsets[root];
+                boolean augmented = false;
+                while (top >= 0 && !augmented) {
+                    int x = stack[top];
+                    if (edge[x] == offsets[x + 1]) {
+                        top--;
+                        continue;
+                    }
+                    int y = successors[edge[x]++];
+                    if (visited[y] == root + 1) {
+                        continue;
+                    }
+                    visited[y] = root + 1;
+                    if (previous[y] == -1) {
+                        /* flip the matching along the path on the stack */
+                        for (int i = top; i >= 0; i--) {
+                            int z = next[stack[i]];
+                            next[stack[i]] = y;
+                            previous[y] = stack[i];
+                            y = z;
+                        }
+                        augmented = true;
+                    } else {
+                        stack[++top] = previous[y];
+                        edge[previous[y]] = offsets[previous[y]];
+                    }
+                }
+                if (!augmented && ++chainEnds >= maxChains) {
+                    return maxChains;
+                }
+            }
+
+            int chainCount = 0;
+            for (int x : order) {
+                if (previous[x] == -1) {
+                    int position = 0;
+                    for (int y = x; y != -1; y = next[y]) {
+                        chainOf[y] = chainCount;
+                        positionOf[y] = position++;
+                    }
+                    chainCount++;
+                }
+            }
+            return chainCount;
+        }
+
+        private static GroupRelation buildVectorClockRelation(
+                int numOfGroups, int[] offsets, int[] successors, int[] order,
+                int[] chainOf, int[] positionOf, int chainCount) {
+            int[] clocks = new int[numOfGroups * chainCount];
+            Arrays.fill(clocks, -1);
+            /* visit the groups in topological order, pushing each clock to the successors */
+            for (int i = 0; i < numOfGroups; i++) {
+                int x = order[i];
+                int base = x * chainCount;
+                clocks[base + chainOf[x]] = positionOf[x];
+                for (int j = offsets[x]; j < offsets[x + 1]; j++) {
+                    int successorBase = successors[j] * chainCount;
+                    for (int c = 0; c < chainCount; c++) {
+                        clocks[successorBase + c] = Math.max(clocks[successorBase + c], clocks[base + c]);
+                    }
+                }
+            }
+            return new VectorClockRelation(chainOf, positionOf, chainCount, clocks);
+        }
+
+        private static GroupRelation buildBitsetRelation(
+                int numOfGroups, int[] offsets, int[] successors, int[] order) {
+            int words = (numOfGroups + 63) >>> 6;
+            long[][] f = new long[numOfGroups][words];
+            /* every group reaches what its successors reach; visit the successors first */
+            for (int i = numOfGroups - 1; i >= 0; i--) {
+                int x = order[i];
+                long[] row = f[x];
+                for (int j = offsets[x]; j < offsets[x + 1]; j++) {
+                    int y = successors[j];
+                    row[y >>> 6] |= 1L << y;
+                    long[] successorRow = f[y];
+                    for (int w = 0; w < words; w++) {
+                        row[w] |= successorRow[w];
+                    }
+                }
+            }
+            return new BitsetRelation(f);
+        }
 
-            boolean[][] f = new boolean[numOfGroups][numOfGroups];
-            relations.forEach(p ->
-                    f[eventToGroupId.get(p.getLeft())][eventToGroupId.get(p.getRight())] = true);
+        /**
+         * Warshall's algorithm on the bitset rows, for relations with cycles.
+         */
+        private static GroupRelation buildCyclicBitsetRelation(int numOfGroups, int[] offsets, int[] successors) {
+            int words = (numOfGroups + 63) >>> 6;
+            long[][] f = new long[numOfGroups][words];
+            for (int x = 0; x < numOfGroups; x++) {
+                for (int j = offsets[x]; j < offsets[x + 1]; j++) {
+                    f[x][successors[j] >>> 6] |= 1L << successors[j];
+                }
+            }
             for (int k = 0; k < numOfGroups; k++) {
+                long[] rowK = f[k];
                 for (int x = 0; x < numOfGroups; x++) {
-                    for (int y = 0; y < numOfGroups; y++) {
-                        f[x][y] = f[x][y] || f[x][k] && f[k][y];
+                    long[] row = f[x];
+                    if ((row[k >>> 6] & (1L << k)) != 0) {
+                        for (int w = 0; w < words; w++) {
+                            row[w] |= rowK[w];
+                        }
                     }
                 }
             }
+            return new BitsetRelation(f);
+        }
+    }
 
-            return new TransitiveClosure(eventToGroupId, f);
+    /**
+     * Open addressing map from event ID to group ID, which avoids boxing and
+     * {@link ReadonlyEventInterface#equals(Object)} calls on the lookups.
+     */
+    private static class EventIdToGroupIdMap {
+        private static final int NO_GROUP = -1;
+
+        private long[] keys;
+
+        private int[] values;
+
+        private int mask;
+
+        private int size;
+
+        private EventIdToGroupIdMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, NO_GROUP);
+            mask = capacity - 1;
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            int p = (int) (h ^ (h >>> 32)) & mask;
+            while (values[p] != NO_GROUP && keys[p] != key) {
+                p = (p + 1) & mask;
+            }
+            return p;
+        }
+
+        private void put(long eventId, int groupId) {
+            int p = slot(eventId);
+            if (values[p] == NO_GROUP) {
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    p = slot(eventId);
+                }
+                size++;
+            }
+            keys[p] = eventId;
+            values[p] = groupId;
+        }
+
+        private int getGroupId(long eventId) {
+            int groupId = values[slot(eventId)];
+            if (groupId == NO_GROUP) {
+                throw new IllegalArgumentException("Event " + eventId + " does not belong to any group.");
+            }
+            return groupId;
+        }
+
+        private int getGroupId(ReadonlyEventInterface event) {
+            return getGroupId(event.getEventId());
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            Arrays.fill(values, NO_GROUP);
+            mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != NO_GROUP) {
+                    int p = slot(oldKeys[i]);
+                    keys[p] = oldKeys[i];
+                    values[p] = oldValues[i];
+                }
+            }
         }
     }
 }
@@ -1,6 +1,7 @@
 package com.runtimeverification.rvpredict.smt.constraintsources;
 
 import com.google.common.collect.ImmutableList;
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
 import com.runtimeverification.rvpredict.smt.ConstraintType;
 import com.runtimeverification.rvpredict.smt.ModelConstraint;
 import com.runtimeverification.rvpredict.smt.ConstraintSource;
@@ -8,23 +9,45 @@ import com.runtimeverification.rvpredict.smt.constraints.And;
 import com.runtimeverification.rvpredict.smt.constraints.DisjointSections;
 import com.runtimeverification.rvpredict.trace.LockRegion;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 public class DisjointLocks implements ConstraintSource {
     private final Collection<List<LockRegion>> lockRegionsCollection;
     private final OverlappingThreadChecker threadsCanOverlap;
+    private final MustHappenBeforeChecker mustHappenBefore;
 
     @FunctionalInterface
     public interface OverlappingThreadChecker {
         boolean check(int ttid1, int ttid2);
     }
 
+    @FunctionalInterface
+    public interface MustHappenBeforeChecker {
+        boolean check(ReadonlyEventInterface e1, ReadonlyEventInterface e2);
+    }
+
     public DisjointLocks(
             Collection<List<LockRegion>> lockRegionsCollection, OverlappingThreadChecker threadsCanOverlap) {
+        this(lockRegionsCollection, threadsCanOverlap, (e1, e2) -> false);
+    }
+
+    /**
+     * Skips the pairs of lock regions which the must-happen-before relation already orders,
+     * since the constraints of that relation are part of the model anyway.
+     */
+    public DisjointLocks(
+            Collection<List<LockRegion>> lockRegionsCollection,
+            OverlappingThreadChecker threadsCanOverlap,
+            MustHappenBeforeChecker mustHappenBefore) {
         this.lockRegionsCollection = lockRegionsCollection;
         this.threadsCanOverlap = threadsCanOverlap;
+        this.mustHappenBefore = mustHappenBefore;
     }
 
     @Override
@@ -32,18 +55,57 @@ public class DisjointLocks implements ConstraintSource {
         ImmutableList.Builder<ModelConstraint> constraints = new ImmutableList.Builder<>();
         lockRegionsCollection.forEach(lockRegions -> {
             /* assert lock regions mutual exclusion */
-            lockRegions.forEach(lr1 -> lockRegions.forEach(lr2 -> {
-                if (lr1.getTTID() < lr2.getTTID()
-                        && (lr1.isWriteLocked() || lr2.isWriteLocked())
-                        && threadsCanOverlap.check(lr1.getTTID(), lr2.getTTID())) {
+            Map<Integer, List<LockRegion>> ttidToLockRegions = new TreeMap<>();
+            lockRegions.forEach(lr -> ttidToLockRegions
+                    .computeIfAbsent(lr.getTTID(), p -> new ArrayList<>()).add(lr));
+            ttidToLockRegions.values().forEach(Collections::sort);
+            ttidToLockRegions.forEach((ttid1, lockRegions1) -> ttidToLockRegions.forEach((ttid2, lockRegions2) -> {
+                if (ttid1 < ttid2 && threadsCanOverlap.check(ttid1, ttid2)) {
+                    addInterleavingSections(lockRegions1, lockRegions2, constraints);
+                }
+            }));
+        });
+        return new And(constraints.build());
+    }
+
+    /**
+     * Asserts the mutual exclusion of the lock regions of two threads, each list in thread
+     * order, which may interleave.
+     * <p>
+     * The regions of the second thread which must end before a region of the first thread
+     * starts form a prefix of the list, which grows as the regions of the first thread are
+     * swept, and those which must start after it ends form a suffix, which shrinks. Both are
+     * skipped with two moving indices. An index only stops early on regions which are not
+     * ordered, which at worst asserts a redundant constraint.
+     */
+    private void addInterleavingSections(
+            List<LockRegion> lockRegions1, List<LockRegion> lockRegions2,
+            ImmutableList.Builder<ModelConstraint> constraints) {
+        int first = 0;
+        int end = 0;
+        for (LockRegion lr1 : lockRegions1) {
+            while (first < lockRegions2.size()
+                    && mustHappenBefore(lockRegions2.get(first).getUnlock(), lr1.getLock())) {
+                first++;
+            }
+            end = Math.max(end, first);
+            while (end < lockRegions2.size()
+                    && !mustHappenBefore(lr1.getUnlock(), lockRegions2.get(end).getLock())) {
+                end++;
+            }
+            for (LockRegion lr2 : lockRegions2.subList(first, end)) {
+                if (lr1.isWriteLocked() || lr2.isWriteLocked()) {
                     constraints.add(new DisjointSections(
                             Optional.ofNullable(lr1.getLock()),
                             Optional.ofNullable(lr1.getUnlock()),
                             Optional.ofNullable(lr2.getLock()),
                             Optional.ofNullable(lr2.getUnlock())));
                 }
-            }));
-        });
-        return new And(constraints.build());
+            }
+        }
+    }
+
+    private boolean mustHappenBefore(ReadonlyEventInterface e1, ReadonlyEventInterface e2) {
+        return e1 != null && e2 != null && mustHappenBefore.check(e1, e2);
     }
 }
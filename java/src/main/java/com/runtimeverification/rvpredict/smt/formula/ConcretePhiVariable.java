@@ -1,5 +1,7 @@
 package com.runtimeverification.rvpredict.smt.formula;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
 import com.runtimeverification.rvpredict.smt.visitors.Visitor;
 
@@ -9,7 +11,16 @@ public class ConcretePhiVariable extends BooleanVariable {
      */
     private static final String PHI_C = "phi_c";
 
-    public ConcretePhiVariable(ReadonlyEventInterface event) {
+    /**
+     * Shares the variable of each read event among all the formulas which mention it.
+     */
+    private static final Interner<ConcretePhiVariable> variables = Interners.newWeakInterner();
+
+    public static ConcretePhiVariable get(ReadonlyEventInterface event) {
+        return variables.intern(new ConcretePhiVariable(event));
+    }
+
+    private ConcretePhiVariable(ReadonlyEventInterface event) {
        super(event.getEventId());
     }
 
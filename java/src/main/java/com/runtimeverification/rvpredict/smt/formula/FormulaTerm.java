@@ -1,6 +1,8 @@
 package com.runtimeverification.rvpredict.smt.formula;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.runtimeverification.rvpredict.smt.visitors.Visitor;
 
 /**
@@ -8,6 +10,20 @@ import com.runtimeverification.rvpredict.smt.visitors.Visitor;
  */
 public class FormulaTerm extends SMTTerm<BooleanOperation,SMTFormula> implements BoolFormula {
 
+    /**
+     * The comparisons between integer variables built by {@link #LESS_THAN} and
+     * {@link #INT_EQUAL}, hash-consed so that a constraint asserted many times, such as the
+     * order of two events, is a single node of the formula DAG and is translated once for
+     * the solver. Weak, so that the nodes of the windows already analyzed are collected.
+     */
+    private static final Interner<FormulaTerm> atoms = Interners.newWeakInterner();
+
+    @SuppressWarnings("unchecked")
+    private static <T extends FormulaTerm> T intern(T term) {
+        /* equal terms have the same class */
+        return (T) atoms.intern(term);
+    }
+
     public static Builder andBuilder() {
         return AndFormula.builder();
     }
@@ -29,11 +45,11 @@ public class FormulaTerm extends SMTTerm<BooleanOperation,SMTFormula> implements
     }
 
     public static Equal INT_EQUAL(IntFormula left, IntFormula right) {
-        return new Equal(left, right);
+        return intern(new Equal(left, right));
     }
 
     public static LessThan LESS_THAN(IntFormula left, IntFormula right) {
-        return new LessThan(left, right);
+        return intern(new LessThan(left, right));
     }
 
     protected FormulaTerm(BooleanOperation operation, ImmutableList<SMTFormula> formulas) {
@@ -1,5 +1,7 @@
 package com.runtimeverification.rvpredict.smt.formula;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
 import com.runtimeverification.rvpredict.smt.visitors.Visitor;
 
@@ -9,8 +11,13 @@ public class OrderVariable extends SMTVariable implements IntFormula {
      */
     private static final String O = "o";
 
+    /**
+     * Shares the variable of each event among all the constraints which mention it.
+     */
+    private static final Interner<OrderVariable> variables = Interners.newWeakInterner();
+
     public static OrderVariable get(ReadonlyEventInterface event) {
-        return new OrderVariable(event);
+        return variables.intern(new OrderVariable(event));
     }
 
     private OrderVariable(ReadonlyEventInterface event) {
@@ -12,6 +12,7 @@ import java.util.List;
 public class SMTTerm<Operation extends SMTOperation, Formula extends SMTFormula> extends SMTASTNode implements SMTFormula {
     private final Operation operation;
     private final ImmutableList<Formula> terms;
+    private int hash = 0;
 
     /**
      * Builds a new term given an {@code operation} and a list of {@code terms} as arguments.
@@ -89,6 +90,28 @@ public class SMTTerm<Operation extends SMTOperation, Formula extends SMTFormula>
         public abstract SMTTerm<Operation,Formula> build();
     }
 
+    /**
+     * Terms are compared structurally so that equal terms can be shared; see {@link FormulaTerm}.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SMTTerm<?, ?> term = (SMTTerm<?, ?>) o;
+        return hashCode() == term.hashCode() && operation == term.operation && terms.equals(term.terms);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = operation.hashCode() * 31 + terms.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
     @Override
     public String toString() {
         return "(" + operation + ' ' +
@@ -6,6 +6,7 @@ import com.runtimeverification.rvpredict.smt.formula.*;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -28,6 +29,12 @@ public class Z3Filter {
 
     private final List<IDisposable> disposables;
 
+    /**
+     * The translation of each node of the formulas filtered since the last {@link #clear()}.
+     * Keyed by identity, since the nodes shared by the formulas are the same objects.
+     */
+    private final Map<SMTFormula, Expr> translations;
+
     public Z3Filter(Context context, int windowSize) {
         this.context = context;
         this.visitor = new Visitor();
@@ -36,6 +43,7 @@ public class Z3Filter {
         this.interruptedThreadVariables = new HashMap<>(windowSize);
         this.interruptionDepthVariables = new HashMap<>(windowSize);
         this.disposables = new ArrayList<>();
+        this.translations = new IdentityHashMap<>();
     }
 
     public BoolExpr filter(BoolFormula formula) throws Exception {
@@ -47,14 +55,21 @@ public class Z3Filter {
             x.dispose();
         }
         disposables.clear();
+        translations.clear();
     }
 
     private class Visitor extends BasicVisitor<Expr> {
         private Expr result;
 
         private Expr transformFormula(SMTFormula formula) throws Exception {
-            formula.accept(this);
-            return result;
+            Expr translation = translations.get(formula);
+            if (translation == null) {
+                formula.accept(this);
+                translation = result;
+                translations.put(formula, translation);
+            }
+            result = translation;
+            return translation;
         }
 
         @Override
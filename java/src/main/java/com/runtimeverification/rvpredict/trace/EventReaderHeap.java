@@ -0,0 +1,145 @@
+package com.runtimeverification.rvpredict.trace;
+
+import com.runtimeverification.rvpredict.log.IEventReader;
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Binary min-heap of {@link IEventReader}s used to merge the per-thread trace
+ * logs into a single stream ordered by global event id.
+ * <p>
+ * Each reader is keyed on the id of the event it is currently positioned at,
+ * i.e. its {@link IEventReader#lastReadEvent()}. Retrieving the next event of
+ * the merged stream costs {@code O(log k)} for {@code k} live readers, instead
+ * of the {@code O(k)} needed to scan all of them. Readers are dropped from the
+ * heap as soon as they are exhausted.
+ * <p>
+ * Ties on the event id are broken by the position of the reader in the
+ * collection given to the constructor, so the merged stream is deterministic.
+ */
+public class EventReaderHeap {
+
+    private final IEventReader[] readers;
+
+    private final long[] keys;
+
+    private final int[] ranks;
+
+    private int size;
+
+    public EventReaderHeap(Collection<? extends IEventReader> readers) {
+        int n = readers.size();
+        this.readers = new IEventReader[n];
+        this.keys = new long[n];
+        this.ranks = new int[n];
+        int rank = 0;
+        for (IEventReader reader : readers) {
+            ReadonlyEventInterface event = reader.lastReadEvent();
+            if (event != null) {
+                this.readers[size] = reader;
+                this.keys[size] = event.getEventId();
+                this.ranks[size] = rank;
+                size++;
+            }
+            rank++;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of readers that still have events to deliver.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the event with the least id among all readers without consuming
+     * it, or {@code null} if all readers are exhausted.
+     */
+    public ReadonlyEventInterface peek() {
+        return size == 0 ? null : readers[0].lastReadEvent();
+    }
+
+    /**
+     * Returns the event with the least id among all readers and advances the
+     * reader it came from, or returns {@code null} if all readers are
+     * exhausted.
+     */
+    public ReadonlyEventInterface next() throws IOException {
+        if (size == 0) {
+            return null;
+        }
+        IEventReader reader = readers[0];
+        ReadonlyEventInterface event = reader.lastReadEvent();
+        assert event != null;
+        ReadonlyEventInterface nextEvent;
+        try {
+            nextEvent = reader.readEvent();
+        } catch (EOFException e) {
+            nextEvent = null;
+        }
+        if (nextEvent == null) {
+            removeTop();
+        } else {
+            keys[0] = nextEvent.getEventId();
+            siftDown(0);
+        }
+        return event;
+    }
+
+    private void removeTop() {
+        size--;
+        readers[0] = readers[size];
+        keys[0] = keys[size];
+        ranks[0] = ranks[size];
+        readers[size] = null;
+        if (size > 0) {
+            siftDown(0);
+        }
+    }
+
+    private boolean less(int i, int j) {
+        return keys[i] < keys[j] || (keys[i] == keys[j] && ranks[i] < ranks[j]);
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int least = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && less(left, least)) {
+                least = left;
+            }
+            if (right < size && less(right, least)) {
+                least = right;
+            }
+            if (least == i) {
+                return;
+            }
+            swap(i, least);
+            i = least;
+        }
+    }
+
+    private void swap(int i, int j) {
+        IEventReader reader = readers[i];
+        readers[i] = readers[j];
+        readers[j] = reader;
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int rank = ranks[i];
+        ranks[i] = ranks[j];
+        ranks[j] = rank;
+    }
+}
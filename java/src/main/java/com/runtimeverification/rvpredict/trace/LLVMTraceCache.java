@@ -108,7 +108,7 @@ public class LLVMTraceCache extends TraceCache {
         int logId = 0;
         Path path = config.getTraceFilePath(logId);
         while(path.toFile().exists()) {
-            readers.add(new LLVMEventReader(path));
+            readers.add(prefetching(new LLVMEventReader(path)));
             ++logId;
             path = config.getTraceFilePath(logId);
         }
@@ -0,0 +1,56 @@
+package com.runtimeverification.rvpredict.trace;
+
+import java.util.BitSet;
+
+/**
+ * The locks held by a thread when it accesses memory, as computed by {@link Trace}.
+ * <p>
+ * The locks are numbered within the window, and the locks held in write mode are kept
+ * apart from all the locks held, so that checking whether two accesses are protected by a
+ * common lock is a pair of bit set intersections.
+ */
+public final class LockSet {
+
+    public static final LockSet EMPTY = new LockSet(new BitSet(), new BitSet());
+
+    private final BitSet heldLocks;
+
+    private final BitSet writeHeldLocks;
+
+    LockSet(BitSet heldLocks, BitSet writeHeldLocks) {
+        this.heldLocks = heldLocks;
+        this.writeHeldLocks = writeHeldLocks;
+    }
+
+    public boolean isEmpty() {
+        return heldLocks.isEmpty();
+    }
+
+    /**
+     * Checks if both lock sets contain a common lock, held in write mode by at least one of
+     * them.
+     */
+    public boolean hasCommonLock(LockSet other) {
+        return writeHeldLocks.intersects(other.heldLocks) || heldLocks.intersects(other.writeHeldLocks);
+    }
+
+    @Override
+    public int hashCode() {
+        return heldLocks.hashCode() * 31 + writeHeldLocks.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof LockSet)) {
+            return false;
+        }
+        LockSet otherLockSet = (LockSet) object;
+        return heldLocks.equals(otherLockSet.heldLocks) && writeHeldLocks.equals(otherLockSet.writeHeldLocks);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LockSet(held=%s, write=%s)", heldLocks, writeHeldLocks);
+    }
+
+}
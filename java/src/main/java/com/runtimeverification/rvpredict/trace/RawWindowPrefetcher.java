@@ -0,0 +1,103 @@
+package com.runtimeverification.rvpredict.trace;
+
+import com.google.common.base.Throwables;
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Runs the first stage of the window pipeline, {@link TraceCache#readRawWindow()},
+ * on a dedicated thread, so that reading and merging the next windows overlaps
+ * with the analysis of the current one.
+ * <p>
+ * The windows are handed over through a bounded queue in the order in which
+ * they were read; the reader thread blocks when the queue is full.
+ *
+ * Objects of this class should be close()d.
+ */
+public class RawWindowPrefetcher implements AutoCloseable {
+
+    private static class RawWindow {
+        private final ArrayList<ReadonlyEventInterface> events;
+        private final Throwable failure;
+
+        private RawWindow(ArrayList<ReadonlyEventInterface> events, Throwable failure) {
+            this.events = events;
+            this.failure = failure;
+        }
+    }
+
+    private final BlockingQueue<RawWindow> windows;
+
+    private final Thread reader;
+
+    private boolean finished = false;
+
+    /**
+     * @param traceCache the trace cache to read windows from; it must not be
+     *                   read from any other thread while this object is open
+     * @param depth maximum number of windows read ahead of the analysis
+     */
+    public RawWindowPrefetcher(TraceCache traceCache, int depth) {
+        this.windows = new ArrayBlockingQueue<>(Math.max(1, depth));
+        this.reader = new Thread(() -> {
+            try {
+                while (true) {
+                    RawWindow window;
+                    try {
+                        window = new RawWindow(traceCache.readRawWindow(), null);
+                    } catch (Throwable e) {
+                        /* ends the windows, so that take() does not wait forever */
+                        window = new RawWindow(new ArrayList<>(), e);
+                    }
+                    windows.put(window);
+                    if (window.events.isEmpty()) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException ignored) {
+            }
+        }, "Window reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Returns the events of the next window, in the format of
+     * {@link TraceCache#readRawWindow()}, waiting for them to be read if
+     * needed.
+     * <p>
+     * A failure of the reader thread is thrown here, once: an {@link IOException},
+     * {@link RuntimeException} or {@link Error} as is, anything else wrapped in a
+     * {@link RuntimeException}. The next calls return an empty window.
+     */
+    public ArrayList<ReadonlyEventInterface> take() throws IOException {
+        if (finished) {
+            return new ArrayList<>();
+        }
+        RawWindow window;
+        try {
+            window = windows.take();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+        if (window.events.isEmpty()) {
+            finished = true;
+        }
+        if (window.failure != null) {
+            Throwables.propagateIfPossible(window.failure, IOException.class);
+            throw new RuntimeException(window.failure);
+        }
+        return window.events;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        reader.interrupt();
+        reader.join();
+    }
+}
@@ -1,15 +1,17 @@
 package com.runtimeverification.rvpredict.trace;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ThreadInfos {
     /**
      * Map from a thread ID to the information about that thread.
+     *
+     * Concurrent because traces analyzed in parallel read it while the next windows register their threads.
      */
-    private final Map<Integer, ThreadInfo> ttidToThreadInfo = new HashMap<>();
-    private final Map<Long, Integer> otidToTtid = new HashMap<>();
+    private final Map<Integer, ThreadInfo> ttidToThreadInfo = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> otidToTtid = new ConcurrentHashMap<>();
 
     OptionalInt getTtidFromOtid(long originalThreadId) {
         Integer ttid = otidToTtid.get(originalThreadId);
@@ -42,8 +42,10 @@ import com.runtimeverification.rvpredict.util.Logger;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -52,6 +54,7 @@ import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -111,6 +114,11 @@ public class Trace {
      */
     private final Map<Long, List<LockRegion>> lockIdToLockRegions;
 
+    /**
+     * Map from the ID of a memory access event to the locks held by its thread, when not empty.
+     */
+    private final Map<Long, LockSet> eventIdToLockSet = new HashMap<>();
+
     /**
      * Set of {@code MemoryAccessEvent}'s that happen during class initialization.
      */
@@ -138,6 +146,12 @@ public class Trace {
      */
     private final TraceState state;
 
+    /**
+     * The state of the window of this trace, which stays valid after {@link #state} moves to the next
+     * window when windows are analyzed in parallel.
+     */
+    private final WindowState window;
+
     public Trace(TraceState state, List<RawTrace> rawTraces,
             Map<Long, Integer> eventIdToTtid,
             Map<Integer, List<ReadonlyEventInterface>> tidToEvents,
@@ -153,6 +167,7 @@ public class Trace {
             Map<Long, Map<Long, Boolean>> atLeastOneSigsetAllowsSignalCache,
             Map<Long, Map<Long, List<ReadonlyEventInterface>>> signalNumberToSignalHandlerToEstablishSignalEvents) {
         this.state = state;
+        this.window = state.getCurrentWindow();
         this.rawTraces = rawTraces;
         this.eventIdToTtid = eventIdToTtid;
         this.tidToEvents = tidToEvents;
@@ -168,7 +183,7 @@ public class Trace {
         this.atLeastOneSigsetAllowsSignalCache = atLeastOneSigsetAllowsSignalCache;
         this.signalNumberToSignalHandlerToEstablishSignalEvents = signalNumberToSignalHandlerToEstablishSignalEvents;
 
-        baseGID = state.getTraceProducers().minEventIdForWindow.getComputed().getId().orElse(-1);
+        baseGID = window.getTraceProducers().minEventIdForWindow.getComputed().getId().orElse(-1);
         processEvents();
         this.size = tidToEvents.values().stream().mapToInt(List::size).sum();
         if (this.size == 0) {
@@ -289,11 +304,11 @@ public class Trace {
     }
 
     public boolean getThreadStartsInTheCurrentWindow(Integer ttid) {
-        return state.getThreadStartsInTheCurrentWindow(ttid);
+        return window.getThreadStartsInTheCurrentWindow(ttid);
     }
 
     public boolean getSignalEndsInTheCurrentWindow(Integer signalTtid) {
-        return state.getThreadEndsInTheCurrentWindow(signalTtid);
+        return window.getThreadEndsInTheCurrentWindow(signalTtid);
     }
 
     public Iterable<ReadonlyEventInterface> getWriteEvents(Long addr) {
@@ -374,6 +389,13 @@ public class Trace {
         return lockIdToLockRegions;
     }
 
+    /**
+     * Returns the locks held by the thread of a memory access event when it happened.
+     */
+    public LockSet getLockSet(ReadonlyEventInterface event) {
+        return eventIdToLockSet.getOrDefault(event.getEventId(), LockSet.EMPTY);
+    }
+
     public boolean isInsideClassInitializer(ReadonlyEventInterface event) {
         return clinitEvents.contains(event);
     }
@@ -399,7 +421,7 @@ public class Trace {
                     new Event(0, 0, -1, 0, 0, EventType.INVOKE_METHOD));
         }
         /* event is in the current window; reassemble its stack trace */
-        return state.getTraceProducers().stackTraces.getComputed()
+        return window.getTraceProducers().stackTraces.getComputed()
                 .getStackTraceAfterEventBuilder(maybeTtid.getAsInt(), gid)
                 .add(event)
                 .build()
@@ -649,9 +671,10 @@ public class Trace {
 
             /* sort lock regions for better performance of constraint solving */
             lockIdToLockRegions.values().forEach(Collections::sort);
+            computeLockSets();
         }
 
-        for (int ttid : state.getThreadsForCurrentWindow()) {
+        for (int ttid : window.getThreadsForCurrentWindow()) {
             tidToEvents.putIfAbsent(ttid, Collections.emptyList());
         }
 
@@ -659,6 +682,93 @@ public class Trace {
 //        printEvents();
     }
 
+    /**
+     * Computes the lock set of each critical memory access in one sweep over the events of
+     * each thread, entering and leaving its {@link LockRegion}s in event order. An event is
+     * inside a region if it happens strictly between its lock and unlock events, as in
+     * {@link LockRegion#include}. Consecutive accesses under the same locks share a lock set.
+     */
+    private void computeLockSets() {
+        Map<Long, Integer> lockIdToIndex = new HashMap<>();
+        Map<Integer, List<LockRegion>> ttidToLockRegions = new HashMap<>();
+        lockIdToLockRegions.forEach((lockId, lockRegions) -> {
+            lockIdToIndex.put(lockId, lockIdToIndex.size());
+            lockRegions.forEach(region -> ttidToLockRegions
+                    .computeIfAbsent(region.getTTID(), p -> new ArrayList<>()).add(region));
+        });
+
+        Map<LockSet, LockSet> internedLockSets = new HashMap<>();
+        ttidToLockRegions.forEach((ttid, lockRegions) -> {
+            List<ReadonlyEventInterface> events = tidToEvents.get(ttid);
+            if (events == null) {
+                return;
+            }
+            List<LockRegion> byStart = new ArrayList<>(lockRegions);
+            byStart.sort(Comparator.comparingLong(Trace::getLockRegionStart));
+            List<LockRegion> byEnd = new ArrayList<>(lockRegions);
+            byEnd.sort(Comparator.comparingLong(Trace::getLockRegionEnd));
+
+            int[] heldCounts = new int[lockIdToIndex.size()];
+            int[] writeHeldCounts = new int[lockIdToIndex.size()];
+            LockSet lockSet = LockSet.EMPTY;
+            boolean changed = false;
+            int nextStart = 0;
+            int nextEnd = 0;
+            for (ReadonlyEventInterface event : events) {
+                long eventId = event.getEventId();
+                for (; nextStart < byStart.size() && getLockRegionStart(byStart.get(nextStart)) < eventId;
+                     nextStart++) {
+                    LockRegion region = byStart.get(nextStart);
+                    int index = lockIdToIndex.get(region.getLockId());
+                    heldCounts[index]++;
+                    if (region.isWriteLocked()) {
+                        writeHeldCounts[index]++;
+                    }
+                    changed = true;
+                }
+                for (; nextEnd < byEnd.size() && getLockRegionEnd(byEnd.get(nextEnd)) <= eventId; nextEnd++) {
+                    LockRegion region = byEnd.get(nextEnd);
+                    int index = lockIdToIndex.get(region.getLockId());
+                    heldCounts[index]--;
+                    if (region.isWriteLocked()) {
+                        writeHeldCounts[index]--;
+                    }
+                    changed = true;
+                }
+
+                if (!event.isReadOrWrite()) {
+                    continue;
+                }
+                if (changed) {
+                    BitSet heldLocks = new BitSet();
+                    BitSet writeHeldLocks = new BitSet();
+                    for (int i = 0; i < heldCounts.length; i++) {
+                        if (heldCounts[i] > 0) {
+                            heldLocks.set(i);
+                        }
+                        if (writeHeldCounts[i] > 0) {
+                            writeHeldLocks.set(i);
+                        }
+                    }
+                    lockSet = internedLockSets.computeIfAbsent(new LockSet(heldLocks, writeHeldLocks),
+                            Function.identity());
+                    changed = false;
+                }
+                if (!lockSet.isEmpty()) {
+                    eventIdToLockSet.put(eventId, lockSet);
+                }
+            }
+        });
+    }
+
+    private static long getLockRegionStart(LockRegion region) {
+        return region.getLock() == null ? Long.MIN_VALUE : region.getLock().getEventId();
+    }
+
+    private static long getLockRegionEnd(LockRegion region) {
+        return region.getUnlock() == null ? Long.MAX_VALUE : region.getUnlock().getEventId();
+    }
+
     /**
      * Fast forward the event index to skip recurrent patterns generated by
      * wait-notify or busy-wait loop.
@@ -760,7 +870,7 @@ public class Trace {
     }
 
     public OptionalInt getMainTraceThreadForOriginalThread(long originalThreadId) {
-        return state.getTraceProducers().otidToMainTtid.getComputed().getTtid(originalThreadId);
+        return window.getTraceProducers().otidToMainTtid.getComputed().getTtid(originalThreadId);
     }
 
     private boolean eventsAreInThreadOrder(ReadonlyEventInterface e1, ReadonlyEventInterface e2) {
@@ -773,7 +883,7 @@ public class Trace {
 
     private boolean normalThreadsAreInHappensBeforeRelation(int ttid1, int ttid2) {
         TtidToStartAndJoinEventsForWindow ttidToStartAndJoinEventsForWindow =
-                state.getTraceProducers().startAndJoinEventsForWindow.getComputed();
+                window.getTraceProducers().startAndJoinEventsForWindow.getComputed();
         Optional<ReadonlyEventInterface> start1 = ttidToStartAndJoinEventsForWindow.getStartEvent(ttid1);
         Optional<ReadonlyEventInterface> join1 = ttidToStartAndJoinEventsForWindow.getJoinEvent(ttid1);
         Optional<ReadonlyEventInterface> start2 = ttidToStartAndJoinEventsForWindow.getStartEvent(ttid2);
@@ -858,7 +968,7 @@ public class Trace {
     }
 
     private List<Integer> getThreadsWhereSignalIsEnabled(long signalNumber) {
-        return state.getTraceProducers()
+        return window.getTraceProducers()
                 .threadsWhereSignalIsEnabled.getComputed().threadsForSignal(signalNumber);
     }
 
@@ -875,11 +985,11 @@ public class Trace {
     }
 
     private Map<Long, Set<Integer>> getSignalToTtidWhereEnabledAtStart() {
-        return state.getTraceProducers().ttidsToSignalEnabling.getComputed().getSignalToTtidWhereEnabledAtStart();
+        return window.getTraceProducers().ttidsToSignalEnabling.getComputed().getSignalToTtidWhereEnabledAtStart();
     }
 
     public Set<Integer> getTtidsWhereSignalIsDisabledAtStart(long signalNumber) {
-        return state.getTraceProducers().ttidsToSignalEnabling.getComputed().getSignalToTtidWhereDisabledAtStart()
+        return window.getTraceProducers().ttidsToSignalEnabling.getComputed().getSignalToTtidWhereDisabledAtStart()
                 .getOrDefault(signalNumber, Collections.emptySet());
     }
 
@@ -894,28 +1004,28 @@ public class Trace {
     }
 
     public Optional<ReadonlyEventInterface> getStartEventForTtid(Integer ttid) {
-        return state.getTraceProducers().startAndJoinEventsForWindow.getComputed().getStartEvent(ttid);
+        return window.getTraceProducers().startAndJoinEventsForWindow.getComputed().getStartEvent(ttid);
     }
 
     public Optional<ReadonlyEventInterface> getJoinEventForTtid(Integer ttid) {
-        return state.getTraceProducers().startAndJoinEventsForWindow.getComputed().getJoinEvent(ttid);
+        return window.getTraceProducers().startAndJoinEventsForWindow.getComputed().getJoinEvent(ttid);
     }
 
     public Collection<Integer> getMergedThreadsForCurrentWindow() {
         // TODO(virgil): Maybe make a producer out of this.
-        Set<Integer> ttids = state.getTraceProducers().mergedRawTraces.getComputed().getTraces()
+        Set<Integer> ttids = window.getTraceProducers().mergedRawTraces.getComputed().getTraces()
                 .stream()
                 .map(trace -> trace.getThreadInfo().getId())
                 .collect(Collectors.toSet());
-        ttids.addAll(state.getThreadsForCurrentWindow());
+        ttids.addAll(window.getThreadsForCurrentWindow());
         return ttids;
     }
 
     public Optional<ReadonlyEventInterface> getPreviousWindowEstablishEvent(long signalNumber, long signalHandler) {
-        return state.getPreviousWindowEstablishEvents(signalNumber, signalHandler);
+        return window.getPreviousWindowEstablishEvents(signalNumber, signalHandler);
     }
 
     public List<ReadonlyEventInterface> getInterThreadSyncEvents() {
-        return state.getTraceProducers().interThreadSyncEvents.getComputed().getSyncEvents();
+        return window.getTraceProducers().interThreadSyncEvents.getComputed().getSyncEvents();
     }
 }
@@ -7,10 +7,13 @@ import com.runtimeverification.rvpredict.engine.deadlock.LockGraph;
 import com.runtimeverification.rvpredict.log.EventReader;
 import com.runtimeverification.rvpredict.log.EventType;
 import com.runtimeverification.rvpredict.log.IEventReader;
+import com.runtimeverification.rvpredict.log.PrefetchingEventReader;
 import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
 import com.runtimeverification.rvpredict.log.compact.CompactEventReader;
 import com.runtimeverification.rvpredict.log.compact.InvalidTraceDataException;
 import com.runtimeverification.rvpredict.metadata.MetadataInterface;
+import com.runtimeverification.rvpredict.performance.Profiler;
+import com.runtimeverification.rvpredict.performance.ProfilerToken;
 import com.runtimeverification.rvpredict.util.Logger;
 import org.apache.tools.ant.DirectoryScanner;
 
@@ -21,11 +24,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -49,6 +53,18 @@ public class TraceCache {
 
     protected final List<IEventReader> readers = new ArrayList<>();
 
+    /**
+     * Merges the events of {@link #readers} by global event id; created
+     * lazily on the first window, once all readers have been set up.
+     */
+    private EventReaderHeap readerHeap;
+
+    /**
+     * Decodes trace files ahead of the analysis; only created if
+     * {@link Configuration#prefetch_threads} is positive.
+     */
+    private ExecutorService decoders;
+
     /**
      * Creates a new {@code TraceCache} structure for a trace log.
      */
@@ -92,7 +108,7 @@ public class TraceCache {
             if (!path.toFile().exists()) {
                 break;
             }
-            readers.add(new EventReader(path));
+            readers.add(prefetching(new EventReader(path)));
         }
 
         DirectoryScanner scanner = new DirectoryScanner();
@@ -103,6 +119,36 @@ public class TraceCache {
                 : "Expecting trace files to have consecutive numbers, starting from 0.";
     }
 
+    /**
+     * Wraps the given reader so that its events are decoded ahead of time by
+     * the pool of decoder threads, if prefetching is enabled.
+     */
+    protected IEventReader prefetching(IEventReader reader) {
+        if (config.prefetch_threads <= 0) {
+            return reader;
+        }
+        if (decoders == null) {
+            decoders = Executors.newFixedThreadPool(config.prefetch_threads, runnable -> {
+                Thread thread = new Thread(runnable, "Trace decoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return new PrefetchingEventReader(reader, decoders, config.prefetch_depth);
+    }
+
+    /**
+     * Closes all trace readers and stops the decoder threads.
+     */
+    public void close() throws IOException {
+        for (IEventReader reader : readers) {
+            reader.close();
+        }
+        if (decoders != null) {
+            decoders.shutdownNow();
+        }
+    }
+
     public LockGraph getLockGraph() {
         return lockGraph;
     }
@@ -110,49 +156,89 @@ public class TraceCache {
     /**
      * Returns the power of two that is greater than the given integer.
      */
-    protected static final int getNextPowerOfTwo(int x) {
+    public static int getNextPowerOfTwo(int x) {
         return 1 << (32 - Integer.numberOfLeadingZeros(x));
     }
 
-    private List<RawTrace> readEventWindow() throws IOException {
-        List<RawTrace> rawTraces = new ArrayList<>();
+    /**
+     * Reads the events of the next window from all readers, merged by global
+     * event id and with compacted ids, but not yet split by thread.
+     * <p>
+     * Does not touch the {@link TraceState}, so it may run on a different
+     * thread than {@link #buildTraceWindow(ArrayList)}, as long as calls to
+     * this method are not concurrent with each other.
+     *
+     * @return the events of the window, or an empty list if there are no
+     * more windows
+     */
+    public ArrayList<ReadonlyEventInterface> readRawWindow() throws IOException {
+        try (ProfilerToken ignored = Profiler.instance().start("Window stage 1 - read and merge events")) {
+            return readEventWindow();
+        }
+    }
+
+    /**
+     * Returns a reader over the events of all readers merged by global event id,
+     * for analyses which do not need trace windows. Unlike the windows, the
+     * events keep their original ids.
+     * <p>
+     * Must not be mixed with reading windows from this cache.
+     */
+    public IEventReader mergedEventReader() {
+        assert readerHeap == null : "The trace is already being read by windows.";
+        readerHeap = new EventReaderHeap(readers);
+        return new MergedEventReader(readerHeap);
+    }
+
+    private static class MergedEventReader implements IEventReader {
+        private final EventReaderHeap heap;
+        private ReadonlyEventInterface lastReadEvent;
+
+        private MergedEventReader(EventReaderHeap heap) {
+            this.heap = heap;
+        }
+
+        @Override
+        public ReadonlyEventInterface readEvent() throws IOException {
+            lastReadEvent = heap.next();
+            if (lastReadEvent == null) {
+                throw new EOFException();
+            }
+            return lastReadEvent;
+        }
+
+        @Override
+        public ReadonlyEventInterface lastReadEvent() {
+            return lastReadEvent;
+        }
+
+        @Override
+        public void close() {
+            // the underlying readers are closed by the cache
+        }
+    }
+
+    private ArrayList<ReadonlyEventInterface> readEventWindow() throws IOException {
         final int maxEvents = config.windowSize;
         if (Configuration.debug)
             System.err.println(readers.size() + " readers");
         ArrayList<ReadonlyEventInterface> events = new ArrayList<>(eventsBuffer);
         eventsBuffer.clear();
         events.ensureCapacity(capacity);
+        if (readerHeap == null) {
+            readerHeap = new EventReaderHeap(readers);
+        }
         for (int i = events.size(); i < maxEvents; i++) {
-            ReadonlyEventInterface event;
-            long leastGID = Long.MAX_VALUE;
-            IEventReader leastReader = null;
-            Iterator<IEventReader> iter = readers.iterator();
-            while (iter.hasNext()) {
-                IEventReader reader = iter.next();
-                event = reader.lastReadEvent();
-                if (event != null && event.getEventId() < leastGID) {
-//                      System.err.println("choosing new reader because gid " + event.getEventId() + " < " + leastGID);
-                    leastReader = reader;
-                    leastGID = event.getEventId();
-                }
-            }
-            if (leastReader == null)
+            ReadonlyEventInterface event = readerHeap.next();
+            if (event == null)
                 break;
-            event = leastReader.lastReadEvent();
-            assert event != null;
             events.add(event);
-//          System.err.println("adding event " + event.getEventId());
-            try {
-                leastReader.readEvent();
-            } catch (EOFException e) {
-                readers.remove(leastReader);
-            }
         }
         if (Configuration.debug)
             System.err.println("got " + events.size() + " events out of " + maxEvents);
         final int n = events.size();
         if (n <= 0)
-            return rawTraces;
+            return events;
         int nextGenStart = maxEvents + 1;
         final long genMask = (long) 0xffff << 48;
         if (n < nextGenStart)
@@ -167,7 +253,8 @@ public class TraceCache {
         if (nextGenStart == maxEvents + 1 && !config.withoutGeneration()) {
             System.err.println("no change of generation in " +
                     (maxEvents + 1) + " events");
-            return rawTraces;                // XXX
+            events.clear();
+            return events;                // XXX
         }
         if (Configuration.debug) {
             System.err.println("buffering " + (n - nextGenStart) +
@@ -180,8 +267,7 @@ public class TraceCache {
             events.set(i, events.get(i).destructiveWithEventId(lastGID + i));
         assert maxEvents >= n;
         lastGID += maxEvents;
-        splitTracesIntoThreads(rawTraces, events, nextGenStart);
-        return rawTraces;
+        return events;
     }
 
     private void splitTracesIntoThreads(
@@ -332,14 +418,32 @@ public class TraceCache {
 
     private int windowCount = 0;
     public Trace getTraceWindow() throws IOException {
-        windowCount++;
-        config.logger().report("-- Window " + windowCount + " --",
-            Logger.MSGTYPE.PROGRESS);
-        crntState.preStartWindow();
+        return buildTraceWindow(readRawWindow());
+    }
+
+    /**
+     * Splits the events read by {@link #readRawWindow()} by thread and builds
+     * the {@link Trace} of the window, updating the {@link TraceState} carried
+     * over between windows. Windows must be built in the order in which they
+     * were read.
+     *
+     * @return the trace of the window, or {@code null} if there are no events
+     */
+    public Trace buildTraceWindow(ArrayList<ReadonlyEventInterface> events) {
+        try (ProfilerToken ignored = Profiler.instance().start("Window stage 2 - build trace")) {
+            windowCount++;
+            config.logger().report("-- Window " + windowCount + " --",
+                Logger.MSGTYPE.PROGRESS);
+            crntState.preStartWindow();
 
-        List<RawTrace> rawTraces = readEventWindow();
+            if (events.isEmpty()) {
+                return null;
+            }
+            List<RawTrace> rawTraces = new ArrayList<>();
+            splitTracesIntoThreads(rawTraces, events, events.size());
 
-        /* finish reading events and create the Trace object */
-        return rawTraces.isEmpty() ? null : crntState.initNextTraceWindow(rawTraces);
+            /* finish reading events and create the Trace object */
+            return crntState.initNextTraceWindow(rawTraces);
+        }
     }
 }
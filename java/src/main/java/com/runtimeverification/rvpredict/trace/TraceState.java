@@ -42,10 +42,18 @@ public class TraceState {
     private final Table<Integer, Long, LockState> tidToLockIdToLockState = HashBasedTable.create(
             DEFAULT_NUM_OF_THREADS, DEFAULT_NUM_OF_LOCKS);
 
-    private final TraceProducers traceProducers = new TraceProducers();
+    private TraceProducers traceProducers = new TraceProducers();
 
-    private final StateAtWindowBorder stateAtCurrentWindowStart;
-    private final StateAtWindowBorder stateAtCurrentWindowEnd;
+    private StateAtWindowBorder stateAtCurrentWindowStart;
+    private StateAtWindowBorder stateAtCurrentWindowEnd;
+
+    private WindowState currentWindow;
+
+    /**
+     * Whether each window gets its own {@link WindowState} and trace collections, so that
+     * its {@link Trace} can still be analyzed after the next window was read.
+     */
+    private final boolean detachedWindows;
 
     private final ThreadInfos threadInfos = new ThreadInfos();
 
@@ -105,6 +113,8 @@ public class TraceState {
                 new StateAtWindowBorder(config.desiredInterruptsPerSignalAndWindow(), metadata);
         this.stateAtCurrentWindowEnd =
                 new StateAtWindowBorder(config.desiredInterruptsPerSignalAndWindow(), metadata);
+        this.detachedWindows = config.parallel_windows > 1;
+        updateCurrentWindow();
     }
 
     public Configuration config() {
@@ -122,6 +132,10 @@ public class TraceState {
             fastProcessWithoutStateAtCurrentWindowEnd(rawTraces.get(0));
         }
 
+        if (detachedWindows) {
+            return createDetachedTrace(rawTraces);
+        }
+
         t_eventIdToTtid.clear();
         t_tidToEvents.clear();
         t_tidToMemoryAccessBlocks.clear();
@@ -151,6 +165,27 @@ public class TraceState {
                 t_signalNumberToSignalHandlerToEstablishSignalEvents);
     }
 
+    /**
+     * Creates the {@link Trace} of the current window on fresh collections, which are not
+     * reused for the next windows.
+     */
+    private Trace createDetachedTrace(List<RawTrace> rawTraces) {
+        return new Trace(this, rawTraces,
+                new LinkedHashMap<>(),
+                new LinkedHashMap<>(DEFAULT_NUM_OF_THREADS),
+                new LinkedHashMap<>(DEFAULT_NUM_OF_THREADS),
+                new LinkedHashMap<>(DEFAULT_NUM_OF_THREADS),
+                new MemoryAddrToStateMap(config.windowSize),
+                HashBasedTable.create(DEFAULT_NUM_OF_THREADS, DEFAULT_NUM_OF_ADDR),
+                HashBasedTable.create(DEFAULT_NUM_OF_THREADS, DEFAULT_NUM_OF_ADDR),
+                new LinkedHashMap<>(config.windowSize >> 1),
+                new HashSet<>(config.windowSize >> 1),
+                new HashMap<>(DEFAULT_NUM_OF_THREADS),
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>());
+    }
+
     public int acquireLock(ReadonlyEventInterface lock, int ttid) {
         lock = lock.copy();
         LockState st = tidToLockIdToLockState.row(ttid)
@@ -253,6 +288,10 @@ public class TraceState {
 
     private void processWindow(List<RawTrace> traces) {
         traces.forEach(this::maintainStateAtCurrentWindowEnd);
+        if (detachedWindows) {
+            traceProducers = new TraceProducers();
+            updateCurrentWindow();
+        }
         traceProducers.startWindow(
                 stateAtCurrentWindowStart.getFormerSignalTraces(),
                 traces, stateAtCurrentWindowEnd.getThreadsForCurrentWindow(), threadInfos,
@@ -348,7 +387,19 @@ public class TraceState {
     }
 
     public void preStartWindow() {
-        stateAtCurrentWindowStart.copyFrom(stateAtCurrentWindowEnd);
+        if (detachedWindows) {
+            /* leave the borders of the previous window untouched, its trace may still be in use */
+            StateAtWindowBorder previousWindowEnd = stateAtCurrentWindowEnd;
+            stateAtCurrentWindowStart =
+                    new StateAtWindowBorder(config.desiredInterruptsPerSignalAndWindow(), metadata);
+            stateAtCurrentWindowEnd =
+                    new StateAtWindowBorder(config.desiredInterruptsPerSignalAndWindow(), metadata);
+            stateAtCurrentWindowStart.copyFrom(previousWindowEnd);
+            stateAtCurrentWindowEnd.copyFrom(previousWindowEnd);
+            updateCurrentWindow();
+        } else {
+            stateAtCurrentWindowStart.copyFrom(stateAtCurrentWindowEnd);
+        }
         stateAtCurrentWindowEnd.initializeForNextWindow();
 
         otidToSignalDepthToTtidAtWindowStartCache.clear();
@@ -375,26 +426,30 @@ public class TraceState {
     }
 
     boolean getThreadStartsInTheCurrentWindow(Integer ttid) {
-        return !stateAtCurrentWindowStart.threadWasStarted(ttid) && stateAtCurrentWindowEnd.threadWasStarted(ttid);
+        return currentWindow.getThreadStartsInTheCurrentWindow(ttid);
     }
 
     boolean getThreadEndsInTheCurrentWindow(Integer ttid) {
-        return !stateAtCurrentWindowStart.threadEnded(ttid) && stateAtCurrentWindowEnd.threadEnded(ttid);
+        return currentWindow.getThreadEndsInTheCurrentWindow(ttid);
     }
 
     Optional<ReadonlyEventInterface> getPreviousWindowEstablishEvents(long signalNumber, long signalHandler) {
-        Optional<ReadonlyEventInterface> maybeEvent = stateAtCurrentWindowStart.getLastEstablishEvent(signalNumber);
-        if (maybeEvent.isPresent() && maybeEvent.get().getSignalHandlerAddress() == signalHandler) {
-            return maybeEvent;
-        }
-        return Optional.empty();
+        return currentWindow.getPreviousWindowEstablishEvents(signalNumber, signalHandler);
     }
 
     Collection<Integer> getThreadsForCurrentWindow() {
-        return stateAtCurrentWindowEnd.getThreadsForCurrentWindow();
+        return currentWindow.getThreadsForCurrentWindow();
     }
 
     TraceProducers getTraceProducers() {
         return traceProducers;
     }
+
+    WindowState getCurrentWindow() {
+        return currentWindow;
+    }
+
+    private void updateCurrentWindow() {
+        currentWindow = new WindowState(traceProducers, stateAtCurrentWindowStart, stateAtCurrentWindowEnd);
+    }
 }
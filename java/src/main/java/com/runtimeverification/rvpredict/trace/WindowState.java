@@ -0,0 +1,53 @@
+package com.runtimeverification.rvpredict.trace;
+
+import com.runtimeverification.rvpredict.log.ReadonlyEventInterface;
+import com.runtimeverification.rvpredict.trace.producers.TraceProducers;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * The part of the {@link TraceState} which describes a single window: the state at its borders and the
+ * producers computed from its events.
+ *
+ * A {@link Trace} reads this state lazily, so, when windows are analyzed in parallel, the {@link TraceState}
+ * creates a new object for each window instead of reusing the same one.
+ */
+class WindowState {
+    private final TraceProducers traceProducers;
+    private final StateAtWindowBorder stateAtWindowStart;
+    private final StateAtWindowBorder stateAtWindowEnd;
+
+    WindowState(
+            TraceProducers traceProducers,
+            StateAtWindowBorder stateAtWindowStart,
+            StateAtWindowBorder stateAtWindowEnd) {
+        this.traceProducers = traceProducers;
+        this.stateAtWindowStart = stateAtWindowStart;
+        this.stateAtWindowEnd = stateAtWindowEnd;
+    }
+
+    boolean getThreadStartsInTheCurrentWindow(Integer ttid) {
+        return !stateAtWindowStart.threadWasStarted(ttid) && stateAtWindowEnd.threadWasStarted(ttid);
+    }
+
+    boolean getThreadEndsInTheCurrentWindow(Integer ttid) {
+        return !stateAtWindowStart.threadEnded(ttid) && stateAtWindowEnd.threadEnded(ttid);
+    }
+
+    Optional<ReadonlyEventInterface> getPreviousWindowEstablishEvents(long signalNumber, long signalHandler) {
+        Optional<ReadonlyEventInterface> maybeEvent = stateAtWindowStart.getLastEstablishEvent(signalNumber);
+        if (maybeEvent.isPresent() && maybeEvent.get().getSignalHandlerAddress() == signalHandler) {
+            return maybeEvent;
+        }
+        return Optional.empty();
+    }
+
+    Collection<Integer> getThreadsForCurrentWindow() {
+        return stateAtWindowEnd.getThreadsForCurrentWindow();
+    }
+
+    TraceProducers getTraceProducers() {
+        return traceProducers;
+    }
+}
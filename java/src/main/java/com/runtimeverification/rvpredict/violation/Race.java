@@ -120,9 +120,17 @@ public class Race {
 
     @Override
     public String toString() {
-        int addr = Math.min(0, e1.getFieldIdOrArrayIndex()); // collapse all array indices to 0
-        long loc1 = Math.min(e1.getLocationId(), e2.getLocationId());
-        long loc2 = Math.max(e1.getLocationId(), e2.getLocationId());
+        return getRaceSig(e1.getFieldIdOrArrayIndex(), e1.getLocationId(), e2.getLocationId());
+    }
+
+    /**
+     * Returns the signature of the races between two accesses at the given locations to the
+     * given field or array element, as given by {@link #toString()}.
+     */
+    public static String getRaceSig(int fieldIdOrArrayIndex, long locId1, long locId2) {
+        int addr = Math.min(0, fieldIdOrArrayIndex); // collapse all array indices to 0
+        long loc1 = Math.min(locId1, locId2);
+        long loc2 = Math.max(locId1, locId2);
         return "Race(" + addr + "," + loc1 + "," + loc2 + ")";
     }
 
@@ -163,6 +171,35 @@ public class Race {
         }
     }
 
+    /**
+     * Generates a report which only gives the locations of the two accesses, for races found
+     * outside of a trace window, where the stack traces and held locks are not known.
+     */
+    public String generateLocationReport(MetadataInterface metadata) {
+        signatureProcessor.reset();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Data race on %s:%n", metadata.getRaceDataSig(e1, e2, trace, config)));
+        boolean reportableRace;
+        if (metadata.getLocationSig(e1.getLocationId())
+                .compareTo(metadata.getLocationSig(e2.getLocationId())) <= 0) {
+            reportableRace = generateMemAccLocationReport(e1, metadata, sb);
+            sb.append(StandardSystemProperty.LINE_SEPARATOR.value());
+            reportableRace |= generateMemAccLocationReport(e2, metadata, sb);
+        } else {
+            reportableRace = generateMemAccLocationReport(e2, metadata, sb);
+            sb.append(StandardSystemProperty.LINE_SEPARATOR.value());
+            reportableRace |= generateMemAccLocationReport(e1, metadata, sb);
+        }
+        sb.append(String.format("%n"));
+        return reportableRace ? signatureProcessor.simplify(sb.toString()) : "";
+    }
+
+    private boolean generateMemAccLocationReport(
+            ReadonlyEventInterface e, MetadataInterface metadata, StringBuilder sb) {
+        sb.append(String.format("    %s in thread %s%n", e.isWrite() ? "Write" : "Read", e.getOriginalThreadId()));
+        return displayOneStackLocation(sb, metadata, true, e, e.getLocationId());
+    }
+
     public Optional<RawStackError> generateErrorData(MetadataInterface metadata) {
         RawStackError error = new RawStackError();
         error.description_format = "Data race on %s";
@@ -52,6 +52,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 import java.security.AccessControlContext;
@@ -2398,7 +2399,7 @@ public class ForkJoinPool extends AbstractExecutorService {
 
     private static void _rvpredict_before_push(ForkJoinTask<?> task) {
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_FJP_LOC_ID,
-                System.identityHashCode(task), -RVPREDICT_FJ_TASK_NUM_OF_PUSH, ++task._rvpredict_num_of_push);
+                ObjectIds.of(task), -RVPREDICT_FJ_TASK_NUM_OF_PUSH, ++task._rvpredict_num_of_push);
     }
 
     /**
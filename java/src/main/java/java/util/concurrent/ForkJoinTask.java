@@ -52,6 +52,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 import java.lang.reflect.Constructor;
@@ -271,18 +272,18 @@ public abstract class ForkJoinTask<V> implements Future<V>, Serializable {
 
     private void _rvpredict_before_exec() {
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_FJ_TASK_LOC_ID,
-                System.identityHashCode(this), -ForkJoinPool.RVPREDICT_FJ_TASK_NUM_OF_PUSH,
+                ObjectIds.of(this), -ForkJoinPool.RVPREDICT_FJ_TASK_NUM_OF_PUSH,
                 _rvpredict_num_of_push);
     }
 
     private void _rvpredict_set_completion() {
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_FJ_TASK_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_FJ_TASK_COMPLETE, 1);
+                ObjectIds.of(this), -RVPREDICT_FJ_TASK_COMPLETE, 1);
     }
 
     private void _rvpredict_get_completion() {
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_FJ_TASK_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_FJ_TASK_COMPLETE, 1);
+                ObjectIds.of(this), -RVPREDICT_FJ_TASK_COMPLETE, 1);
     }
 
     /**
@@ -29,6 +29,7 @@ import java.util.concurrent.CountedCompleter;
 import java.util.concurrent.ForkJoinPool;
 
 import com.runtimeverification.rvpredict.log.EventType;
+import com.runtimeverification.rvpredict.runtime.ObjectIds;
 import com.runtimeverification.rvpredict.runtime.RVPredictRuntime;
 
 /**
@@ -209,15 +210,15 @@ abstract class AbstractTask<P_IN, P_OUT, R,
     private R _rvpredict_get_result() {
         R result = localResult;
         RVPredictRuntime.saveMemAccEvent(EventType.READ, RVPREDICT_ABSTRACT_TASK_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_ABSTRACT_TASK_RESULT_ID,
-                System.identityHashCode(result));
+                ObjectIds.of(this), -RVPREDICT_ABSTRACT_TASK_RESULT_ID,
+                ObjectIds.of(result));
         return result;
     }
 
     private void _rvpredict_set_result(R result) {
         RVPredictRuntime.saveMemAccEvent(EventType.WRITE, RVPREDICT_ABSTRACT_TASK_LOC_ID,
-                System.identityHashCode(this), -RVPREDICT_ABSTRACT_TASK_RESULT_ID,
-                System.identityHashCode(result));
+                ObjectIds.of(this), -RVPREDICT_ABSTRACT_TASK_RESULT_ID,
+                ObjectIds.of(result));
         localResult = result;
     }
 
@@ -0,0 +1,42 @@
+#!/usr/bin/env bash
+#
+# Compares the cost and the races found by RV-Predict on the JGF benchmarks
+# with full logging and with --sample-accesses.
+#
+# usage: sampling-benchmark.sh <examples jar> [runs]
+#
+# Prints one line per benchmark and mode: the mean wall-clock time of the
+# instrumented execution and prediction, and the number of distinct races
+# reported over all runs.
+
+set -e
+
+jar=${1:?usage: $0 <examples jar> [runs]}
+runs=${2:-5}
+
+benchmarks="benchmarks.JGFRayTracerBenchSizeA
+benchmarks.JGFMonteCarloBenchSizeA
+benchmarks.JGFMolDynBenchSizeA"
+
+out=$(mktemp -d)
+trap 'rm -rf $out' EXIT
+
+printf "%-32s %-8s %10s %6s\n" benchmark mode seconds races
+for main in $benchmarks; do
+	for mode in full sampled; do
+		opts=
+		if [ $mode = sampled ]; then
+			opts=--sample-accesses
+		fi
+		: > $out/races
+		start=$(date +%s.%N)
+		for run in $(seq $runs); do
+			rv-predict $opts -cp "$jar" $main 2>&1 |
+			    grep '^Data race on' >> $out/races || true
+		done
+		end=$(date +%s.%N)
+		printf "%-32s %-8s %10.2f %6d\n" $main $mode \
+		    $(echo "($end - $start) / $runs" | bc -l) \
+		    $(sort -u $out/races | wc -l)
+	done
+done